@@ -0,0 +1,111 @@
+package com.rsw.benchmarks;
+
+import com.rsw.stream.Broadcaster;
+import com.rsw.stream.OverflowPolicy;
+import io.micrometer.core.instrument.simple.SimpleMeterRegistry;
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Level;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OperationsPerInvocation;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.TearDown;
+import org.reactivestreams.Subscription;
+import reactor.core.Disposable;
+import reactor.core.publisher.BaseSubscriber;
+
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Fan-out of emitted events through the {@link Broadcaster} backing the {@code /stream} and
+ * {@code /events} endpoints of movies-info-service and movies-review-service, to fast subscribers
+ * that request everything and slow ones that stop requesting after their first event, so their
+ * buffers fill up and the overflow policy applies. Slow subscribers are attached again for every
+ * iteration, since the ERROR policy disconnects them. Reported ops/s are events emitted per second.
+ */
+@State(Scope.Benchmark)
+@BenchmarkMode(Mode.Throughput)
+@OutputTimeUnit(TimeUnit.SECONDS)
+public class BroadcasterFanOutBenchmark {
+
+    private static final int EVENTS = 1000;
+
+    @Param({"1", "16", "256"})
+    public int fastSubscribers;
+
+    @Param({"0", "16"})
+    public int slowSubscribers;
+
+    @Param({"DROP_OLDEST", "DROP_LATEST", "ERROR"})
+    public OverflowPolicy overflowPolicy;
+
+    @Param({"256"})
+    public int bufferSize;
+
+    private Broadcaster<String> broadcaster;
+    private long received;
+    private final List<Disposable> subscriptions = new ArrayList<>();
+    private final List<Disposable> slowSubscriptions = new ArrayList<>();
+
+    @Setup
+    public void setUp() {
+        broadcaster = new Broadcaster<>("benchmark", 1, bufferSize, overflowPolicy, new SimpleMeterRegistry());
+        for (int i = 0; i < fastSubscribers; i++) {
+            subscriptions.add(broadcaster.asFlux().subscribe(event -> received++));
+        }
+    }
+
+    @Setup(Level.Iteration)
+    public void attachSlowSubscribers() {
+        for (int i = 0; i < slowSubscribers; i++) {
+            var subscriber = new SlowSubscriber();
+            broadcaster.asFlux().subscribe(subscriber);
+            slowSubscriptions.add(subscriber);
+        }
+    }
+
+    @TearDown(Level.Iteration)
+    public void detachSlowSubscribers() {
+        slowSubscriptions.forEach(Disposable::dispose);
+        slowSubscriptions.clear();
+    }
+
+    @TearDown
+    public void tearDown() {
+        subscriptions.forEach(Disposable::dispose);
+        subscriptions.clear();
+    }
+
+    @Benchmark
+    @OperationsPerInvocation(EVENTS)
+    public long emit() {
+        for (int i = 0; i < EVENTS; i++) {
+            broadcaster.emit("event");
+        }
+        return received;
+    }
+
+    private static class SlowSubscriber extends BaseSubscriber<String> {
+
+        @Override
+        protected void hookOnSubscribe(Subscription subscription) {
+            subscription.request(1);
+        }
+
+        @Override
+        protected void hookOnNext(String event) {
+            // never requests more, the broadcaster keeps buffering for it
+        }
+
+        @Override
+        protected void hookOnError(Throwable throwable) {
+            // disconnected by the ERROR policy
+        }
+    }
+}
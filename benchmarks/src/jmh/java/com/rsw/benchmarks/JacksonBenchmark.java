@@ -0,0 +1,76 @@
+package com.rsw.benchmarks;
+
+import com.fasterxml.jackson.core.type.TypeReference;
+import com.fasterxml.jackson.databind.ObjectMapper;
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.springframework.http.converter.json.Jackson2ObjectMapperBuilder;
+
+import java.time.LocalDate;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Jackson encoding of the server side documents and decoding into the movies-service client types,
+ * using an ObjectMapper configured the way Spring Boot configures the WebFlux codecs.
+ */
+@State(Scope.Benchmark)
+@BenchmarkMode(Mode.Throughput)
+@OutputTimeUnit(TimeUnit.SECONDS)
+public class JacksonBenchmark {
+
+    private static final TypeReference<List<com.rsw.moviesservice.domain.MovieInfo>> MOVIE_INFO_LIST =
+            new TypeReference<>() {};
+    private static final TypeReference<List<com.rsw.moviesservice.domain.Review>> REVIEW_LIST =
+            new TypeReference<>() {};
+
+    @Param({"10", "1000"})
+    public int size;
+
+    private ObjectMapper objectMapper;
+    private List<com.rsw.moviesinfoservice.domain.MovieInfo> movieInfos;
+    private List<com.rsw.moviesreviewservice.domain.Review> reviews;
+    private byte[] movieInfosJson;
+    private byte[] reviewsJson;
+
+    @Setup
+    public void setUp() throws Exception {
+        objectMapper = Jackson2ObjectMapperBuilder.json().build();
+        movieInfos = new ArrayList<>(size);
+        reviews = new ArrayList<>(size);
+        for (int i = 0; i < size; i++) {
+            movieInfos.add(new com.rsw.moviesinfoservice.domain.MovieInfo(String.valueOf(i), "Batman Begins",
+                    2005, List.of("Christian Bale", "Michael Cane"), LocalDate.parse("2005-06-15")));
+            reviews.add(new com.rsw.moviesreviewservice.domain.Review(String.valueOf(i), 1L, "Awesome Movie", 9.0));
+        }
+        movieInfosJson = objectMapper.writeValueAsBytes(movieInfos);
+        reviewsJson = objectMapper.writeValueAsBytes(reviews);
+    }
+
+    @Benchmark
+    public byte[] serializeMovieInfos() throws Exception {
+        return objectMapper.writeValueAsBytes(movieInfos);
+    }
+
+    @Benchmark
+    public List<com.rsw.moviesservice.domain.MovieInfo> deserializeMovieInfos() throws Exception {
+        return objectMapper.readValue(movieInfosJson, MOVIE_INFO_LIST);
+    }
+
+    @Benchmark
+    public byte[] serializeReviews() throws Exception {
+        return objectMapper.writeValueAsBytes(reviews);
+    }
+
+    @Benchmark
+    public List<com.rsw.moviesservice.domain.Review> deserializeReviews() throws Exception {
+        return objectMapper.readValue(reviewsJson, REVIEW_LIST);
+    }
+}
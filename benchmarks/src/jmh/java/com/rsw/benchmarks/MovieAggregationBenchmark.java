@@ -0,0 +1,83 @@
+package com.rsw.benchmarks;
+
+import com.rsw.moviesservice.cache.MovieInfoCache;
+import com.rsw.moviesservice.client.MoviesInfoRestClient;
+import com.rsw.moviesservice.client.ReviewsRestClient;
+import com.rsw.moviesservice.domain.Movie;
+import com.rsw.moviesservice.domain.MovieInfo;
+import com.rsw.moviesservice.domain.Review;
+import com.rsw.moviesservice.service.AggregationMode;
+import com.rsw.moviesservice.service.MoviesService;
+import com.rsw.moviesservice.service.ReviewsFallback;
+import com.rsw.moviesservice.util.ResilienceRegistry;
+import io.micrometer.core.instrument.simple.SimpleMeterRegistry;
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.springframework.test.util.ReflectionTestUtils;
+import reactor.core.publisher.Flux;
+import reactor.core.publisher.Mono;
+
+import java.time.Duration;
+import java.time.LocalDate;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Cost of assembling a {@link Movie} in {@link MoviesService} with in-memory downstreams, i.e. the
+ * Reactor overhead of the aggregation itself without any network hop.
+ */
+@State(Scope.Benchmark)
+@BenchmarkMode(Mode.Throughput)
+@OutputTimeUnit(TimeUnit.SECONDS)
+public class MovieAggregationBenchmark {
+
+    @Param({"10", "1000"})
+    public int reviewCount;
+
+    @Param({"SEQUENTIAL", "PARALLEL"})
+    public AggregationMode aggregationMode;
+
+    private MoviesService moviesService;
+
+    @Setup
+    public void setUp() {
+        var movieInfo = new MovieInfo("abc", "Batman Begins",
+                2005, List.of("Christian Bale", "Michael Cane"), LocalDate.parse("2005-06-15"));
+        var reviews = new ArrayList<Review>(reviewCount);
+        for (int i = 0; i < reviewCount; i++) {
+            reviews.add(new Review(String.valueOf(i), 1L, "Awesome Movie", 9.0));
+        }
+
+        var meterRegistry = new SimpleMeterRegistry();
+        var resilienceRegistry = new ResilienceRegistry(meterRegistry);
+        var moviesInfoRestClient = new MoviesInfoRestClient(null, null, null, resilienceRegistry) {
+            @Override
+            public Mono<MovieInfo> retrieveMovieInfo(String movieId) {
+                return Mono.just(movieInfo);
+            }
+        };
+        var reviewsRestClient = new ReviewsRestClient(null, null, null, resilienceRegistry) {
+            @Override
+            public Flux<Review> retrieveReviews(String movieId) {
+                return Flux.fromIterable(reviews);
+            }
+        };
+
+        moviesService = new MoviesService(moviesInfoRestClient, reviewsRestClient, new MovieInfoCache(meterRegistry));
+        ReflectionTestUtils.setField(moviesService, "aggregationMode", aggregationMode);
+        ReflectionTestUtils.setField(moviesService, "reviewsFallback", ReviewsFallback.FAIL);
+        ReflectionTestUtils.setField(moviesService, "reviewsTimeout", Duration.ZERO);
+    }
+
+    @Benchmark
+    public Movie retrieveMovieById() {
+        return moviesService.retrieveMovieById("abc").block();
+    }
+}
@@ -0,0 +1,59 @@
+package com.rsw.moviesreviewservice.handler;
+
+import com.rsw.moviesreviewservice.domain.Review;
+import com.rsw.moviesreviewservice.exception.ReviewDataException;
+import com.rsw.moviesreviewservice.service.ReviewWriteBatcher;
+import com.rsw.moviesreviewservice.stream.ReviewChangeStreamFeed;
+import com.rsw.stream.StreamSource;
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.springframework.beans.factory.support.StaticListableBeanFactory;
+import org.springframework.test.util.ReflectionTestUtils;
+
+import javax.validation.Validation;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Bean validation of incoming reviews through {@link ReviewHandler#validate(Review)}. Lives in the
+ * handler package to reach the package-private method.
+ */
+@State(Scope.Benchmark)
+@BenchmarkMode(Mode.Throughput)
+@OutputTimeUnit(TimeUnit.SECONDS)
+public class ReviewValidationBenchmark {
+
+    private ReviewHandler reviewHandler;
+    private final Review validReview = new Review(null, 1L, "Awesome Movie", 9.0);
+    private final Review invalidReview = new Review(null, null, "Awesome Movie", -9.0);
+
+    @Setup
+    public void setUp() {
+        // an empty bean factory stands in for the optional change stream feed and write-behind batcher
+        var beanFactory = new StaticListableBeanFactory();
+        reviewHandler = new ReviewHandler(null, null, null, StreamSource.LOCAL,
+                beanFactory.getBeanProvider(ReviewChangeStreamFeed.class), beanFactory.getBeanProvider(ReviewWriteBatcher.class));
+        ReflectionTestUtils.setField(reviewHandler, "validator",
+                Validation.buildDefaultValidatorFactory().getValidator());
+    }
+
+    @Benchmark
+    public Review validateValidReview() {
+        reviewHandler.validate(validReview);
+        return validReview;
+    }
+
+    @Benchmark
+    public Object validateInvalidReview() {
+        try {
+            reviewHandler.validate(invalidReview);
+            return invalidReview;
+        } catch (ReviewDataException ex) {
+            return ex;
+        }
+    }
+}
@@ -0,0 +1,58 @@
+package com.rsw.loadtest;
+
+import org.HdrHistogram.ConcurrentHistogram;
+import org.HdrHistogram.Histogram;
+
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Latency histograms of the successful and the failed requests of one endpoint. Latencies are
+ * measured from the intended send time of the request, so queueing inside the load generator is not
+ * hidden (no coordinated omission). Failures, often fast rejections or slow timeouts, are kept apart
+ * so they do not shift the success percentiles.
+ */
+public class EndpointStats {
+
+    private static final long HIGHEST_TRACKABLE_NANOS = TimeUnit.MINUTES.toNanos(1);
+
+    private final String name;
+    private final Histogram latencies = new ConcurrentHistogram(HIGHEST_TRACKABLE_NANOS, 3);
+    private final Histogram errorLatencies = new ConcurrentHistogram(HIGHEST_TRACKABLE_NANOS, 3);
+
+    public EndpointStats(String name) {
+        this.name = name;
+    }
+
+    public void recordSuccess(long latencyNanos) {
+        latencies.recordValue(Math.min(latencyNanos, HIGHEST_TRACKABLE_NANOS));
+    }
+
+    public void recordError(long latencyNanos) {
+        errorLatencies.recordValue(Math.min(latencyNanos, HIGHEST_TRACKABLE_NANOS));
+    }
+
+    public void reset() {
+        latencies.reset();
+        errorLatencies.reset();
+    }
+
+    /**
+     * Request rate and error share over all requests, percentiles of the successful ones and the
+     * median and max of the failed ones.
+     */
+    public String report(double seconds) {
+        var errorCount = errorLatencies.getTotalCount();
+        var count = latencies.getTotalCount() + errorCount;
+        return String.format("%-12s %9d req %9.1f req/s %7.2f%% errors | p50 %8.2f ms p90 %8.2f ms p99 %8.2f ms p99.9 %8.2f ms max %8.2f ms"
+                        + " | errors p50 %8.2f ms max %8.2f ms",
+                name, count, count / seconds, count == 0 ? 0.0 : errorCount * 100.0 / count,
+                millis(latencies.getValueAtPercentile(50)), millis(latencies.getValueAtPercentile(90)),
+                millis(latencies.getValueAtPercentile(99)), millis(latencies.getValueAtPercentile(99.9)),
+                millis(latencies.getMaxValue()),
+                millis(errorLatencies.getValueAtPercentile(50)), millis(errorLatencies.getMaxValue()));
+    }
+
+    private static double millis(long nanos) {
+        return nanos / 1_000_000.0;
+    }
+}
@@ -0,0 +1,109 @@
+package com.rsw.loadtest;
+
+import lombok.extern.slf4j.Slf4j;
+import org.springframework.http.client.reactive.ReactorClientHttpConnector;
+import org.springframework.web.reactive.function.client.WebClient;
+import reactor.netty.http.client.HttpClient;
+import reactor.netty.resources.ConnectionProvider;
+
+import java.time.Duration;
+import java.util.LinkedHashMap;
+import java.util.Map;
+import java.util.concurrent.ThreadLocalRandom;
+import java.util.concurrent.locks.LockSupport;
+import java.util.function.IntFunction;
+
+/**
+ * Open-loop load generator: requests are sent on a fixed schedule of {@code rps} per second no
+ * matter how long earlier requests take, and every latency is measured from the scheduled time.
+ */
+@Slf4j
+public class LoadGenerator {
+
+    private final WebClient webClient;
+    private final ConnectionProvider connectionProvider;
+    private final Map<String, IntFunction<String>> endpoints = new LinkedHashMap<>();
+    private final Map<String, EndpointStats> stats = new LinkedHashMap<>();
+    private final TrafficMix trafficMix;
+    private final int idCount;
+
+    public LoadGenerator(TrafficMix trafficMix, int idCount, int maxConnections) {
+        this.trafficMix = trafficMix;
+        this.idCount = idCount;
+        this.connectionProvider = ConnectionProvider.builder("loadtest")
+                .maxConnections(maxConnections)
+                .pendingAcquireMaxCount(-1)
+                .build();
+        this.webClient = WebClient.builder()
+                .clientConnector(new ReactorClientHttpConnector(HttpClient.create(connectionProvider)))
+                .codecs(configurer -> configurer.defaultCodecs().maxInMemorySize(16 * 1024 * 1024))
+                .build();
+    }
+
+    /**
+     * Registers an endpoint of the traffic mix; {@code url} builds the request url from a seeded id.
+     */
+    public LoadGenerator endpoint(String name, IntFunction<String> url) {
+        endpoints.put(name, url);
+        stats.put(name, new EndpointStats(name));
+        return this;
+    }
+
+    public void run(int rps, Duration warmup, Duration duration) {
+        trafficMix.names().forEach(name -> {
+            if (!endpoints.containsKey(name)) {
+                throw new IllegalArgumentException("Unknown endpoint in traffic mix : " + name + ", known : " + endpoints.keySet());
+            }
+        });
+
+        log.info("Warming up for {} at {} req/s", warmup, rps);
+        drive(rps, warmup);
+        stats.values().forEach(EndpointStats::reset);
+
+        log.info("Measuring for {} at {} req/s", duration, rps);
+        drive(rps, duration);
+        // let in-flight requests finish before reporting
+        LockSupport.parkNanos(Duration.ofSeconds(2).toNanos());
+
+        var seconds = duration.toNanos() / 1_000_000_000.0;
+        System.out.println();
+        System.out.println("Target " + rps + " req/s for " + duration);
+        stats.values().forEach(endpointStats -> System.out.println(endpointStats.report(seconds)));
+    }
+
+    public void close() {
+        connectionProvider.dispose();
+    }
+
+    private void drive(int rps, Duration duration) {
+        var intervalNanos = 1_000_000_000L / rps;
+        var start = System.nanoTime();
+        var end = start + duration.toNanos();
+        var intendedStart = start;
+        while (intendedStart < end) {
+            var wait = intendedStart - System.nanoTime();
+            if (wait > 0) {
+                LockSupport.parkNanos(wait);
+            }
+            send(trafficMix.next(), intendedStart);
+            intendedStart += intervalNanos;
+        }
+    }
+
+    private void send(String endpoint, long intendedStart) {
+        var url = endpoints.get(endpoint).apply(ThreadLocalRandom.current().nextInt(idCount));
+        var endpointStats = stats.get(endpoint);
+        webClient.get()
+                .uri(url)
+                .exchangeToMono(clientResponse -> clientResponse.releaseBody()
+                        .thenReturn(clientResponse.statusCode().is2xxSuccessful()))
+                .subscribe(success -> {
+                    var latency = System.nanoTime() - intendedStart;
+                    if (success) {
+                        endpointStats.recordSuccess(latency);
+                    } else {
+                        endpointStats.recordError(latency);
+                    }
+                }, ex -> endpointStats.recordError(System.nanoTime() - intendedStart));
+    }
+}
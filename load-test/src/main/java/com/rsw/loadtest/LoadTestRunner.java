@@ -0,0 +1,133 @@
+package com.rsw.loadtest;
+
+import com.rsw.moviesinfoservice.MoviesInfoServiceApplication;
+import com.rsw.moviesinfoservice.domain.MovieInfo;
+import com.rsw.moviesreviewservice.MoviesReviewServiceApplication;
+import com.rsw.moviesreviewservice.domain.Review;
+import com.rsw.moviesservice.MoviesServiceApplication;
+import lombok.extern.slf4j.Slf4j;
+import org.springframework.boot.builder.SpringApplicationBuilder;
+import org.springframework.context.ConfigurableApplicationContext;
+import org.springframework.web.reactive.function.client.WebClient;
+import reactor.core.publisher.Flux;
+
+import java.io.IOException;
+import java.io.UncheckedIOException;
+import java.net.URL;
+import java.time.Duration;
+import java.time.LocalDate;
+import java.util.Collections;
+import java.util.List;
+import java.util.regex.Pattern;
+
+/**
+ * Boots movies-info-service and movies-review-service on embedded Mongo, points movies-service at
+ * them, seeds a data set over HTTP and drives an open-loop traffic mix against all three.
+ *
+ * <p>Options (system properties): {@code loadtest.rps}, {@code loadtest.duration},
+ * {@code loadtest.warmup}, {@code loadtest.movies}, {@code loadtest.reviewsPerMovie},
+ * {@code loadtest.mix} (e.g. {@code movies:70,movieInfos:20,reviews:10}) and
+ * {@code loadtest.maxConnections}.
+ */
+@Slf4j
+public class LoadTestRunner {
+
+    private static final String MONGO_VERSION = "5.0.6";
+
+    public static void main(String[] args) {
+        var rps = Integer.getInteger("loadtest.rps", 5000);
+        var duration = Duration.parse("PT" + System.getProperty("loadtest.duration", "60s"));
+        var warmup = Duration.parse("PT" + System.getProperty("loadtest.warmup", "10s"));
+        var movies = Integer.getInteger("loadtest.movies", 100);
+        var reviewsPerMovie = Integer.getInteger("loadtest.reviewsPerMovie", 10);
+        var mix = TrafficMix.parse(System.getProperty("loadtest.mix", "movies:70,movieInfos:20,reviews:10"));
+        var maxConnections = Integer.getInteger("loadtest.maxConnections", 1000);
+
+        var moviesInfoService = start(MoviesInfoServiceApplication.class, "movies-info-service",
+                "--spring.data.mongodb.database=loadtest-movieinfo");
+        var reviewService = start(MoviesReviewServiceApplication.class, "movies-review-service",
+                "--spring.data.mongodb.database=loadtest-review");
+        var moviesInfoUrl = "http://localhost:" + port(moviesInfoService) + "/v1/movieInfos";
+        var reviewsUrl = "http://localhost:" + port(reviewService) + "/v1/reviews";
+
+        var moviesService = new SpringApplicationBuilder(MoviesServiceApplication.class)
+                .run("--server.port=0",
+                        "--spring.config.location=" + configLocation("movies-service"),
+                        "--restClient.moviesInfoUrl=" + moviesInfoUrl,
+                        "--restClient.reviewsUrl=" + reviewsUrl,
+                        "--spring.autoconfigure.exclude=org.springframework.boot.autoconfigure.mongo.embedded.EmbeddedMongoAutoConfiguration");
+        var moviesUrl = "http://localhost:" + port(moviesService) + "/v1/movies";
+
+        var loadGenerator = new LoadGenerator(mix, movies, maxConnections)
+                .endpoint("movies", id -> moviesUrl + "/" + id)
+                .endpoint("movieInfos", id -> moviesInfoUrl + "/" + id)
+                .endpoint("reviews", id -> reviewsUrl + "?movieInfoId=" + id);
+        try {
+            seed(moviesInfoUrl, reviewsUrl, movies, reviewsPerMovie);
+            loadGenerator.run(rps, warmup, duration);
+        } finally {
+            loadGenerator.close();
+            moviesService.close();
+            reviewService.close();
+            moviesInfoService.close();
+        }
+    }
+
+    private static ConfigurableApplicationContext start(Class<?> application, String module, String database) {
+        // port 0 for both the server and Mongo so the two services never collide
+        return new SpringApplicationBuilder(application)
+                .run("--server.port=0",
+                        "--spring.config.location=" + configLocation(module),
+                        "--spring.data.mongodb.port=0",
+                        "--spring.mongodb.embedded.version=" + MONGO_VERSION,
+                        database);
+    }
+
+    /**
+     * The three services share one classpath, where {@code classpath:application.yml} only finds the
+     * first of their configurations, so each one is pointed at its own file, told apart by the module
+     * directory or jar it was loaded from.
+     */
+    private static String configLocation(String module) {
+        var modulePath = Pattern.compile("/" + Pattern.quote(module) + "[/-]");
+        try {
+            return Collections.list(LoadTestRunner.class.getClassLoader().getResources("application.yml"))
+                    .stream()
+                    .map(URL::toString)
+                    .filter(url -> modulePath.matcher(url).find())
+                    .findFirst()
+                    .orElseThrow(() -> new IllegalStateException("No application.yml of " + module + " on the classpath"));
+        } catch (IOException e) {
+            throw new UncheckedIOException(e);
+        }
+    }
+
+    private static int port(ConfigurableApplicationContext context) {
+        return context.getEnvironment().getRequiredProperty("local.server.port", Integer.class);
+    }
+
+    /**
+     * Movie infos get the ids "0".."movies - 1" because reviews reference them by a numeric movieInfoId.
+     */
+    private static void seed(String moviesInfoUrl, String reviewsUrl, int movies, int reviewsPerMovie) {
+        var webClient = WebClient.create();
+        log.info("Seeding {} movie infos with {} reviews each", movies, reviewsPerMovie);
+
+        Flux.range(0, movies)
+                .map(id -> new MovieInfo(String.valueOf(id), "Movie " + id, 2000 + id % 25,
+                        List.of("Actor " + id, "Actress " + id), LocalDate.of(2000 + id % 25, 1 + id % 12, 1)))
+                .flatMap(movieInfo -> webClient.post().uri(moviesInfoUrl)
+                        .bodyValue(movieInfo)
+                        .retrieve()
+                        .toBodilessEntity(), 64)
+                .blockLast();
+
+        Flux.range(0, movies * reviewsPerMovie)
+                .map(i -> new Review(null, (long) (i / reviewsPerMovie), "Review " + i, (double) (i % 10)))
+                .flatMap(review -> webClient.post().uri(reviewsUrl)
+                        .bodyValue(review)
+                        .retrieve()
+                        .toBodilessEntity(), 64)
+                .blockLast();
+    }
+}
@@ -0,0 +1,46 @@
+package com.rsw.loadtest;
+
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.ThreadLocalRandom;
+
+/**
+ * Weighted choice between endpoints, parsed from {@code name:weight,name:weight}.
+ */
+public class TrafficMix {
+
+    private final List<String> names = new ArrayList<>();
+    private final List<Integer> cumulativeWeights = new ArrayList<>();
+    private int totalWeight;
+
+    public static TrafficMix parse(String mix) {
+        var trafficMix = new TrafficMix();
+        for (var entry : mix.split(",")) {
+            var parts = entry.trim().split(":");
+            var weight = Integer.parseInt(parts[1].trim());
+            if (weight > 0) {
+                trafficMix.totalWeight += weight;
+                trafficMix.names.add(parts[0].trim());
+                trafficMix.cumulativeWeights.add(trafficMix.totalWeight);
+            }
+        }
+        if (trafficMix.totalWeight == 0) {
+            throw new IllegalArgumentException("Traffic mix has no endpoint with a positive weight : " + mix);
+        }
+        return trafficMix;
+    }
+
+    public List<String> names() {
+        return names;
+    }
+
+    public String next() {
+        var value = ThreadLocalRandom.current().nextInt(totalWeight);
+        for (int i = 0; i < names.size(); i++) {
+            if (value < cumulativeWeights.get(i)) {
+                return names.get(i);
+            }
+        }
+        return names.get(names.size() - 1);
+    }
+}
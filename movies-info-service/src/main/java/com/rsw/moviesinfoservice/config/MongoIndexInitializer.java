@@ -0,0 +1,46 @@
+package com.rsw.moviesinfoservice.config;
+
+import com.rsw.moviesinfoservice.domain.MovieInfo;
+import lombok.extern.slf4j.Slf4j;
+import org.springframework.boot.context.event.ApplicationReadyEvent;
+import org.springframework.context.event.EventListener;
+import org.springframework.data.mongodb.core.ReactiveMongoTemplate;
+import org.springframework.data.mongodb.core.index.MongoPersistentEntityIndexResolver;
+import org.springframework.stereotype.Component;
+import reactor.core.publisher.Flux;
+import reactor.core.publisher.Mono;
+
+import java.util.List;
+
+/**
+ * Creates the indexes declared with {@code @Indexed} and {@code @CompoundIndex} on the documents.
+ * {@code createIndexes} is a no-op for an index that already exists with the same spec, so this
+ * runs on every startup; it is subscribed once the application is ready and does not delay it.
+ */
+@Slf4j
+@Component
+public class MongoIndexInitializer {
+
+    private static final List<Class<?>> INDEXED_DOCUMENTS = List.of(MovieInfo.class);
+
+    private ReactiveMongoTemplate reactiveMongoTemplate;
+
+    public MongoIndexInitializer(ReactiveMongoTemplate reactiveMongoTemplate) {
+        this.reactiveMongoTemplate = reactiveMongoTemplate;
+    }
+
+    @EventListener(ApplicationReadyEvent.class)
+    public void createIndexesOnStartup() {
+        ensureIndexes()
+                .subscribe(null, ex -> log.error("Index creation failed : {} ", ex.getMessage(), ex));
+    }
+
+    public Mono<Void> ensureIndexes() {
+        var indexResolver = new MongoPersistentEntityIndexResolver(reactiveMongoTemplate.getConverter().getMappingContext());
+        return Flux.fromIterable(INDEXED_DOCUMENTS)
+                .concatMap(document -> Flux.fromIterable(indexResolver.resolveIndexFor(document))
+                        .concatMap(index -> reactiveMongoTemplate.indexOps(document).ensureIndex(index))
+                        .doOnNext(indexName -> log.info("Index {} ensured on {}", indexName, document.getSimpleName())))
+                .then();
+    }
+}
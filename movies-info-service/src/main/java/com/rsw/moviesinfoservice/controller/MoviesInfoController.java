@@ -1,52 +1,155 @@
 package com.rsw.moviesinfoservice.controller;
 
+import com.rsw.moviesinfoservice.domain.BulkItemResult;
 import com.rsw.moviesinfoservice.domain.MovieInfo;
+import com.rsw.moviesinfoservice.domain.MovieInfoLookup;
 import com.rsw.moviesinfoservice.service.MoviesInfoService;
+import com.rsw.moviesinfoservice.stream.MovieInfoChangeStreamFeed;
+import com.rsw.stream.Broadcaster;
+import com.rsw.stream.StreamEvent;
+import com.rsw.stream.StreamEventType;
+import com.rsw.stream.StreamSource;
 import lombok.extern.slf4j.Slf4j;
+import org.springframework.beans.factory.ObjectProvider;
+import org.springframework.beans.factory.annotation.Value;
 import org.springframework.http.HttpStatus;
 import org.springframework.http.MediaType;
 import org.springframework.http.ResponseEntity;
+import org.springframework.http.codec.ServerSentEvent;
 import org.springframework.web.bind.annotation.*;
 import reactor.core.publisher.Flux;
 import reactor.core.publisher.Mono;
-import reactor.core.publisher.Sinks;
 
 import javax.validation.Valid;
+import java.util.List;
+import java.util.function.LongFunction;
+import java.util.stream.Collectors;
 
 @Slf4j
 @RestController
 @RequestMapping("/v1/movieInfos")
 public class MoviesInfoController {
 
+    static final String NEXT_CURSOR_HEADER = "X-Next-Cursor";
+
     private MoviesInfoService moviesInfoService;
-    Sinks.Many<MovieInfo> movieInfoSink = Sinks.many().replay().latest();
+    private Broadcaster<StreamEvent<MovieInfo>> movieInfoBroadcaster;
+    private StreamSource streamSource;
+    private ObjectProvider<MovieInfoChangeStreamFeed> changeStreamFeed;
 
-    public MoviesInfoController(MoviesInfoService moviesInfoService) {
+    public MoviesInfoController(MoviesInfoService moviesInfoService,
+                                Broadcaster<StreamEvent<MovieInfo>> movieInfoBroadcaster,
+                                @Value("${movieInfos.stream.source:LOCAL}") StreamSource streamSource,
+                                ObjectProvider<MovieInfoChangeStreamFeed> changeStreamFeed) {
         this.moviesInfoService = moviesInfoService;
+        this.movieInfoBroadcaster = movieInfoBroadcaster;
+        this.streamSource = streamSource;
+        this.changeStreamFeed = changeStreamFeed;
     }
 
     @PostMapping
     @ResponseStatus(HttpStatus.CREATED)
     public Mono<MovieInfo> addMovieInfo(@RequestBody @Valid MovieInfo movieInfo) {
         return moviesInfoService.addMovieInfo(movieInfo)
-                .doOnNext(savedMovieInfo -> movieInfoSink.tryEmitNext(savedMovieInfo));
+                .doOnNext(savedMovieInfo -> publish(StreamEventType.INSERT, savedMovieInfo));
+    }
+
+    /**
+     * Bulk insert of a JSON array or NDJSON body, answered with one NDJSON result per item. The body
+     * is decoded one MovieInfo at a time as it arrives and read only as fast as the batches are
+     * written, so the first batch is inserted before the upload ends. The inserted MovieInfos are
+     * published to the stream one batch at a time.
+     */
+    @PostMapping(value = "/bulk", consumes = {MediaType.APPLICATION_JSON_VALUE, MediaType.APPLICATION_NDJSON_VALUE},
+            produces = MediaType.APPLICATION_NDJSON_VALUE)
+    public Flux<BulkItemResult> addMovieInfos(@RequestBody Flux<MovieInfo> movieInfos) {
+        return moviesInfoService.addMovieInfos(movieInfos, inserted -> {
+            if (streamSource == StreamSource.LOCAL) {
+                movieInfoBroadcaster.emitAll(inserted.stream()
+                        .map(movieInfo -> streamEvent(StreamEventType.INSERT, movieInfo))
+                        .collect(Collectors.toList()));
+            }
+        });
+    }
+
+    private void publish(StreamEventType type, MovieInfo movieInfo) {
+        // with a change stream the write reaches the broadcaster through the feed
+        if (streamSource == StreamSource.LOCAL) {
+            movieInfoBroadcaster.emit(streamEvent(type, movieInfo));
+        }
+    }
+
+    private LongFunction<StreamEvent<MovieInfo>> streamEvent(StreamEventType type, MovieInfo movieInfo) {
+        return sequence -> new StreamEvent<>(movieInfoBroadcaster.eventId(sequence), type, movieInfo);
     }
 
+    // added MovieInfos only, updates and deletes are published on /events
     @GetMapping(value = "/stream", produces = MediaType.APPLICATION_NDJSON_VALUE)
     public Flux<MovieInfo> streamMovieInfos() {
-        return movieInfoSink.asFlux();
+        return movieInfoBroadcaster.asFlux()
+                .filter(event -> event.getType() == StreamEventType.INSERT)
+                .map(StreamEvent::getData);
+    }
+
+    /**
+     * Inserts, updates and deletes, named by the SSE event: {@code insert}, {@code update} or
+     * {@code delete}, the data of a delete only carrying the movieInfoId.
+     */
+    @GetMapping(value = "/events", produces = MediaType.TEXT_EVENT_STREAM_VALUE)
+    public Flux<ServerSentEvent<MovieInfo>> streamMovieInfoEvents(@RequestHeader(value = "Last-Event-ID", required = false) String lastEventId) {
+        return resume(lastEventId).map(event -> ServerSentEvent.builder(event.getData())
+                .id(event.getId())
+                .event(event.getType().name().toLowerCase())
+                .build());
+    }
+
+    /**
+     * Change stream ids are resume tokens, resumed by the feed; local ids are instance-prefixed
+     * sequence numbers resumed from the broadcaster history.
+     */
+    private Flux<StreamEvent<MovieInfo>> resume(String lastEventId) {
+        if (lastEventId == null) {
+            return movieInfoBroadcaster.asFlux();
+        }
+        var feed = changeStreamFeed.getIfAvailable();
+        if (feed != null) {
+            return feed.resume(lastEventId);
+        }
+        return movieInfoBroadcaster.asFlux(lastEventId);
     }
 
     @GetMapping
     @ResponseStatus(HttpStatus.OK)
-    public Flux<MovieInfo> getAllMovieInfoFlux(@RequestParam(value = "year", required = false) Integer year) {
-        log.info("year : {} ", year);
+    public Flux<MovieInfo> getAllMovieInfoFlux(@RequestParam(value = "year", required = false) Integer year,
+                                               @RequestParam(value = "ids", required = false) List<String> ids) {
+        log.info("year : {} , ids : {} ", year, ids);
+        if (ids != null) {
+            return moviesInfoService.getMovieInfosByIds(ids);
+        }
         if (year != null) {
             return moviesInfoService.getMovieInfoByYear(year).log();
         }
         return moviesInfoService.getAllMovieInfos();
     }
 
+    @GetMapping(params = "limit")
+    public Mono<ResponseEntity<List<MovieInfo>>> getMovieInfoPage(@RequestParam("limit") int limit,
+                                                                  @RequestParam(value = "cursor", required = false) String cursor) {
+        return moviesInfoService.getMovieInfoPage(limit, cursor)
+                .map(page -> {
+                    var response = ResponseEntity.ok();
+                    if (page.getNextCursor() != null) {
+                        response.header(NEXT_CURSOR_HEADER, page.getNextCursor());
+                    }
+                    return response.body(page.getMovieInfos());
+                });
+    }
+
+    @PostMapping("/lookup")
+    public Mono<MovieInfoLookup> lookupMovieInfos(@RequestBody List<String> ids) {
+        return moviesInfoService.lookupMovieInfos(ids);
+    }
+
     @GetMapping("/{id}")
     public Mono<ResponseEntity<MovieInfo>> getMovieInfoById(@PathVariable String id) {
         return moviesInfoService.getMovieById(id)
@@ -58,15 +161,23 @@ public class MoviesInfoController {
     @PutMapping("/{id}")
     public Mono<ResponseEntity<MovieInfo>> updateMovieInfo(@RequestBody MovieInfo movieInfo, @PathVariable String id) {
         return moviesInfoService.updateMovieInfo(movieInfo, id)
+                .doOnNext(updatedMovieInfo -> publish(StreamEventType.UPDATE, updatedMovieInfo))
                 .map(ResponseEntity.ok()::body)
                 .switchIfEmpty(Mono.just(ResponseEntity.notFound().build()))
                 .log();
     }
 
     @DeleteMapping("/{id}")
-    @ResponseStatus(HttpStatus.NO_CONTENT)
-    public Mono<Void> deleteMovieInfo(@PathVariable String id) {
-        return moviesInfoService.deleteMovie(id);
+    public Mono<ResponseEntity<Void>> deleteMovieInfo(@PathVariable String id) {
+        return moviesInfoService.deleteMovie(id)
+                .doOnNext(deleted -> {
+                    if (deleted) {
+                        publish(StreamEventType.DELETE, MovieInfo.ofId(id));
+                    }
+                })
+                .map(deleted -> deleted
+                        ? ResponseEntity.noContent().<Void>build()
+                        : ResponseEntity.notFound().<Void>build());
     }
 
 }
@@ -4,6 +4,9 @@ import lombok.AllArgsConstructor;
 import lombok.Data;
 import lombok.NoArgsConstructor;
 import org.springframework.data.annotation.Id;
+import org.springframework.data.annotation.Version;
+import org.springframework.data.mongodb.core.index.CompoundIndex;
+import org.springframework.data.mongodb.core.index.Indexed;
 import org.springframework.data.mongodb.core.mapping.Document;
 
 import javax.validation.constraints.NotBlank;
@@ -16,11 +19,13 @@ import java.util.List;
 @NoArgsConstructor
 @AllArgsConstructor
 @Document
+@CompoundIndex(name = "year_name", def = "{'year': 1, 'name': 1}")
 public class MovieInfo {
 
     @Id
     private String movieInfoId;
     @NotBlank(message = "movieInfo.name must be present")
+    @Indexed
     private String name;
     @NotNull
     @Positive(message = "movieInfo.year must be a Positive Value")
@@ -28,4 +33,20 @@ public class MovieInfo {
     @NotNull
     private List<@NotBlank(message = "movieInfo.cast must be present")String> cast;
     private LocalDate release_date;
+    // bumped by every update; an update carrying a version only applies to that version, and a
+    // document without one counts as version 0. Being versioned, a POST always inserts: an existing
+    // id is answered 409 instead of being replaced.
+    @Version
+    private Long version;
+
+    public MovieInfo(String movieInfoId, String name, Integer year, List<String> cast, LocalDate release_date) {
+        this(movieInfoId, name, year, cast, release_date, null);
+    }
+
+    // the data of a delete event, which only identifies the deleted MovieInfo
+    public static MovieInfo ofId(String movieInfoId) {
+        var movieInfo = new MovieInfo();
+        movieInfo.setMovieInfoId(movieInfoId);
+        return movieInfo;
+    }
 }
@@ -0,0 +1,17 @@
+package com.rsw.moviesinfoservice.domain;
+
+import lombok.AllArgsConstructor;
+import lombok.Data;
+import lombok.NoArgsConstructor;
+
+import java.util.List;
+
+@Data
+@NoArgsConstructor
+@AllArgsConstructor
+public class MovieInfoLookup {
+
+    // found MovieInfos, in the order their ids were requested
+    private List<MovieInfo> movieInfos;
+    private List<String> missingIds;
+}
@@ -0,0 +1,11 @@
+package com.rsw.moviesinfoservice.exception;
+
+public class InvalidPageRequestException extends RuntimeException {
+
+    private String message;
+
+    public InvalidPageRequestException(String message) {
+        super(message);
+        this.message = message;
+    }
+}
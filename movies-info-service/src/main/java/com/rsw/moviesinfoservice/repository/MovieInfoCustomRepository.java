@@ -0,0 +1,36 @@
+package com.rsw.moviesinfoservice.repository;
+
+import com.rsw.moviesinfoservice.domain.MovieInfo;
+import reactor.core.publisher.Flux;
+import reactor.core.publisher.Mono;
+
+import java.util.List;
+import java.util.Map;
+
+public interface MovieInfoCustomRepository {
+
+    /**
+     * Returns up to {@code limit} MovieInfos in {@code _id} order, starting right after
+     * {@code afterId} (from the beginning when it is null).
+     */
+    Flux<MovieInfo> findPageAfter(String afterId, int limit);
+
+    /**
+     * Inserts all the MovieInfos with one unordered {@code insertMany}, so a failing document does
+     * not stop the others. The generated ids are set on the inserted MovieInfos; the failures are
+     * returned as error messages keyed by position in {@code movieInfos}.
+     */
+    Mono<Map<Integer, String>> insertUnordered(List<MovieInfo> movieInfos);
+
+    /**
+     * Sets the non-null fields of {@code changes} on the MovieInfo and bumps its version in one
+     * {@code findAndModify}, returning the updated MovieInfo. When {@code changes} carries a version
+     * only that version is updated. Empty when no document matched.
+     */
+    Mono<MovieInfo> updateFields(String movieInfoId, MovieInfo changes);
+
+    /**
+     * Deletes the MovieInfo with a single {@code deleteOne}; true when there was one to delete.
+     */
+    Mono<Boolean> removeById(String movieInfoId);
+}
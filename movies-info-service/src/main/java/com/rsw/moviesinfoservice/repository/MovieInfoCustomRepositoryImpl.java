@@ -0,0 +1,120 @@
+package com.rsw.moviesinfoservice.repository;
+
+import com.mongodb.MongoBulkWriteException;
+import com.mongodb.bulk.BulkWriteError;
+import com.mongodb.client.model.InsertManyOptions;
+import com.rsw.moviesinfoservice.domain.MovieInfo;
+import org.bson.Document;
+import org.bson.types.ObjectId;
+import org.springframework.data.domain.Sort;
+import org.springframework.data.mongodb.core.FindAndModifyOptions;
+import org.springframework.data.mongodb.core.ReactiveMongoTemplate;
+import org.springframework.data.mongodb.core.query.Criteria;
+import org.springframework.data.mongodb.core.query.Query;
+import org.springframework.data.mongodb.core.query.Update;
+import org.springframework.data.mongodb.core.schema.JsonSchemaObject;
+import reactor.core.publisher.Flux;
+import reactor.core.publisher.Mono;
+
+import java.util.List;
+import java.util.Map;
+import java.util.stream.Collectors;
+
+public class MovieInfoCustomRepositoryImpl implements MovieInfoCustomRepository {
+
+    private ReactiveMongoTemplate reactiveMongoTemplate;
+
+    public MovieInfoCustomRepositoryImpl(ReactiveMongoTemplate reactiveMongoTemplate) {
+        this.reactiveMongoTemplate = reactiveMongoTemplate;
+    }
+
+    @Override
+    public Flux<MovieInfo> findPageAfter(String afterId, int limit) {
+        var query = new Query()
+                .with(Sort.by(Sort.Direction.ASC, "_id"))
+                .limit(limit);
+        if (afterId != null) {
+            query.addCriteria(afterId(afterId));
+        }
+        return reactiveMongoTemplate.find(query, MovieInfo.class);
+    }
+
+    @Override
+    public Mono<Map<Integer, String>> insertUnordered(List<MovieInfo> movieInfos) {
+        var documents = movieInfos.stream()
+                .map(movieInfo -> {
+                    // what the template would initialize on insert
+                    if (movieInfo.getVersion() == null) {
+                        movieInfo.setVersion(0L);
+                    }
+                    var document = new Document();
+                    reactiveMongoTemplate.getConverter().write(movieInfo, document);
+                    return document;
+                })
+                .collect(Collectors.toList());
+        return reactiveMongoTemplate.getCollection(reactiveMongoTemplate.getCollectionName(MovieInfo.class))
+                .flatMap(collection -> Mono.from(collection.insertMany(documents, new InsertManyOptions().ordered(false))))
+                .map(result -> Map.<Integer, String>of())
+                .onErrorResume(MongoBulkWriteException.class, ex -> Mono.just(ex.getWriteErrors().stream()
+                        .collect(Collectors.toMap(BulkWriteError::getIndex, BulkWriteError::getMessage))))
+                .doOnNext(failures -> {
+                    // the driver adds the generated _id to each document it inserts
+                    for (int i = 0; i < documents.size(); i++) {
+                        if (!failures.containsKey(i)) {
+                            var id = documents.get(i).get("_id");
+                            movieInfos.get(i).setMovieInfoId(id instanceof ObjectId ? ((ObjectId) id).toHexString() : String.valueOf(id));
+                        }
+                    }
+                });
+    }
+
+    @Override
+    public Mono<MovieInfo> updateFields(String movieInfoId, MovieInfo changes) {
+        var query = new Query(Criteria.where("_id").is(movieInfoId));
+        if (changes.getVersion() != null) {
+            query.addCriteria(versionIs(changes.getVersion()));
+        }
+        var update = new Update().inc("version", 1);
+        setIfPresent(update, "name", changes.getName());
+        setIfPresent(update, "year", changes.getYear());
+        setIfPresent(update, "cast", changes.getCast());
+        setIfPresent(update, "release_date", changes.getRelease_date());
+        return reactiveMongoTemplate.findAndModify(query, update, FindAndModifyOptions.options().returnNew(true), MovieInfo.class);
+    }
+
+    @Override
+    public Mono<Boolean> removeById(String movieInfoId) {
+        return reactiveMongoTemplate.remove(new Query(Criteria.where("_id").is(movieInfoId)), MovieInfo.class)
+                .map(result -> result.getDeletedCount() > 0);
+    }
+
+    private static void setIfPresent(Update update, String field, Object value) {
+        if (value != null) {
+            update.set(field, value);
+        }
+    }
+
+    // documents written before versioning have no version field and count as version 0
+    private static Criteria versionIs(Long version) {
+        if (version == 0) {
+            return new Criteria().orOperator(
+                    Criteria.where("version").is(0L),
+                    Criteria.where("version").exists(false));
+        }
+        return Criteria.where("version").is(version);
+    }
+
+    /**
+     * Ids are stored as ObjectIds when generated and as strings when the client picked them.
+     * Mongo sorts all strings before all ObjectIds and {@code $gt} only compares within one type,
+     * so after a string id the remaining ObjectIds have to be matched explicitly.
+     */
+    private static Criteria afterId(String afterId) {
+        if (ObjectId.isValid(afterId)) {
+            return Criteria.where("_id").gt(new ObjectId(afterId));
+        }
+        return new Criteria().orOperator(
+                Criteria.where("_id").gt(afterId),
+                Criteria.where("_id").type(JsonSchemaObject.Type.OBJECT_ID));
+    }
+}
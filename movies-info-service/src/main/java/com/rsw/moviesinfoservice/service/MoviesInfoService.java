@@ -1,48 +1,205 @@
 package com.rsw.moviesinfoservice.service;
 
+import com.rsw.moviesinfoservice.domain.BulkItemResult;
 import com.rsw.moviesinfoservice.domain.MovieInfo;
+import com.rsw.moviesinfoservice.domain.MovieInfoLookup;
+import com.rsw.moviesinfoservice.domain.MovieInfoPage;
+import com.rsw.moviesinfoservice.exception.InvalidPageRequestException;
 import com.rsw.moviesinfoservice.repository.MovieInfoRepository;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.dao.OptimisticLockingFailureException;
 import org.springframework.stereotype.Service;
 import reactor.core.publisher.Flux;
 import reactor.core.publisher.Mono;
+import reactor.util.function.Tuple2;
+
+import javax.validation.ConstraintViolation;
+import javax.validation.Validator;
+import java.nio.charset.StandardCharsets;
+import java.util.ArrayList;
+import java.util.Base64;
+import java.util.Comparator;
+import java.util.LinkedHashSet;
+import java.util.List;
+import java.util.function.Consumer;
+import java.util.stream.Collectors;
 
 @Service
 public class MoviesInfoService {
 
+    static final int MAX_PAGE_LIMIT = 1000;
+
     private MovieInfoRepository movieInfoRepository;
+    private Validator validator;
+
+    @Value("${movieInfos.bulk.batchSize:500}")
+    private int bulkBatchSize;
 
-    public MoviesInfoService(MovieInfoRepository movieInfoRepository) {
+    @Value("${movieInfos.bulk.concurrency:2}")
+    private int bulkConcurrency;
+
+    public MoviesInfoService(MovieInfoRepository movieInfoRepository, Validator validator) {
         this.movieInfoRepository = movieInfoRepository;
+        this.validator = validator;
     }
 
     public Mono<MovieInfo> addMovieInfo(MovieInfo movieInfo) {
         return movieInfoRepository.save(movieInfo).log();
     }
 
+    /**
+     * Validates and inserts the MovieInfos {@code bulkBatchSize} at a time, one unordered
+     * {@code insertMany} per batch and up to {@code bulkConcurrency} batches in flight. Every item
+     * gets a result, in batch order; {@code onInserted} receives the inserted MovieInfos of each batch.
+     * Demand on {@code movieInfos} follows the batches in flight, so the MovieInfos held at once stay
+     * within about {@code 2 * bulkConcurrency * bulkBatchSize}.
+     */
+    public Flux<BulkItemResult> addMovieInfos(Flux<MovieInfo> movieInfos, Consumer<List<MovieInfo>> onInserted) {
+        return movieInfos.index()
+                .buffer(bulkBatchSize)
+                .flatMapSequential(batch -> insertBatch(batch, onInserted), bulkConcurrency);
+    }
+
+    private Flux<BulkItemResult> insertBatch(List<Tuple2<Long, MovieInfo>> batch, Consumer<List<MovieInfo>> onInserted) {
+        var results = new ArrayList<BulkItemResult>(batch.size());
+        var valid = new ArrayList<Tuple2<Long, MovieInfo>>(batch.size());
+        batch.forEach(item -> {
+            var violations = violations(item.getT2());
+            if (violations != null) {
+                results.add(BulkItemResult.failed(item.getT1(), violations));
+            } else {
+                valid.add(item);
+            }
+        });
+        if (valid.isEmpty()) {
+            return Flux.fromIterable(results);
+        }
+        var movieInfos = valid.stream()
+                .map(Tuple2::getT2)
+                .collect(Collectors.toList());
+        return movieInfoRepository.insertUnordered(movieInfos)
+                .flatMapMany(failures -> {
+                    var inserted = new ArrayList<MovieInfo>(movieInfos.size());
+                    for (int i = 0; i < valid.size(); i++) {
+                        var index = valid.get(i).getT1();
+                        var failure = failures.get(i);
+                        if (failure != null) {
+                            results.add(BulkItemResult.failed(index, failure));
+                        } else {
+                            results.add(BulkItemResult.inserted(index, movieInfos.get(i).getMovieInfoId()));
+                            inserted.add(movieInfos.get(i));
+                        }
+                    }
+                    if (!inserted.isEmpty()) {
+                        onInserted.accept(inserted);
+                    }
+                    results.sort(Comparator.comparingLong(BulkItemResult::getIndex));
+                    return Flux.fromIterable(results);
+                });
+    }
+
+    private String violations(MovieInfo movieInfo) {
+        var constraintViolations = validator.validate(movieInfo);
+        if (constraintViolations.isEmpty()) {
+            return null;
+        }
+        return constraintViolations.stream()
+                .map(ConstraintViolation::getMessage)
+                .sorted()
+                .collect(Collectors.joining(","));
+    }
+
     public Flux<MovieInfo> getAllMovieInfos() {
         return movieInfoRepository.findAll().log();
     }
 
+    /**
+     * Keyset pagination over {@code _id}: one extra document is read to tell whether there is a
+     * next page, and its cursor points after the last returned document, so no documents are ever skipped over.
+     */
+    public Mono<MovieInfoPage> getMovieInfoPage(int limit, String cursor) {
+        if (limit < 1 || limit > MAX_PAGE_LIMIT) {
+            return Mono.error(new InvalidPageRequestException("limit must be between 1 and " + MAX_PAGE_LIMIT));
+        }
+        return Mono.defer(() -> movieInfoRepository.findPageAfter(cursor == null ? null : decodeCursor(cursor), limit + 1)
+                        .collectList())
+                .map(movieInfos -> {
+                    if (movieInfos.size() <= limit) {
+                        return new MovieInfoPage(movieInfos, null);
+                    }
+                    var page = new ArrayList<>(movieInfos.subList(0, limit));
+                    return new MovieInfoPage(page, encodeCursor(page.get(limit - 1).getMovieInfoId()));
+                });
+    }
+
     public Mono<MovieInfo> getMovieById(String id) {
         return movieInfoRepository.findById(id);
     }
 
-    public Mono<MovieInfo> updateMovieInfo(MovieInfo updatedMovieInfo, String id) {
-        return movieInfoRepository.findById(id)
-                .flatMap(movieInfo -> {
-                    movieInfo.setCast(updatedMovieInfo.getCast());
-                    movieInfo.setName(updatedMovieInfo.getName());
-                    movieInfo.setRelease_date(updatedMovieInfo.getRelease_date());
-                    movieInfo.setYear(updatedMovieInfo.getYear());
-                    return movieInfoRepository.save(updatedMovieInfo);
+    public Flux<MovieInfo> getMovieInfosByIds(List<String> ids) {
+        return lookupMovieInfos(ids)
+                .flatMapIterable(MovieInfoLookup::getMovieInfos);
+    }
+
+    /**
+     * Resolves all the ids with a single {@code $in} query. The found MovieInfos keep the request
+     * order and the ids with no matching document are reported as missing.
+     */
+    public Mono<MovieInfoLookup> lookupMovieInfos(List<String> ids) {
+        var distinctIds = new ArrayList<>(new LinkedHashSet<>(ids));
+        return movieInfoRepository.findAllById(distinctIds)
+                .collectMap(MovieInfo::getMovieInfoId)
+                .map(movieInfosById -> {
+                    var movieInfos = new ArrayList<MovieInfo>(movieInfosById.size());
+                    var missingIds = new ArrayList<String>();
+                    distinctIds.forEach(id -> {
+                        var movieInfo = movieInfosById.get(id);
+                        if (movieInfo != null) {
+                            movieInfos.add(movieInfo);
+                        } else {
+                            missingIds.add(id);
+                        }
+                    });
+                    return new MovieInfoLookup(movieInfos, missingIds);
                 });
     }
 
-    public Mono<Void> deleteMovie(String id) {
-        return movieInfoRepository.deleteById(id).log();
+    /**
+     * Partial update in a single round trip: only the non-null fields of {@code updatedMovieInfo}
+     * are set. Empty when there is no MovieInfo for the id; when the request carries a version that
+     * is no longer current it fails with an {@link OptimisticLockingFailureException}, which costs
+     * one more lookup to tell the two apart.
+     */
+    public Mono<MovieInfo> updateMovieInfo(MovieInfo updatedMovieInfo, String id) {
+        return movieInfoRepository.updateFields(id, updatedMovieInfo)
+                .switchIfEmpty(Mono.defer(() -> updatedMovieInfo.getVersion() == null
+                        ? Mono.empty()
+                        : movieInfoRepository.existsById(id)
+                        .flatMap(exists -> exists
+                                ? Mono.error(new OptimisticLockingFailureException("MovieInfo " + id + " is no longer at version " + updatedMovieInfo.getVersion()))
+                                : Mono.empty())));
+    }
+
+    /**
+     * True when there was a MovieInfo to delete.
+     */
+    public Mono<Boolean> deleteMovie(String id) {
+        return movieInfoRepository.removeById(id).log();
     }
 
     public Flux<MovieInfo> getMovieInfoByYear(Integer year) {
         return movieInfoRepository.findByYear(year);
     }
+
+    static String encodeCursor(String movieInfoId) {
+        return Base64.getUrlEncoder().withoutPadding().encodeToString(movieInfoId.getBytes(StandardCharsets.UTF_8));
+    }
+
+    static String decodeCursor(String cursor) {
+        try {
+            return new String(Base64.getUrlDecoder().decode(cursor), StandardCharsets.UTF_8);
+        } catch (IllegalArgumentException ex) {
+            throw new InvalidPageRequestException("cursor is not valid : " + cursor);
+        }
+    }
 }
@@ -0,0 +1,22 @@
+package com.rsw.moviesinfoservice.stream;
+
+import com.rsw.moviesinfoservice.domain.MovieInfo;
+import com.rsw.stream.Broadcaster;
+import com.rsw.stream.ChangeStreamFeed;
+import com.rsw.stream.StreamEvent;
+import org.springframework.boot.autoconfigure.condition.ConditionalOnProperty;
+import org.springframework.data.mongodb.core.ReactiveMongoTemplate;
+import org.springframework.stereotype.Component;
+
+/**
+ * Feeds the MovieInfo broadcaster from a MongoDB change stream, with its inserts, updates and deletes.
+ */
+@Component
+@ConditionalOnProperty(name = "movieInfos.stream.source", havingValue = "CHANGE_STREAM")
+public class MovieInfoChangeStreamFeed extends ChangeStreamFeed<MovieInfo> {
+
+    public MovieInfoChangeStreamFeed(ReactiveMongoTemplate reactiveMongoTemplate,
+                                     Broadcaster<StreamEvent<MovieInfo>> movieInfoBroadcaster) {
+        super(reactiveMongoTemplate, movieInfoBroadcaster, MovieInfo.class, "MovieInfo", MovieInfo::ofId);
+    }
+}
@@ -0,0 +1,24 @@
+package com.rsw.moviesinfoservice.stream;
+
+import com.rsw.moviesinfoservice.domain.MovieInfo;
+import com.rsw.stream.Broadcaster;
+import com.rsw.stream.OverflowPolicy;
+import com.rsw.stream.StreamEvent;
+import io.micrometer.core.instrument.MeterRegistry;
+import org.springframework.beans.factory.ObjectProvider;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.context.annotation.Bean;
+import org.springframework.context.annotation.Configuration;
+
+@Configuration
+public class StreamConfig {
+
+    @Bean
+    public Broadcaster<StreamEvent<MovieInfo>> movieInfoBroadcaster(@Value("${movieInfos.stream.replaySize:1}") int replaySize,
+                                                                    @Value("${movieInfos.stream.historySize:256}") int historySize,
+                                                                    @Value("${movieInfos.stream.bufferSize:256}") int bufferSize,
+                                                                    @Value("${movieInfos.stream.overflowPolicy:DROP_OLDEST}") OverflowPolicy overflowPolicy,
+                                                                    ObjectProvider<MeterRegistry> meterRegistry) {
+        return new Broadcaster<>("movieInfos", replaySize, historySize, bufferSize, overflowPolicy, meterRegistry.getIfAvailable());
+    }
+}
@@ -1,29 +1,41 @@
 package com.rsw.moviesinfoservice.controller;
 
+import com.rsw.moviesinfoservice.domain.BulkItemResult;
 import com.rsw.moviesinfoservice.domain.MovieInfo;
+import com.rsw.moviesinfoservice.domain.MovieInfoLookup;
 import com.rsw.moviesinfoservice.repository.MovieInfoRepository;
+import org.bson.Document;
 import org.junit.jupiter.api.AfterEach;
 import org.junit.jupiter.api.BeforeEach;
 import org.junit.jupiter.api.Test;
 import org.springframework.beans.factory.annotation.Autowired;
 import org.springframework.boot.test.autoconfigure.web.reactive.AutoConfigureWebTestClient;
 import org.springframework.boot.test.context.SpringBootTest;
+import org.springframework.data.mongodb.core.ReactiveMongoTemplate;
+import org.springframework.http.HttpStatus;
+import org.springframework.http.MediaType;
 import org.springframework.test.context.ActiveProfiles;
 import org.springframework.test.context.TestPropertySource;
 import org.springframework.test.web.reactive.server.WebTestClient;
 import org.springframework.web.util.UriComponentsBuilder;
+import reactor.core.publisher.Flux;
 import reactor.test.StepVerifier;
 
+import java.time.Duration;
 import java.time.LocalDate;
 import java.util.List;
 import java.util.Objects;
 
 import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertFalse;
+import static org.junit.jupiter.api.Assertions.assertNotEquals;
+import static org.junit.jupiter.api.Assertions.assertNotNull;
+import static org.junit.jupiter.api.Assertions.assertTrue;
 
 @SpringBootTest(webEnvironment = SpringBootTest.WebEnvironment.RANDOM_PORT)
 @ActiveProfiles("test")
 @AutoConfigureWebTestClient
-@TestPropertySource(properties = "spring.mongodb.embedded.version=5.0.6")
+@TestPropertySource(properties = {"spring.mongodb.embedded.version=5.0.6", "movieInfos.bulk.batchSize=2"})
 class MoviesInfoControllerIntgTest {
 
     @Autowired
@@ -32,6 +44,9 @@ class MoviesInfoControllerIntgTest {
     @Autowired
     private MovieInfoRepository movieInfoRepository;
 
+    @Autowired
+    private ReactiveMongoTemplate reactiveMongoTemplate;
+
     static String MOVIES_INFO_URL = "/v1/movieInfos";
 
     @BeforeEach
@@ -135,6 +150,69 @@ class MoviesInfoControllerIntgTest {
         //then
     }
 
+    @Test
+    void updatedMovieInfo_versioned() {
+        var movieInfo = new MovieInfo(null, "Dark Knight Rises",
+                2012, List.of("Christian Bale", "Tom Hardy"), LocalDate.parse("2012-07-20"), 0L);
+
+        webTestClient
+                .put()
+                .uri(MOVIES_INFO_URL + "/{id}", "abc")
+                .bodyValue(movieInfo)
+                .exchange()
+                .expectStatus()
+                .isOk()
+                .expectBody(MovieInfo.class)
+                .consumeWith(movieInfoEntityExchangeResult ->
+                        assertEquals(1L, Objects.requireNonNull(movieInfoEntityExchangeResult.getResponseBody()).getVersion()));
+
+        // version 0 is gone now
+        webTestClient
+                .put()
+                .uri(MOVIES_INFO_URL + "/{id}", "abc")
+                .bodyValue(movieInfo)
+                .exchange()
+                .expectStatus()
+                .isEqualTo(HttpStatus.CONFLICT);
+    }
+
+    @Test
+    void updatedMovieInfo_versionZeroMatchesUnversionedDocument() {
+        // written before MovieInfos were versioned
+        reactiveMongoTemplate.insert(new Document("_id", "legacy")
+                        .append("name", "Batman Begins")
+                        .append("year", 2005)
+                        .append("cast", List.of("Christian Bale")),
+                reactiveMongoTemplate.getCollectionName(MovieInfo.class)).block();
+        var movieInfo = new MovieInfo(null, "Batman Begins",
+                2005, List.of("Christian Bale", "Michael Cane"), null, 0L);
+
+        webTestClient
+                .put()
+                .uri(MOVIES_INFO_URL + "/{id}", "legacy")
+                .bodyValue(movieInfo)
+                .exchange()
+                .expectStatus()
+                .isOk()
+                .expectBody(MovieInfo.class)
+                .consumeWith(movieInfoEntityExchangeResult ->
+                        assertEquals(1L, Objects.requireNonNull(movieInfoEntityExchangeResult.getResponseBody()).getVersion()));
+    }
+
+    @Test
+    void addMovieInfo_existingId() {
+        var movieInfo = new MovieInfo("abc", "Dark Knight Rises",
+                2012, List.of("Christian Bale", "Tom Hardy"), LocalDate.parse("2012-07-20"));
+
+        webTestClient
+                .post()
+                .uri(MOVIES_INFO_URL)
+                .bodyValue(movieInfo)
+                .exchange()
+                .expectStatus()
+                .isEqualTo(HttpStatus.CONFLICT);
+    }
+
     @Test
     void deleteMovieInfoById() {
 
@@ -152,6 +230,15 @@ class MoviesInfoControllerIntgTest {
      * ResponseEntity Reactive Types
      **/
 
+    @Test
+    void deleteMovieInfoByIdNotFound() {
+        webTestClient.delete()
+                .uri(MOVIES_INFO_URL + "/{id}", "def")
+                .exchange()
+                .expectStatus()
+                .isNotFound();
+    }
+
     @Test
     void updatedMovieInfoNotFound() {
         //given
@@ -214,6 +301,88 @@ class MoviesInfoControllerIntgTest {
                 .hasSize(1);
     }
 
+    @Test
+    void getMovieInfosByIds() {
+        movieInfoRepository.save(new MovieInfo("xyz", "The Dark Knight",
+                2008, List.of("Christian Bale", "HeathLedger"), LocalDate.parse("2008-07-18"))).block();
+
+        var uri = UriComponentsBuilder.fromUriString(MOVIES_INFO_URL)
+                .queryParam("ids", "xyz,def,abc")
+                .buildAndExpand()
+                .toUri();
+
+        webTestClient.get()
+                .uri(uri)
+                .exchange()
+                .expectStatus()
+                .is2xxSuccessful()
+                .expectBodyList(MovieInfo.class)
+                .consumeWith(listEntityExchangeResult -> {
+                    var movieInfos = Objects.requireNonNull(listEntityExchangeResult.getResponseBody());
+                    assertEquals(2, movieInfos.size());
+                    assertEquals("xyz", movieInfos.get(0).getMovieInfoId());
+                    assertEquals("abc", movieInfos.get(1).getMovieInfoId());
+                });
+    }
+
+    @Test
+    void getMovieInfoPages() {
+        // "abc" is a string id and sorts before the two generated ObjectIds
+        var firstPage = webTestClient.get()
+                .uri(MOVIES_INFO_URL + "?limit=2")
+                .exchange()
+                .expectStatus()
+                .is2xxSuccessful()
+                .expectBodyList(MovieInfo.class)
+                .returnResult();
+        var firstMovieInfos = Objects.requireNonNull(firstPage.getResponseBody());
+        assertEquals(2, firstMovieInfos.size());
+        assertEquals("abc", firstMovieInfos.get(0).getMovieInfoId());
+        var cursor = firstPage.getResponseHeaders().getFirst("X-Next-Cursor");
+        assertNotNull(cursor);
+
+        webTestClient.get()
+                .uri(MOVIES_INFO_URL + "?limit=2&cursor=" + cursor)
+                .exchange()
+                .expectStatus()
+                .is2xxSuccessful()
+                .expectHeader()
+                .doesNotExist("X-Next-Cursor")
+                .expectBodyList(MovieInfo.class)
+                .consumeWith(listEntityExchangeResult -> {
+                    var movieInfos = Objects.requireNonNull(listEntityExchangeResult.getResponseBody());
+                    assertEquals(1, movieInfos.size());
+                    assertNotEquals(firstMovieInfos.get(1).getMovieInfoId(), movieInfos.get(0).getMovieInfoId());
+                });
+    }
+
+    @Test
+    void getMovieInfoPage_invalidLimit() {
+        webTestClient.get()
+                .uri(MOVIES_INFO_URL + "?limit=0")
+                .exchange()
+                .expectStatus()
+                .isBadRequest();
+    }
+
+    @Test
+    void lookupMovieInfos() {
+
+        webTestClient.post()
+                .uri(MOVIES_INFO_URL + "/lookup")
+                .bodyValue(List.of("def", "abc"))
+                .exchange()
+                .expectStatus()
+                .is2xxSuccessful()
+                .expectBody(MovieInfoLookup.class)
+                .consumeWith(movieInfoLookupEntityExchangeResult -> {
+                    var lookup = Objects.requireNonNull(movieInfoLookupEntityExchangeResult.getResponseBody());
+                    assertEquals(1, lookup.getMovieInfos().size());
+                    assertEquals("Dark Knight Rises", lookup.getMovieInfos().get(0).getName());
+                    assertEquals(List.of("def"), lookup.getMissingIds());
+                });
+    }
+
     @Test
     void findByName() {
         //given
@@ -227,6 +396,67 @@ class MoviesInfoControllerIntgTest {
 
     }
 
+    @Test
+    void addMovieInfos_bulk() {
+        var movieInfos = List.of(
+                new MovieInfo(null, "Inception", 2010, List.of("Leonardo DiCaprio"), LocalDate.parse("2010-07-16")),
+                new MovieInfo(null, "", 2010, List.of("Leonardo DiCaprio"), LocalDate.parse("2010-07-16")),
+                new MovieInfo("abc", "Dark Knight Rises", 2012, List.of("Christian Bale"), LocalDate.parse("2012-07-20")));
+
+        var results = webTestClient
+                .post()
+                .uri(MOVIES_INFO_URL + "/bulk")
+                .bodyValue(movieInfos)
+                .exchange()
+                .expectStatus()
+                .isOk()
+                .expectBodyList(BulkItemResult.class)
+                .returnResult()
+                .getResponseBody();
+
+        assertNotNull(results);
+        assertEquals(3, results.size());
+        assertTrue(results.get(0).isInserted());
+        assertNotNull(results.get(0).getId());
+        assertEquals("movieInfo.name must be present", results.get(1).getError());
+        assertFalse(results.get(2).isInserted());
+        assertTrue(results.get(2).getError().contains("duplicate key"));
+        assertEquals(4L, movieInfoRepository.count().block());
+    }
+
+    @Test
+    void addMovieInfos_bulkNdjsonIsWrittenWhileUploading() {
+        var first = List.of(
+                new MovieInfo(null, "Inception", 2010, List.of("Leonardo DiCaprio"), LocalDate.parse("2010-07-16")),
+                new MovieInfo(null, "Interstellar", 2014, List.of("Matthew McConaughey"), LocalDate.parse("2014-11-07")));
+        var last = new MovieInfo(null, "Tenet", 2020, List.of("John David Washington"), LocalDate.parse("2020-08-26"));
+        // the last item is only sent once the first batch is in the collection
+        var body = Flux.fromIterable(first)
+                .concatWith(Flux.interval(Duration.ofMillis(50))
+                        .concatMap(tick -> movieInfoRepository.count())
+                        .filter(count -> count == 5)
+                        .next()
+                        .timeout(Duration.ofSeconds(10))
+                        .thenReturn(last));
+
+        var results = webTestClient
+                .post()
+                .uri(MOVIES_INFO_URL + "/bulk")
+                .contentType(MediaType.APPLICATION_NDJSON)
+                .body(body, MovieInfo.class)
+                .exchange()
+                .expectStatus()
+                .isOk()
+                .expectBodyList(BulkItemResult.class)
+                .returnResult()
+                .getResponseBody();
+
+        assertNotNull(results);
+        assertEquals(3, results.size());
+        assertTrue(results.stream().allMatch(BulkItemResult::isInserted));
+        assertEquals(6L, movieInfoRepository.count().block());
+    }
+
     @Test
     void getAllMovieInfos_Stream() {
 
@@ -2,11 +2,13 @@ package com.rsw.moviesinfoservice.controller;
 
 import com.rsw.moviesinfoservice.domain.MovieInfo;
 import com.rsw.moviesinfoservice.service.MoviesInfoService;
+import com.rsw.moviesinfoservice.stream.StreamConfig;
 import org.junit.jupiter.api.Test;
 import org.springframework.beans.factory.annotation.Autowired;
 import org.springframework.boot.test.autoconfigure.web.reactive.AutoConfigureWebTestClient;
 import org.springframework.boot.test.autoconfigure.web.reactive.WebFluxTest;
 import org.springframework.boot.test.mock.mockito.MockBean;
+import org.springframework.context.annotation.Import;
 import org.springframework.test.web.reactive.server.WebTestClient;
 import reactor.core.publisher.Flux;
 import reactor.core.publisher.Mono;
@@ -21,6 +23,7 @@ import static org.mockito.Mockito.when;
 
 @WebFluxTest(controllers = MoviesInfoController.class)
 @AutoConfigureWebTestClient
+@Import(StreamConfig.class)
 public class MoviesInfoControllerUnitTest {
 
     @Autowired
@@ -140,7 +143,7 @@ public class MoviesInfoControllerUnitTest {
 
         var movieInfoId = "abc";
 
-        when(moviesInfoServiceMock.deleteMovie(isA(String.class))).thenReturn(Mono.empty().then());
+        when(moviesInfoServiceMock.deleteMovie(isA(String.class))).thenReturn(Mono.just(true));
 
         webTestClient.delete()
                 .uri(MOVIES_INFO_URL + "/{id}", movieInfoId)
@@ -0,0 +1,65 @@
+package com.rsw.moviesinfoservice.repository;
+
+import com.rsw.moviesinfoservice.config.MongoIndexInitializer;
+import com.rsw.moviesinfoservice.domain.MovieInfo;
+import org.bson.Document;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.boot.test.autoconfigure.data.mongo.DataMongoTest;
+import org.springframework.data.domain.Sort;
+import org.springframework.data.mongodb.core.ReactiveMongoTemplate;
+import org.springframework.data.mongodb.core.query.Criteria;
+import org.springframework.data.mongodb.core.query.Query;
+import org.springframework.test.context.ActiveProfiles;
+import org.springframework.test.context.TestPropertySource;
+import reactor.core.publisher.Mono;
+
+import static org.junit.jupiter.api.Assertions.assertFalse;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+
+/**
+ * Runs {@code explain} on the queries behind the repository methods and fails when one of them
+ * would scan the whole collection instead of using an index.
+ */
+@DataMongoTest
+@TestPropertySource(properties = "spring.mongodb.embedded.version=5.0.6")
+@ActiveProfiles("test")
+class MovieInfoQueryPlanTest {
+
+    @Autowired
+    ReactiveMongoTemplate reactiveMongoTemplate;
+
+    @BeforeEach
+    void setUp() {
+        new MongoIndexInitializer(reactiveMongoTemplate).ensureIndexes().block();
+    }
+
+    @Test
+    void findByYear_usesIndex() {
+        assertUsesIndex(new Query(Criteria.where("year").is(2005)));
+    }
+
+    @Test
+    void findByName_usesIndex() {
+        assertUsesIndex(new Query(Criteria.where("name").is("Batman Begins")));
+    }
+
+    @Test
+    void findPageAfter_usesIndex() {
+        assertUsesIndex(new Query(Criteria.where("_id").gt("abc")).with(Sort.by("_id")).limit(11));
+    }
+
+    private void assertUsesIndex(Query query) {
+        var collectionName = reactiveMongoTemplate.getCollectionName(MovieInfo.class);
+        var explain = reactiveMongoTemplate.getCollection(collectionName)
+                .flatMap(collection -> Mono.from(collection.find(query.getQueryObject())
+                        .sort(query.getSortObject())
+                        .limit(query.getLimit())
+                        .explain()))
+                .block();
+        var winningPlan = explain.get("queryPlanner", Document.class).get("winningPlan", Document.class).toJson();
+        assertTrue(winningPlan.contains("IXSCAN"), () -> "no index used : " + winningPlan);
+        assertFalse(winningPlan.contains("COLLSCAN"), () -> "collection scan : " + winningPlan);
+    }
+}
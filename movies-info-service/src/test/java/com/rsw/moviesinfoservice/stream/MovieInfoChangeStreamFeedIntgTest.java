@@ -0,0 +1,142 @@
+package com.rsw.moviesinfoservice.stream;
+
+import com.rsw.moviesinfoservice.domain.MovieInfo;
+import com.rsw.moviesinfoservice.repository.MovieInfoRepository;
+import org.junit.jupiter.api.AfterEach;
+import org.junit.jupiter.api.Test;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.boot.test.autoconfigure.web.reactive.AutoConfigureWebTestClient;
+import org.springframework.boot.test.context.SpringBootTest;
+import org.springframework.core.ParameterizedTypeReference;
+import org.springframework.http.MediaType;
+import org.springframework.http.codec.ServerSentEvent;
+import org.springframework.test.context.ActiveProfiles;
+import org.springframework.test.context.TestPropertySource;
+import org.springframework.test.web.reactive.server.WebTestClient;
+import reactor.core.publisher.Flux;
+
+import java.time.Duration;
+import java.time.LocalDate;
+import java.util.List;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertNotNull;
+
+@SpringBootTest(webEnvironment = SpringBootTest.WebEnvironment.RANDOM_PORT)
+@ActiveProfiles("test")
+@AutoConfigureWebTestClient(timeout = "20s")
+@TestPropertySource(properties = {
+        "spring.mongodb.embedded.version=5.0.6",
+        "spring.mongodb.embedded.storage.repl-set-name=rs0",
+        "spring.mongodb.embedded.storage.oplog-size=10MB",
+        "movieInfos.stream.source=CHANGE_STREAM"})
+class MovieInfoChangeStreamFeedIntgTest {
+
+    static String MOVIES_INFO_URL = "/v1/movieInfos";
+
+    @Autowired
+    private WebTestClient webTestClient;
+
+    @Autowired
+    private MovieInfoRepository movieInfoRepository;
+
+    @AfterEach
+    void tearDown() {
+        movieInfoRepository.deleteAll().block();
+    }
+
+    @Test
+    void streamMovieInfoEvents_resumesAfterLastEventId() {
+        addMovieInfo("Batman Begins");
+
+        var first = events(null)
+                .filter(event -> "Batman Begins".equals(event.data().getName()))
+                .blockFirst(Duration.ofSeconds(20));
+        assertNotNull(first);
+        assertNotNull(first.id());
+
+        addMovieInfo("The Dark Knight");
+
+        var resumed = events(first.id())
+                .blockFirst(Duration.ofSeconds(20));
+        assertNotNull(resumed);
+        assertEquals("The Dark Knight", resumed.data().getName());
+    }
+
+    @Test
+    void streamMovieInfoEvents_malformedLastEventIdFollowsLiveEvents() {
+        addMovieInfo("Batman Begins");
+
+        var first = events("not-a-resume-token")
+                .filter(event -> "Batman Begins".equals(event.data().getName()))
+                .blockFirst(Duration.ofSeconds(20));
+        assertNotNull(first);
+        assertNotNull(first.id());
+    }
+
+    @Test
+    void streamMovieInfoEvents_publishesUpdatesAndDeletes() {
+        var movieInfoId = addMovieInfo("Batman Begins").getMovieInfoId();
+
+        var inserted = events(null)
+                .filter(event -> movieInfoId.equals(event.data().getMovieInfoId()))
+                .blockFirst(Duration.ofSeconds(20));
+        assertNotNull(inserted);
+        assertEquals("insert", inserted.event());
+
+        webTestClient
+                .put()
+                .uri(MOVIES_INFO_URL + "/{id}", movieInfoId)
+                .bodyValue(new MovieInfo(null, "Batman Begins 2", 2005, List.of("Christian Bale"), LocalDate.parse("2005-06-15")))
+                .exchange()
+                .expectStatus()
+                .isOk();
+        webTestClient
+                .delete()
+                .uri(MOVIES_INFO_URL + "/{id}", movieInfoId)
+                .exchange()
+                .expectStatus()
+                .isNoContent();
+
+        var changes = events(inserted.id())
+                .take(2)
+                .collectList()
+                .block(Duration.ofSeconds(20));
+        assertNotNull(changes);
+        assertEquals("update", changes.get(0).event());
+        assertEquals("Batman Begins 2", changes.get(0).data().getName());
+        assertEquals("delete", changes.get(1).event());
+        assertEquals(movieInfoId, changes.get(1).data().getMovieInfoId());
+    }
+
+    private MovieInfo addMovieInfo(String name) {
+        return webTestClient
+                .post()
+                .uri(MOVIES_INFO_URL)
+                .bodyValue(new MovieInfo(null, name, 2005, List.of("Christian Bale"), LocalDate.parse("2005-06-15")))
+                .exchange()
+                .expectStatus()
+                .isCreated()
+                .expectBody(MovieInfo.class)
+                .returnResult()
+                .getResponseBody();
+    }
+
+    private Flux<ServerSentEvent<MovieInfo>> events(String lastEventId) {
+        return webTestClient
+                .get()
+                .uri(MOVIES_INFO_URL + "/events")
+                .accept(MediaType.TEXT_EVENT_STREAM)
+                .headers(headers -> {
+                    if (lastEventId != null) {
+                        headers.set("Last-Event-ID", lastEventId);
+                    }
+                })
+                .exchange()
+                .expectStatus()
+                .isOk()
+                .returnResult(new ParameterizedTypeReference<ServerSentEvent<MovieInfo>>() {
+                })
+                .getResponseBody();
+    }
+}
@@ -0,0 +1,13 @@
+package com.rsw.moviesreviewservice.domain;
+
+import lombok.AllArgsConstructor;
+import lombok.Data;
+import lombok.NoArgsConstructor;
+
+@Data
+@NoArgsConstructor
+@AllArgsConstructor
+public class BulkDeleteResult {
+
+    private long deletedCount;
+}
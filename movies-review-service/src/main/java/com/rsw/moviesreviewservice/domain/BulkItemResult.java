@@ -0,0 +1,25 @@
+package com.rsw.moviesreviewservice.domain;
+
+import lombok.AllArgsConstructor;
+import lombok.Data;
+import lombok.NoArgsConstructor;
+
+@Data
+@NoArgsConstructor
+@AllArgsConstructor
+public class BulkItemResult {
+
+    // position of the item in the request body
+    private long index;
+    private String id;
+    private boolean inserted;
+    private String error;
+
+    public static BulkItemResult inserted(long index, String id) {
+        return new BulkItemResult(index, id, true, null);
+    }
+
+    public static BulkItemResult failed(long index, String error) {
+        return new BulkItemResult(index, null, false, error);
+    }
+}
@@ -0,0 +1,31 @@
+package com.rsw.moviesreviewservice.domain;
+
+import lombok.AllArgsConstructor;
+import lombok.Data;
+import lombok.NoArgsConstructor;
+import org.springframework.data.annotation.Id;
+import org.springframework.data.mongodb.core.mapping.Document;
+
+import java.time.Instant;
+import java.util.Map;
+
+/**
+ * Rating totals of one movie, kept up to date by every review write so a summary is a single
+ * document read.
+ */
+@Data
+@NoArgsConstructor
+@AllArgsConstructor
+@Document
+public class ReviewRatingAggregate {
+
+    @Id
+    private Long movieInfoId;
+    private long count;
+    private double sum;
+    private Double minRating;
+    private Double maxRating;
+    // floor(rating) -> number of ratings, the keys are strings because they are field names
+    private Map<String, Long> histogram;
+    private Instant updatedAt;
+}
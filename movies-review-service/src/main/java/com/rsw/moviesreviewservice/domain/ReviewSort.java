@@ -0,0 +1,19 @@
+package com.rsw.moviesreviewservice.domain;
+
+import org.springframework.data.domain.Sort;
+
+public enum ReviewSort {
+
+    RATING_DESC(Sort.by(Sort.Direction.DESC, "rating")),
+    RATING_ASC(Sort.by(Sort.Direction.ASC, "rating"));
+
+    private final Sort sort;
+
+    ReviewSort(Sort sort) {
+        this.sort = sort;
+    }
+
+    public Sort toSort() {
+        return sort;
+    }
+}
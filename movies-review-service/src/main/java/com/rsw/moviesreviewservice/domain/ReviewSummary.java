@@ -0,0 +1,27 @@
+package com.rsw.moviesreviewservice.domain;
+
+import lombok.AllArgsConstructor;
+import lombok.Data;
+import lombok.NoArgsConstructor;
+
+import java.util.Map;
+import java.util.TreeMap;
+
+@Data
+@NoArgsConstructor
+@AllArgsConstructor
+public class ReviewSummary {
+
+    private Long movieInfoId;
+    // reviews with a rating, reviews without one are not summarized
+    private long count;
+    private Double averageRating;
+    private Double minRating;
+    private Double maxRating;
+    // number of ratings per bucket, a rating falls in the bucket of its floor (7.5 -> 7)
+    private Map<Integer, Long> histogram;
+
+    public static ReviewSummary empty(Long movieInfoId) {
+        return new ReviewSummary(movieInfoId, 0, null, null, null, new TreeMap<>());
+    }
+}
@@ -0,0 +1,10 @@
+package com.rsw.moviesreviewservice.exception;
+
+public class ReviewWriteRejectedException extends RuntimeException {
+    private String message;
+
+    public ReviewWriteRejectedException(String s) {
+        super(s);
+        this.message = s;
+    }
+}
@@ -2,9 +2,12 @@ package com.rsw.moviesreviewservice.exceptionhandler;
 
 import com.rsw.moviesreviewservice.exception.ReviewDataException;
 import com.rsw.moviesreviewservice.exception.ReviewNotFoundException;
+import com.rsw.moviesreviewservice.exception.ReviewWriteRejectedException;
 import lombok.extern.slf4j.Slf4j;
 import org.springframework.boot.web.reactive.error.ErrorWebExceptionHandler;
 import org.springframework.core.io.buffer.DataBufferFactory;
+import org.springframework.dao.DataIntegrityViolationException;
+import org.springframework.dao.OptimisticLockingFailureException;
 import org.springframework.http.HttpStatus;
 import org.springframework.stereotype.Component;
 import org.springframework.web.server.ServerWebExchange;
@@ -32,6 +35,17 @@ public class GlobalErrorHandler implements ErrorWebExceptionHandler {
             return exchange.getResponse().writeWith(Mono.just(errorMessage));
         }
 
+        if(ex instanceof ReviewWriteRejectedException){
+            exchange.getResponse().setStatusCode(HttpStatus.SERVICE_UNAVAILABLE);
+            return exchange.getResponse().writeWith(Mono.just(errorMessage));
+        }
+
+        // a review id that already exists, or another document rejected by the write-behind batch
+        if(ex instanceof OptimisticLockingFailureException || ex instanceof DataIntegrityViolationException){
+            exchange.getResponse().setStatusCode(HttpStatus.CONFLICT);
+            return exchange.getResponse().writeWith(Mono.just(errorMessage));
+        }
+
         exchange.getResponse().setStatusCode(HttpStatus.INTERNAL_SERVER_ERROR);
         return exchange.getResponse().writeWith(Mono.just(errorMessage));
     }
@@ -1,67 +1,204 @@
 package com.rsw.moviesreviewservice.handler;
 
+import com.rsw.moviesreviewservice.domain.BulkDeleteResult;
+import com.rsw.moviesreviewservice.domain.BulkItemResult;
 import com.rsw.moviesreviewservice.domain.Review;
+import com.rsw.moviesreviewservice.domain.ReviewSort;
+import com.rsw.moviesreviewservice.domain.ReviewSummary;
 import com.rsw.moviesreviewservice.exception.ReviewDataException;
 import com.rsw.moviesreviewservice.exception.ReviewNotFoundException;
 import com.rsw.moviesreviewservice.repository.ReviewReactiveRepository;
+import com.rsw.moviesreviewservice.service.ReviewAggregateService;
+import com.rsw.moviesreviewservice.service.ReviewWriteBatcher;
+import com.rsw.moviesreviewservice.stream.ReviewChangeStreamFeed;
+import com.rsw.stream.Broadcaster;
+import com.rsw.stream.StreamEvent;
+import com.rsw.stream.StreamSource;
 import lombok.extern.slf4j.Slf4j;
+import org.springframework.beans.factory.ObjectProvider;
 import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.dao.OptimisticLockingFailureException;
 import org.springframework.http.HttpStatus;
 import org.springframework.http.MediaType;
+import org.springframework.http.codec.ServerSentEvent;
 import org.springframework.stereotype.Component;
 import org.springframework.web.reactive.function.server.ServerRequest;
 import org.springframework.web.reactive.function.server.ServerResponse;
 import reactor.core.publisher.Flux;
 import reactor.core.publisher.Mono;
-import reactor.core.publisher.Sinks;
+import reactor.util.function.Tuple2;
 
 import javax.validation.ConstraintViolation;
 import javax.validation.Validator;
+import java.nio.charset.StandardCharsets;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Base64;
+import java.util.Comparator;
+import java.util.LinkedHashMap;
+import java.util.LinkedHashSet;
+import java.util.List;
+import java.util.Map;
+import java.util.function.LongFunction;
 import java.util.stream.Collectors;
 
 @Slf4j
 @Component
 public class ReviewHandler {
 
+    static final String NEXT_CURSOR_HEADER = "X-Next-Cursor";
+    static final int MAX_PAGE_LIMIT = 1000;
+
     @Autowired
     private Validator validator;
 
-    Sinks.Many<Review> reviewsSink = Sinks.many().replay().latest();
+    @Value("${reviews.bulk.batchSize:500}")
+    private int bulkBatchSize;
+
+    @Value("${reviews.bulk.concurrency:2}")
+    private int bulkConcurrency;
 
     private ReviewReactiveRepository reviewReactiveRepository;
+    private ReviewAggregateService reviewAggregateService;
+    private Broadcaster<StreamEvent<Review>> reviewBroadcaster;
+    private StreamSource streamSource;
+    private ObjectProvider<ReviewChangeStreamFeed> changeStreamFeed;
+    private ReviewWriteBatcher reviewWriteBatcher;
 
-    public ReviewHandler(ReviewReactiveRepository reviewReactiveRepository) {
+    public ReviewHandler(ReviewReactiveRepository reviewReactiveRepository, ReviewAggregateService reviewAggregateService,
+                         Broadcaster<StreamEvent<Review>> reviewBroadcaster,
+                         @Value("${reviews.stream.source:LOCAL}") StreamSource streamSource,
+                         ObjectProvider<ReviewChangeStreamFeed> changeStreamFeed,
+                         ObjectProvider<ReviewWriteBatcher> reviewWriteBatcher) {
         this.reviewReactiveRepository = reviewReactiveRepository;
+        this.reviewAggregateService = reviewAggregateService;
+        this.reviewBroadcaster = reviewBroadcaster;
+        this.streamSource = streamSource;
+        this.changeStreamFeed = changeStreamFeed;
+        this.reviewWriteBatcher = reviewWriteBatcher.getIfAvailable();
     }
 
     public Mono<ServerResponse> addReview(ServerRequest request) {
 
         return request.bodyToMono(Review.class)
                 .doOnNext(this::validate)
-                .flatMap(reviewReactiveRepository::save)
+                .flatMap(this::saveReview)
                 .doOnNext(review -> {
-                    reviewsSink.tryEmitNext(review);
+                    // with a change stream the saved review reaches the broadcaster through the feed
+                    if (streamSource == StreamSource.LOCAL) {
+                        reviewBroadcaster.emit(streamEvent(review));
+                    }
                 })
                 .flatMap(ServerResponse.status(HttpStatus.CREATED)::bodyValue);
     }
 
-    private void validate(Review review) {
-        var constrainViolations = validator.validate(review);
-        log.info("constraintViolations: {}", constrainViolations);
-        if (constrainViolations.size() > 0) {
-            var errorMessage = constrainViolations
-                    .stream()
-                    .map(ConstraintViolation::getMessage)
-                    .sorted()
-                    .collect(Collectors.joining(","));
+    // the write-behind batcher updates the aggregates of a whole batch itself
+    private Mono<Review> saveReview(Review review) {
+        if (reviewWriteBatcher != null) {
+            return reviewWriteBatcher.save(review);
+        }
+        return reviewReactiveRepository.save(review)
+                .flatMap(savedReview -> reviewAggregateService.onReviewAdded(savedReview).thenReturn(savedReview));
+    }
+
+    /**
+     * Bulk insert of a JSON array or NDJSON body, {@code bulkBatchSize} reviews per unordered
+     * {@code insertMany} and up to {@code bulkConcurrency} batches in flight. The body is decoded one
+     * review at a time and read only as fast as the batches are written, so memory stays bounded by
+     * the batches in flight whatever the upload size. Answers one NDJSON result per review; the
+     * aggregates are updated and the stream published once per batch.
+     */
+    public Mono<ServerResponse> addReviews(ServerRequest request) {
+        var results = request.bodyToFlux(Review.class)
+                .index()
+                .buffer(bulkBatchSize)
+                .flatMapSequential(this::insertBatch, bulkConcurrency);
+        return ServerResponse.ok()
+                .contentType(MediaType.APPLICATION_NDJSON)
+                .body(results, BulkItemResult.class);
+    }
+
+    private Flux<BulkItemResult> insertBatch(List<Tuple2<Long, Review>> batch) {
+        var results = new ArrayList<BulkItemResult>(batch.size());
+        var valid = new ArrayList<Tuple2<Long, Review>>(batch.size());
+        batch.forEach(item -> {
+            var violations = violations(item.getT2());
+            if (violations != null) {
+                results.add(BulkItemResult.failed(item.getT1(), violations));
+            } else {
+                valid.add(item);
+            }
+        });
+        if (valid.isEmpty()) {
+            return Flux.fromIterable(results);
+        }
+        var reviews = valid.stream()
+                .map(Tuple2::getT2)
+                .collect(Collectors.toList());
+        return reviewReactiveRepository.insertUnordered(reviews)
+                .flatMapMany(failures -> {
+                    var inserted = new ArrayList<Review>(reviews.size());
+                    for (int i = 0; i < valid.size(); i++) {
+                        var index = valid.get(i).getT1();
+                        var failure = failures.get(i);
+                        if (failure != null) {
+                            results.add(BulkItemResult.failed(index, failure));
+                        } else {
+                            results.add(BulkItemResult.inserted(index, reviews.get(i).getReviewId()));
+                            inserted.add(reviews.get(i));
+                        }
+                    }
+                    results.sort(Comparator.comparingLong(BulkItemResult::getIndex));
+                    return reviewAggregateService.onReviewsAdded(inserted)
+                            .then(Mono.fromRunnable(() -> {
+                                if (streamSource == StreamSource.LOCAL) {
+                                    reviewBroadcaster.emitAll(inserted.stream()
+                                            .map(this::streamEvent)
+                                            .collect(Collectors.toList()));
+                                }
+                            }))
+                            .thenMany(Flux.fromIterable(results));
+                });
+    }
+
+    private LongFunction<StreamEvent<Review>> streamEvent(Review review) {
+        return sequence -> new StreamEvent<>(reviewBroadcaster.eventId(sequence), review);
+    }
+
+    void validate(Review review) {
+        var errorMessage = violations(review);
+        if (errorMessage != null) {
+            log.info("constraintViolations: {}", errorMessage);
             throw new ReviewDataException(errorMessage);
         }
+    }
 
+    private String violations(Review review) {
+        var constrainViolations = validator.validate(review);
+        if (constrainViolations.isEmpty()) {
+            return null;
+        }
+        return constrainViolations
+                .stream()
+                .map(ConstraintViolation::getMessage)
+                .sorted()
+                .collect(Collectors.joining(","));
     }
 
     public Mono<ServerResponse> getReviews(ServerRequest request) {
 
         var movieInfoId = request.queryParam("movieInfoId");
+        var limit = request.queryParam("limit");
+        var sort = request.queryParam("sort");
+        if (sort.isPresent()) {
+            return getTopReviews(movieInfoId.map(Long::valueOf).orElse(null), sort.get(), limit.orElse(null),
+                    request.queryParam("cursor").isPresent());
+        }
+        if (limit.isPresent()) {
+            return getReviewPage(movieInfoId.map(Long::valueOf).orElse(null), limit.get(),
+                    request.queryParam("cursor").orElse(null));
+        }
         if (movieInfoId.isPresent()) {
             var reviewsFlux = reviewReactiveRepository.findByMovieInfoId(Long.valueOf(movieInfoId.get()));
             return buildReviewResponse(reviewsFlux);
@@ -71,42 +208,246 @@ public class ReviewHandler {
         }
     }
 
+    /**
+     * Keyset pagination over {@code _id}: reads one extra review to tell whether there is a next page
+     * and returns the token of the next page in the {@code X-Next-Cursor} header.
+     */
+    private Mono<ServerResponse> getReviewPage(Long movieInfoId, String limitParam, String cursor) {
+        return Mono.defer(() -> {
+            var limit = parseLimit(limitParam);
+            var afterId = cursor == null ? null : decodeCursor(cursor);
+            return reviewReactiveRepository.findPageAfter(movieInfoId, afterId, limit + 1)
+                    .collectList()
+                    .flatMap(reviews -> {
+                        if (reviews.size() <= limit) {
+                            return ServerResponse.ok().bodyValue(reviews);
+                        }
+                        var page = reviews.subList(0, limit);
+                        return ServerResponse.ok()
+                                .header(NEXT_CURSOR_HEADER, encodeCursor(page.get(limit - 1).getReviewId()))
+                                .bodyValue(page);
+                    });
+        });
+    }
+
+    /**
+     * Sorted and limited in the database, so callers that only need the best or worst reviews do not
+     * stream all of them. There is no next page in this order. A movieInfoId is required, without it
+     * the sort could not use an index.
+     */
+    private Mono<ServerResponse> getTopReviews(Long movieInfoId, String sortParam, String limitParam, boolean hasCursor) {
+        return Mono.defer(() -> {
+            if (limitParam == null || hasCursor) {
+                throw new ReviewDataException("sort requires a limit and does not support a cursor");
+            }
+            if (movieInfoId == null) {
+                throw new ReviewDataException("sort requires a movieInfoId");
+            }
+            var limit = parseLimit(limitParam);
+            var sort = parseSort(sortParam);
+            return buildReviewResponse(reviewReactiveRepository.findTop(movieInfoId, sort, limit));
+        });
+    }
+
+    private static ReviewSort parseSort(String sortParam) {
+        try {
+            return ReviewSort.valueOf(sortParam.toUpperCase());
+        } catch (IllegalArgumentException ex) {
+            throw new ReviewDataException("sort must be one of RATING_DESC, RATING_ASC");
+        }
+    }
+
+    private static int parseLimit(String limitParam) {
+        try {
+            var limit = Integer.parseInt(limitParam);
+            if (limit >= 1 && limit <= MAX_PAGE_LIMIT) {
+                return limit;
+            }
+        } catch (NumberFormatException ex) {
+            // reported below
+        }
+        throw new ReviewDataException("limit must be between 1 and " + MAX_PAGE_LIMIT);
+    }
+
+    static String encodeCursor(String reviewId) {
+        return Base64.getUrlEncoder().withoutPadding().encodeToString(reviewId.getBytes(StandardCharsets.UTF_8));
+    }
+
+    static String decodeCursor(String cursor) {
+        try {
+            return new String(Base64.getUrlDecoder().decode(cursor), StandardCharsets.UTF_8);
+        } catch (IllegalArgumentException ex) {
+            throw new ReviewDataException("cursor is not valid : " + cursor);
+        }
+    }
+
+    /**
+     * Looks up the reviews of many movies with a single {@code $in} query. The body is a JSON array
+     * of movieInfoIds and the response maps every requested id to its reviews, empty when it has none.
+     */
+    public Mono<ServerResponse> getReviewsByMovieInfoIds(ServerRequest request) {
+        var reviewsByMovieInfoId = request.bodyToFlux(Long.class)
+                .collect(LinkedHashSet<Long>::new, LinkedHashSet::add)
+                .flatMap(movieInfoIds -> {
+                    var grouped = new LinkedHashMap<Long, List<Review>>();
+                    movieInfoIds.forEach(movieInfoId -> grouped.put(movieInfoId, new ArrayList<>()));
+                    if (movieInfoIds.isEmpty()) {
+                        return Mono.just(grouped);
+                    }
+                    return reviewReactiveRepository.findByMovieInfoIdIn(movieInfoIds)
+                            .doOnNext(review -> grouped.get(review.getMovieInfoId()).add(review))
+                            .then(Mono.just(grouped));
+                });
+
+        return ServerResponse.ok().body(reviewsByMovieInfoId, Map.class);
+    }
+
+    /**
+     * Rating summary of one movie, read from its maintained aggregate instead of streaming every review.
+     */
+    public Mono<ServerResponse> getReviewSummary(ServerRequest request) {
+        var movieInfoId = request.queryParam("movieInfoId")
+                .map(Long::valueOf);
+        if (movieInfoId.isEmpty()) {
+            return Mono.error(new ReviewDataException("movieInfoId must be present"));
+        }
+        var summary = reviewAggregateService.getSummary(movieInfoId.get());
+        return ServerResponse.ok().body(summary, ReviewSummary.class);
+    }
+
+    /**
+     * Rating summaries of many movies with one aggregate lookup. The body is a JSON array of movieInfoIds
+     * and the response maps every requested id to its summary, empty when it has no rated review.
+     */
+    public Mono<ServerResponse> getReviewSummaries(ServerRequest request) {
+        var summariesByMovieInfoId = request.bodyToFlux(Long.class)
+                .collect(LinkedHashSet<Long>::new, LinkedHashSet::add)
+                .flatMap(movieInfoIds -> {
+                    var summaries = new LinkedHashMap<Long, ReviewSummary>();
+                    movieInfoIds.forEach(movieInfoId -> summaries.put(movieInfoId, ReviewSummary.empty(movieInfoId)));
+                    if (movieInfoIds.isEmpty()) {
+                        return Mono.just(summaries);
+                    }
+                    return reviewAggregateService.getSummaries(movieInfoIds)
+                            .doOnNext(summary -> summaries.put(summary.getMovieInfoId(), summary))
+                            .then(Mono.just(summaries));
+                });
+
+        return ServerResponse.ok().body(summariesByMovieInfoId, Map.class);
+    }
+
     private static Mono<ServerResponse> buildReviewResponse(Flux<Review> reviewsFlux) {
         return ServerResponse.ok().body(reviewsFlux, Review.class);
     }
 
+    /**
+     * Partial update in a single round trip: the non-null comment and rating of the body are set and
+     * the previous review comes back for the aggregates. A body carrying a stale version gets a 409.
+     */
     public Mono<ServerResponse> updateReview(ServerRequest request) {
         var reviewId = request.pathVariable("id");
-        var existingReview = reviewReactiveRepository.findById(reviewId)
-                .switchIfEmpty(Mono.error(new ReviewNotFoundException("Review not found for the given Review id " + reviewId)));
 
-        return existingReview
-                .flatMap(review -> request.bodyToMono(Review.class)
-                        .map(reqReview -> {
-                            review.setComment(reqReview.getComment());
-                            review.setRating(reqReview.getRating());
-                            return review;
-                        })
-                        .flatMap(reviewReactiveRepository::save)
-                        .flatMap(savedReview -> ServerResponse.ok().bodyValue(savedReview)));
-        //.switchIfEmpty(ServerResponse.notFound().build());
+        return request.bodyToMono(Review.class)
+                .flatMap(changes -> reviewReactiveRepository.updateFields(reviewId, changes)
+                        .switchIfEmpty(Mono.defer(() -> notUpdated(reviewId, changes)))
+                        .flatMap(previous -> {
+                            var updated = new Review(previous.getReviewId(), previous.getMovieInfoId(),
+                                    changes.getComment() != null ? changes.getComment() : previous.getComment(),
+                                    changes.getRating() != null ? changes.getRating() : previous.getRating(),
+                                    previous.getVersion() == null ? 1L : previous.getVersion() + 1);
+                            return reviewAggregateService.onReviewUpdated(previous, updated).thenReturn(updated);
+                        }))
+                .flatMap(updatedReview -> ServerResponse.ok().bodyValue(updatedReview));
+    }
+
+    // only a versioned update needs the extra lookup to tell a missing review from a stale version
+    private Mono<Review> notUpdated(String reviewId, Review changes) {
+        if (changes.getVersion() == null) {
+            return Mono.error(new ReviewNotFoundException("Review not found for the given Review id " + reviewId));
+        }
+        return reviewReactiveRepository.existsById(reviewId)
+                .flatMap(exists -> Mono.error(exists
+                        ? new OptimisticLockingFailureException("Review " + reviewId + " is no longer at version " + changes.getVersion())
+                        : new ReviewNotFoundException("Review not found for the given Review id " + reviewId)));
     }
 
     public Mono<ServerResponse> deleteReview(ServerRequest request) {
         var reviewId = request.pathVariable("id");
-        var existingReview = reviewReactiveRepository.findById(reviewId);
 
-        return existingReview
-                .flatMap(review -> reviewReactiveRepository.deleteById(reviewId)
+        return reviewReactiveRepository.removeById(reviewId)
+                .switchIfEmpty(Mono.error(new ReviewNotFoundException("Review not found for the given Review id " + reviewId)))
+                .flatMap(review -> reviewAggregateService.onReviewRemoved(review)
                         .then(ServerResponse.noContent().build()));
+    }
+
+    /**
+     * Cleanup delete of the reviews listed in {@code ids}, or of all the reviews of
+     * {@code movieInfoId}, answered with the number deleted. The aggregates of the affected movies
+     * are recomputed once afterwards.
+     */
+    public Mono<ServerResponse> deleteReviews(ServerRequest request) {
+        var movieInfoId = request.queryParam("movieInfoId");
+        var ids = request.queryParams().getOrDefault("ids", List.of()).stream()
+                .flatMap(id -> Arrays.stream(id.split(",")))
+                .filter(id -> !id.isBlank())
+                .collect(Collectors.toCollection(LinkedHashSet::new));
+        if (movieInfoId.isPresent() == !ids.isEmpty()) {
+            return Mono.error(new ReviewDataException("exactly one of movieInfoId and ids must be passed"));
+        }
+        Mono<Long> deletedCount = movieInfoId
+                .map(id -> Mono.defer(() -> {
+                    var movieId = parseMovieInfoId(id);
+                    return reviewReactiveRepository.removeByMovieInfoId(movieId)
+                            .flatMap(count -> reviewAggregateService.refreshAggregates(List.of(movieId)).thenReturn(count));
+                }))
+                .orElseGet(() -> reviewReactiveRepository.removeByIds(ids)
+                        .collectList()
+                        .flatMap(reviews -> reviewAggregateService.refreshAggregates(reviews.stream()
+                                        .map(Review::getMovieInfoId)
+                                        .collect(Collectors.toSet()))
+                                .thenReturn((long) reviews.size())));
+        return deletedCount
+                .flatMap(count -> ServerResponse.ok().bodyValue(new BulkDeleteResult(count)));
+    }
 
+    private static Long parseMovieInfoId(String movieInfoId) {
+        try {
+            return Long.valueOf(movieInfoId);
+        } catch (NumberFormatException ex) {
+            throw new ReviewDataException("movieInfoId is not valid : " + movieInfoId);
+        }
     }
 
     public Mono<ServerResponse> getReviewsStream(ServerRequest request) {
         return ServerResponse.ok()
                 .contentType(MediaType.APPLICATION_NDJSON)
-                .body(reviewsSink.asFlux(), Review.class)
+                .body(reviewBroadcaster.asFlux().map(StreamEvent::getData), Review.class)
                 .log();
 
     }
+
+    /**
+     * Server-sent events carrying the stream id of each review; a client reconnecting with
+     * {@code Last-Event-ID} continues after the last review it received.
+     */
+    public Mono<ServerResponse> getReviewEvents(ServerRequest request) {
+        var events = resume(request.headers().firstHeader("Last-Event-ID"));
+        return ServerResponse.ok()
+                .contentType(MediaType.TEXT_EVENT_STREAM)
+                .body(events.map(event -> ServerSentEvent.builder(event.getData())
+                        .id(event.getId())
+                        .build()), ServerSentEvent.class);
+    }
+
+    // change stream ids are resume tokens resumed by the feed, local ids are instance-prefixed sequence numbers of the broadcaster history
+    private Flux<StreamEvent<Review>> resume(String lastEventId) {
+        if (lastEventId == null) {
+            return reviewBroadcaster.asFlux();
+        }
+        var feed = changeStreamFeed.getIfAvailable();
+        if (feed != null) {
+            return feed.resume(lastEventId);
+        }
+        return reviewBroadcaster.asFlux(lastEventId);
+    }
 }
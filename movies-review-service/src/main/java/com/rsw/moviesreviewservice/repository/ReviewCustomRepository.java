@@ -0,0 +1,69 @@
+package com.rsw.moviesreviewservice.repository;
+
+import com.rsw.moviesreviewservice.domain.Review;
+import com.rsw.moviesreviewservice.domain.ReviewSort;
+import com.rsw.moviesreviewservice.domain.ReviewSummary;
+import reactor.core.publisher.Flux;
+import reactor.core.publisher.Mono;
+
+import java.util.Collection;
+import java.util.List;
+import java.util.Map;
+
+public interface ReviewCustomRepository {
+
+    /**
+     * Returns up to {@code limit} reviews in {@code _id} order, starting right after {@code afterId}
+     * (from the beginning when it is null), optionally restricted to one movieInfoId.
+     */
+    Flux<Review> findPageAfter(Long movieInfoId, String afterId, int limit);
+
+    /**
+     * Returns the first {@code limit} rated reviews of one movieInfoId in {@code sort} order; the
+     * (movieInfoId, rating) index serves both filter and order. Unrated reviews are left out.
+     */
+    Flux<Review> findTop(Long movieInfoId, ReviewSort sort, int limit);
+
+    /**
+     * Summarizes the ratings of each movie in a single aggregation. Movies without rated reviews
+     * are not emitted.
+     */
+    Flux<ReviewSummary> summarizeByMovieInfoIds(Collection<Long> movieInfoIds);
+
+    /**
+     * Summarizes the ratings of every movie, streamed one summary at a time.
+     */
+    Flux<ReviewSummary> summarizeAll();
+
+    /**
+     * Inserts all the reviews with one unordered {@code insertMany}, so a failing document does not
+     * stop the others. The generated ids are set on the inserted reviews; the failures are returned
+     * as error messages keyed by position in {@code reviews}.
+     */
+    Mono<Map<Integer, String>> insertUnordered(List<Review> reviews);
+
+    /**
+     * Sets the non-null comment and rating of {@code changes} on the review and bumps its version in
+     * one {@code findAndModify}. Returns the review as it was before, which the rating aggregates
+     * need; when {@code changes} carries a version only that version is updated. Empty when no
+     * document matched.
+     */
+    Mono<Review> updateFields(String reviewId, Review changes);
+
+    /**
+     * Deletes the review with a single {@code findAndRemove} and returns it; empty when there was
+     * none.
+     */
+    Mono<Review> removeById(String reviewId);
+
+    /**
+     * Deletes the reviews and returns them, which the rating aggregates need. Reads the reviews and
+     * removes them with one {@code deleteMany}, whatever the number of ids.
+     */
+    Flux<Review> removeByIds(Collection<String> reviewIds);
+
+    /**
+     * Deletes all the reviews of a movie with one {@code deleteMany}; returns how many there were.
+     */
+    Mono<Long> removeByMovieInfoId(Long movieInfoId);
+}
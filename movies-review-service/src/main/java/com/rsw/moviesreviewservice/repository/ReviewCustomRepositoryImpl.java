@@ -0,0 +1,194 @@
+package com.rsw.moviesreviewservice.repository;
+
+import com.mongodb.MongoBulkWriteException;
+import com.mongodb.bulk.BulkWriteError;
+import com.mongodb.client.model.InsertManyOptions;
+import com.mongodb.client.result.DeleteResult;
+import com.rsw.moviesreviewservice.domain.Review;
+import com.rsw.moviesreviewservice.domain.ReviewSort;
+import com.rsw.moviesreviewservice.domain.ReviewSummary;
+import org.bson.Document;
+import org.bson.types.ObjectId;
+import org.springframework.data.domain.Sort;
+import org.springframework.data.mongodb.core.FindAndModifyOptions;
+import org.springframework.data.mongodb.core.ReactiveMongoTemplate;
+import org.springframework.data.mongodb.core.aggregation.Aggregation;
+import org.springframework.data.mongodb.core.aggregation.AggregationOperation;
+import org.springframework.data.mongodb.core.query.Criteria;
+import org.springframework.data.mongodb.core.query.Query;
+import org.springframework.data.mongodb.core.query.Update;
+import org.springframework.data.mongodb.core.schema.JsonSchemaObject;
+import reactor.core.publisher.Flux;
+import reactor.core.publisher.Mono;
+
+import java.util.Collection;
+import java.util.List;
+import java.util.Map;
+import java.util.TreeMap;
+import java.util.stream.Collectors;
+
+public class ReviewCustomRepositoryImpl implements ReviewCustomRepository {
+
+    private ReactiveMongoTemplate reactiveMongoTemplate;
+
+    public ReviewCustomRepositoryImpl(ReactiveMongoTemplate reactiveMongoTemplate) {
+        this.reactiveMongoTemplate = reactiveMongoTemplate;
+    }
+
+    @Override
+    public Flux<Review> findPageAfter(Long movieInfoId, String afterId, int limit) {
+        var query = new Query()
+                .with(Sort.by(Sort.Direction.ASC, "_id"))
+                .limit(limit);
+        if (movieInfoId != null) {
+            query.addCriteria(Criteria.where("movieInfoId").is(movieInfoId));
+        }
+        if (afterId != null) {
+            query.addCriteria(afterId(afterId));
+        }
+        return reactiveMongoTemplate.find(query, Review.class);
+    }
+
+    @Override
+    public Flux<Review> findTop(Long movieInfoId, ReviewSort sort, int limit) {
+        // unrated reviews would sort first in ascending order, callers rank them last
+        var query = new Query(Criteria.where("movieInfoId").is(movieInfoId).and("rating").ne(null))
+                .with(sort.toSort())
+                .limit(limit);
+        return reactiveMongoTemplate.find(query, Review.class);
+    }
+
+    @Override
+    public Flux<ReviewSummary> summarizeByMovieInfoIds(Collection<Long> movieInfoIds) {
+        return summarize(Criteria.where("movieInfoId").in(movieInfoIds).and("rating").ne(null));
+    }
+
+    @Override
+    public Flux<ReviewSummary> summarizeAll() {
+        return summarize(Criteria.where("rating").ne(null));
+    }
+
+    @Override
+    public Mono<Map<Integer, String>> insertUnordered(List<Review> reviews) {
+        var documents = reviews.stream()
+                .map(review -> {
+                    // what the template would initialize on insert
+                    if (review.getVersion() == null) {
+                        review.setVersion(0L);
+                    }
+                    var document = new Document();
+                    reactiveMongoTemplate.getConverter().write(review, document);
+                    return document;
+                })
+                .collect(Collectors.toList());
+        return reactiveMongoTemplate.getCollection(reactiveMongoTemplate.getCollectionName(Review.class))
+                .flatMap(collection -> Mono.from(collection.insertMany(documents, new InsertManyOptions().ordered(false))))
+                .map(result -> Map.<Integer, String>of())
+                .onErrorResume(MongoBulkWriteException.class, ex -> Mono.just(ex.getWriteErrors().stream()
+                        .collect(Collectors.toMap(BulkWriteError::getIndex, BulkWriteError::getMessage))))
+                .doOnNext(failures -> {
+                    // the driver adds the generated _id to each document it inserts
+                    for (int i = 0; i < documents.size(); i++) {
+                        if (!failures.containsKey(i)) {
+                            var id = documents.get(i).get("_id");
+                            reviews.get(i).setReviewId(id instanceof ObjectId ? ((ObjectId) id).toHexString() : String.valueOf(id));
+                        }
+                    }
+                });
+    }
+
+    @Override
+    public Mono<Review> updateFields(String reviewId, Review changes) {
+        var query = new Query(Criteria.where("_id").is(reviewId));
+        if (changes.getVersion() != null) {
+            query.addCriteria(versionIs(changes.getVersion()));
+        }
+        var update = new Update().inc("version", 1);
+        if (changes.getComment() != null) {
+            update.set("comment", changes.getComment());
+        }
+        if (changes.getRating() != null) {
+            update.set("rating", changes.getRating());
+        }
+        return reactiveMongoTemplate.findAndModify(query, update, FindAndModifyOptions.options().returnNew(false), Review.class);
+    }
+
+    @Override
+    public Mono<Review> removeById(String reviewId) {
+        return reactiveMongoTemplate.findAndRemove(new Query(Criteria.where("_id").is(reviewId)), Review.class);
+    }
+
+    @Override
+    public Flux<Review> removeByIds(Collection<String> reviewIds) {
+        return reactiveMongoTemplate.findAllAndRemove(new Query(Criteria.where("_id").in(reviewIds)), Review.class);
+    }
+
+    @Override
+    public Mono<Long> removeByMovieInfoId(Long movieInfoId) {
+        return reactiveMongoTemplate.remove(new Query(Criteria.where("movieInfoId").is(movieInfoId)), Review.class)
+                .map(DeleteResult::getDeletedCount);
+    }
+
+    /**
+     * Groups by (movieInfoId, floor(rating)) first so the histogram comes out of the same pass, then
+     * folds the buckets into one document per movie.
+     */
+    private Flux<ReviewSummary> summarize(Criteria criteria) {
+        var aggregation = Aggregation.newAggregation(
+                Aggregation.match(criteria),
+                stage("$group", new Document("_id", new Document("movieInfoId", "$movieInfoId")
+                        .append("bucket", new Document("$floor", "$rating")))
+                        .append("count", new Document("$sum", 1))
+                        .append("sum", new Document("$sum", "$rating"))
+                        .append("min", new Document("$min", "$rating"))
+                        .append("max", new Document("$max", "$rating"))),
+                stage("$group", new Document("_id", "$_id.movieInfoId")
+                        .append("count", new Document("$sum", "$count"))
+                        .append("sum", new Document("$sum", "$sum"))
+                        .append("min", new Document("$min", "$min"))
+                        .append("max", new Document("$max", "$max"))
+                        .append("histogram", new Document("$push", new Document("bucket", "$_id.bucket")
+                                .append("count", "$count")))))
+                // the groups of a full rebuild may not fit in the 100MB stage limit
+                .withOptions(Aggregation.newAggregationOptions().allowDiskUse(true).build());
+
+        return reactiveMongoTemplate.aggregate(aggregation, reactiveMongoTemplate.getCollectionName(Review.class), Document.class)
+                .map(ReviewCustomRepositoryImpl::toReviewSummary);
+    }
+
+    private static AggregationOperation stage(String operator, Document body) {
+        return context -> new Document(operator, body);
+    }
+
+    private static ReviewSummary toReviewSummary(Document document) {
+        var count = ((Number) document.get("count")).longValue();
+        var histogram = new TreeMap<Integer, Long>();
+        document.getList("histogram", Document.class)
+                .forEach(bucket -> histogram.put(((Number) bucket.get("bucket")).intValue(), ((Number) bucket.get("count")).longValue()));
+        return new ReviewSummary(((Number) document.get("_id")).longValue(), count,
+                ((Number) document.get("sum")).doubleValue() / count,
+                ((Number) document.get("min")).doubleValue(),
+                ((Number) document.get("max")).doubleValue(),
+                histogram);
+    }
+
+    // documents written before versioning have no version field and count as version 0
+    private static Criteria versionIs(Long version) {
+        if (version == 0) {
+            return new Criteria().orOperator(
+                    Criteria.where("version").is(0L),
+                    Criteria.where("version").exists(false));
+        }
+        return Criteria.where("version").is(version);
+    }
+
+    // client-picked string ids sort before generated ObjectIds and $gt does not compare across types
+    private static Criteria afterId(String afterId) {
+        if (ObjectId.isValid(afterId)) {
+            return Criteria.where("_id").gt(new ObjectId(afterId));
+        }
+        return new Criteria().orOperator(
+                Criteria.where("_id").gt(afterId),
+                Criteria.where("_id").type(JsonSchemaObject.Type.OBJECT_ID));
+    }
+}
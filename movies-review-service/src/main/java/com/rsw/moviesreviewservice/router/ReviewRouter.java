@@ -18,9 +18,15 @@ public class ReviewRouter {
                 .nest(path("/v1/reviews"), builder -> {
                     builder.POST("", request -> reviewHandler.addReview(request))
                             .GET("", request -> reviewHandler.getReviews(request))
+                            .POST("/bulk", request -> reviewHandler.addReviews(request))
+                            .POST("/lookup", request -> reviewHandler.getReviewsByMovieInfoIds(request))
+                            .GET("/summary", request -> reviewHandler.getReviewSummary(request))
+                            .POST("/summary", request -> reviewHandler.getReviewSummaries(request))
                             .PUT("/{id}", request -> reviewHandler.updateReview(request))
                             .DELETE("{id}", request -> reviewHandler.deleteReview(request))
-                            .GET("/stream", request -> reviewHandler.getReviewsStream(request));
+                            .DELETE("", request -> reviewHandler.deleteReviews(request))
+                            .GET("/stream", request -> reviewHandler.getReviewsStream(request))
+                            .GET("/events", request -> reviewHandler.getReviewEvents(request));
                 })
                 .GET("/v1/helloWorld", (request -> ServerResponse.ok().bodyValue("hello world")))
                 /*.POST("/v1/reviews", request -> reviewHandler.addReview(request))
@@ -0,0 +1,319 @@
+package com.rsw.moviesreviewservice.service;
+
+import com.mongodb.client.model.BulkWriteOptions;
+import com.mongodb.client.model.ReplaceOneModel;
+import com.mongodb.client.model.ReplaceOptions;
+import com.mongodb.client.model.UpdateOneModel;
+import com.mongodb.client.model.UpdateOptions;
+import com.rsw.moviesreviewservice.domain.Review;
+import com.rsw.moviesreviewservice.domain.ReviewRatingAggregate;
+import com.rsw.moviesreviewservice.domain.ReviewSummary;
+import com.rsw.moviesreviewservice.repository.ReviewReactiveRepository;
+import lombok.extern.slf4j.Slf4j;
+import org.bson.Document;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.boot.context.event.ApplicationReadyEvent;
+import org.springframework.context.event.EventListener;
+import org.springframework.data.domain.Sort;
+import org.springframework.data.mongodb.core.ReactiveMongoTemplate;
+import org.springframework.data.mongodb.core.query.Criteria;
+import org.springframework.data.mongodb.core.query.Query;
+import org.springframework.data.mongodb.core.query.Update;
+import org.springframework.stereotype.Service;
+import reactor.core.publisher.Flux;
+import reactor.core.publisher.Mono;
+
+import java.time.Instant;
+import java.util.ArrayList;
+import java.util.Collection;
+import java.util.Date;
+import java.util.List;
+import java.util.TreeMap;
+import java.util.stream.Collectors;
+
+/**
+ * Maintains one {@link ReviewRatingAggregate} per movie with {@code $inc} updates on every review
+ * write. The review and its aggregate are two separate writes, so a failure in between leaves the
+ * aggregate off by one review until {@link #rebuildAggregates()} recomputes it from the reviews.
+ * <p>
+ * A rebuild records {@link #AGGREGATES_VERSION} in the {@code reviewRatingAggregateVersion}
+ * collection. On startup the aggregates are rebuilt when that record is missing or older, so the
+ * reviews written before the aggregates existed, or before their format changed, are counted.
+ */
+@Slf4j
+@Service
+public class ReviewAggregateService {
+
+    // bump when the aggregate documents change, so the next startup rebuilds them
+    static final int AGGREGATES_VERSION = 1;
+
+    private static final String VERSION_COLLECTION = "reviewRatingAggregateVersion";
+    private static final String VERSION_ID = "reviewRatingAggregate";
+
+    private ReactiveMongoTemplate reactiveMongoTemplate;
+    private ReviewReactiveRepository reviewReactiveRepository;
+
+    // rebuilds only when the recorded version is missing or older than AGGREGATES_VERSION
+    @Value("${reviews.aggregates.backfillOnStartup:true}")
+    private boolean backfillOnStartup;
+
+    // off by default: review writes during the rebuild may be overwritten
+    @Value("${reviews.aggregates.rebuildOnStartup:false}")
+    private boolean rebuildOnStartup;
+
+    @Value("${reviews.aggregates.rebuildBatchSize:500}")
+    private int rebuildBatchSize;
+
+    public ReviewAggregateService(ReactiveMongoTemplate reactiveMongoTemplate, ReviewReactiveRepository reviewReactiveRepository) {
+        this.reactiveMongoTemplate = reactiveMongoTemplate;
+        this.reviewReactiveRepository = reviewReactiveRepository;
+    }
+
+    public Mono<Void> onReviewAdded(Review review) {
+        if (review.getRating() == null) {
+            return Mono.empty();
+        }
+        var update = new Update()
+                .inc("count", 1)
+                .inc("sum", review.getRating())
+                .inc(bucketField(review.getRating()), 1)
+                .min("minRating", review.getRating())
+                .max("maxRating", review.getRating())
+                .currentDate("updatedAt");
+        return reactiveMongoTemplate.upsert(byMovieInfoId(review.getMovieInfoId()), update, ReviewRatingAggregate.class)
+                .then();
+    }
+
+    /**
+     * Folds the rated reviews into one upsert per movie, all sent in a single unordered bulk write.
+     */
+    public Mono<Void> onReviewsAdded(List<Review> reviews) {
+        var models = reviews.stream()
+                .filter(review -> review.getRating() != null)
+                .collect(Collectors.groupingBy(Review::getMovieInfoId))
+                .entrySet()
+                .stream()
+                .map(entry -> new UpdateOneModel<Document>(new Document("_id", entry.getKey()),
+                        toAddedUpdate(entry.getValue()).getUpdateObject(), new UpdateOptions().upsert(true)))
+                .collect(Collectors.toCollection(ArrayList::new));
+        if (models.isEmpty()) {
+            return Mono.empty();
+        }
+        return reactiveMongoTemplate.getCollection(reactiveMongoTemplate.getCollectionName(ReviewRatingAggregate.class))
+                .flatMap(collection -> Mono.from(collection.bulkWrite(models, new BulkWriteOptions().ordered(false))))
+                .then();
+    }
+
+    /**
+     * Min and max cannot be decremented; when the removed rating was one of them they are read again
+     * from the (movieInfoId, rating) index, which costs two index seeks.
+     */
+    public Mono<Void> onReviewRemoved(Review review) {
+        return removeRating(review).then();
+    }
+
+    public Mono<Void> onReviewUpdated(Review previous, Review updated) {
+        if (previous.getRating() == null ? updated.getRating() == null : previous.getRating().equals(updated.getRating())) {
+            return Mono.empty();
+        }
+        // a recomputed aggregate already counts the updated review
+        return removeRating(previous)
+                .flatMap(recomputed -> recomputed ? Mono.empty() : onReviewAdded(updated));
+    }
+
+    /**
+     * Decrements the aggregate by the review's rating, only while its count and rating bucket are
+     * positive. An aggregate that did not count the review, such as one missing the reviews written
+     * before it existed, is recomputed from the reviews instead of going below zero; true then.
+     */
+    private Mono<Boolean> removeRating(Review review) {
+        if (review.getRating() == null) {
+            return Mono.just(false);
+        }
+        var movieInfoId = review.getMovieInfoId();
+        var bucketField = bucketField(review.getRating());
+        var query = byMovieInfoId(movieInfoId)
+                .addCriteria(Criteria.where("count").gte(1).and(bucketField).gte(1));
+        var update = new Update()
+                .inc("count", -1)
+                .inc("sum", -review.getRating())
+                .inc(bucketField, -1)
+                .currentDate("updatedAt");
+        return reactiveMongoTemplate.findAndModify(query, update, ReviewRatingAggregate.class)
+                .map(previous -> review.getRating().equals(previous.getMinRating()) || review.getRating().equals(previous.getMaxRating()))
+                .flatMap(minOrMaxRemoved -> minOrMaxRemoved
+                        ? refreshMinMax(movieInfoId).thenReturn(false)
+                        : Mono.just(false))
+                .switchIfEmpty(Mono.defer(() -> {
+                    log.warn("Rating aggregate of movie {} did not count the removed review, recomputing it", movieInfoId);
+                    return refreshAggregates(List.of(movieInfoId)).thenReturn(true);
+                }));
+    }
+
+    public Mono<ReviewSummary> getSummary(Long movieInfoId) {
+        return reactiveMongoTemplate.findById(movieInfoId, ReviewRatingAggregate.class)
+                .map(ReviewAggregateService::toReviewSummary)
+                .defaultIfEmpty(ReviewSummary.empty(movieInfoId));
+    }
+
+    public Flux<ReviewSummary> getSummaries(Collection<Long> movieInfoIds) {
+        return reactiveMongoTemplate.find(new Query(Criteria.where("_id").in(movieInfoIds)), ReviewRatingAggregate.class)
+                .map(ReviewAggregateService::toReviewSummary);
+    }
+
+    @EventListener(ApplicationReadyEvent.class)
+    public void rebuildAggregatesOnStartup() {
+        Mono<Long> rebuild;
+        if (rebuildOnStartup) {
+            rebuild = rebuildAggregates();
+        } else if (backfillOnStartup) {
+            rebuild = backfillAggregates();
+        } else {
+            return;
+        }
+        rebuild.subscribe(count -> log.info("Rebuilt {} review rating aggregates", count),
+                ex -> log.error("Review rating aggregate rebuild failed : {} ", ex.getMessage(), ex));
+    }
+
+    /**
+     * Rebuilds the aggregates when the last rebuild recorded no version or an older one than
+     * {@link #AGGREGATES_VERSION}, and is empty otherwise.
+     */
+    public Mono<Long> backfillAggregates() {
+        return reactiveMongoTemplate.findById(VERSION_ID, Document.class, VERSION_COLLECTION)
+                .map(record -> record.get("version", Number.class).intValue())
+                .defaultIfEmpty(0)
+                .filter(version -> version < AGGREGATES_VERSION)
+                .flatMap(version -> {
+                    log.info("Review rating aggregates are at version {}, rebuilding them at version {}", version, AGGREGATES_VERSION);
+                    return rebuildAggregates();
+                });
+    }
+
+    /**
+     * Recomputes every aggregate from the reviews. The summaries are streamed out of one aggregation
+     * and replaced {@code rebuildBatchSize} at a time; aggregates that were neither rebuilt nor
+     * written since the rebuild started belong to movies without rated reviews and are removed.
+     * Review writes during the rebuild may be overwritten by a summary read before them. The start
+     * time is read from the database clock, the one {@code $currentDate} uses for the incremental
+     * updates, so a skewed application clock cannot remove live aggregates. Once done, the rebuild
+     * records {@link #AGGREGATES_VERSION}.
+     */
+    public Mono<Long> rebuildAggregates() {
+        var collectionName = reactiveMongoTemplate.getCollectionName(ReviewRatingAggregate.class);
+        return serverTime().flatMap(startedAt -> reviewReactiveRepository.summarizeAll()
+                .map(summary -> toAggregateDocument(summary, startedAt))
+                .buffer(rebuildBatchSize)
+                .concatMap(documents -> reactiveMongoTemplate.getCollection(collectionName)
+                        .flatMap(collection -> Mono.from(collection.bulkWrite(toReplaceModels(documents), new BulkWriteOptions().ordered(false))))
+                        .thenReturn((long) documents.size()))
+                .reduce(0L, Long::sum)
+                .flatMap(count -> reactiveMongoTemplate.remove(new Query(Criteria.where("updatedAt").lt(startedAt)), ReviewRatingAggregate.class)
+                        .then(recordVersion(startedAt))
+                        .thenReturn(count)));
+    }
+
+    private Mono<Void> recordVersion(Instant builtAt) {
+        var record = new Document("_id", VERSION_ID)
+                .append("version", AGGREGATES_VERSION)
+                .append("builtAt", Date.from(builtAt));
+        return reactiveMongoTemplate.save(record, VERSION_COLLECTION)
+                .then();
+    }
+
+    /**
+     * Recomputes the aggregates of some movies from their reviews in one aggregation and one bulk
+     * write; the aggregates of movies left without rated reviews are removed.
+     */
+    public Mono<Void> refreshAggregates(Collection<Long> movieInfoIds) {
+        if (movieInfoIds.isEmpty()) {
+            return Mono.empty();
+        }
+        var collectionName = reactiveMongoTemplate.getCollectionName(ReviewRatingAggregate.class);
+        return serverTime().flatMap(startedAt -> reviewReactiveRepository.summarizeByMovieInfoIds(movieInfoIds)
+                .map(summary -> toAggregateDocument(summary, startedAt))
+                .collectList()
+                .filter(documents -> !documents.isEmpty())
+                .flatMap(documents -> reactiveMongoTemplate.getCollection(collectionName)
+                        .flatMap(collection -> Mono.from(collection.bulkWrite(toReplaceModels(documents), new BulkWriteOptions().ordered(false)))))
+                .then(reactiveMongoTemplate.remove(new Query(Criteria.where("_id").in(movieInfoIds).and("updatedAt").lt(startedAt)), ReviewRatingAggregate.class))
+                .then());
+    }
+
+    // the database clock, as reported by the hello command
+    private Mono<Instant> serverTime() {
+        return reactiveMongoTemplate.executeCommand(new Document("hello", 1))
+                .map(reply -> reply.getDate("localTime").toInstant());
+    }
+
+    private Mono<Void> refreshMinMax(Long movieInfoId) {
+        var rated = Criteria.where("movieInfoId").is(movieInfoId).and("rating").ne(null);
+        var min = reactiveMongoTemplate.findOne(new Query(rated).with(Sort.by(Sort.Direction.ASC, "rating")), Review.class);
+        var max = reactiveMongoTemplate.findOne(new Query(rated).with(Sort.by(Sort.Direction.DESC, "rating")), Review.class);
+        return Mono.zip(min, max)
+                .map(tuple -> new Update()
+                        .set("minRating", tuple.getT1().getRating())
+                        .set("maxRating", tuple.getT2().getRating()))
+                .defaultIfEmpty(new Update().unset("minRating").unset("maxRating"))
+                .flatMap(update -> reactiveMongoTemplate.updateFirst(byMovieInfoId(movieInfoId), update, ReviewRatingAggregate.class))
+                .then();
+    }
+
+    private static Update toAddedUpdate(List<Review> reviews) {
+        var ratings = reviews.stream()
+                .map(Review::getRating)
+                .collect(Collectors.toList());
+        var update = new Update()
+                .inc("count", ratings.size())
+                .inc("sum", ratings.stream().mapToDouble(Double::doubleValue).sum())
+                .min("minRating", ratings.stream().min(Double::compare).orElseThrow())
+                .max("maxRating", ratings.stream().max(Double::compare).orElseThrow())
+                .currentDate("updatedAt");
+        ratings.stream()
+                .collect(Collectors.groupingBy(ReviewAggregateService::bucketField, Collectors.counting()))
+                .forEach(update::inc);
+        return update;
+    }
+
+    private static Query byMovieInfoId(Long movieInfoId) {
+        return new Query(Criteria.where("_id").is(movieInfoId));
+    }
+
+    private static String bucketField(Double rating) {
+        return "histogram." + (int) Math.floor(rating);
+    }
+
+    private static Document toAggregateDocument(ReviewSummary summary, Instant updatedAt) {
+        var histogram = new Document();
+        summary.getHistogram().forEach((bucket, count) -> histogram.append(String.valueOf(bucket), count));
+        return new Document("_id", summary.getMovieInfoId())
+                .append("count", summary.getCount())
+                .append("sum", summary.getAverageRating() * summary.getCount())
+                .append("minRating", summary.getMinRating())
+                .append("maxRating", summary.getMaxRating())
+                .append("histogram", histogram)
+                .append("updatedAt", Date.from(updatedAt));
+    }
+
+    private static List<ReplaceOneModel<Document>> toReplaceModels(List<Document> documents) {
+        return documents.stream()
+                .map(document -> new ReplaceOneModel<>(new Document("_id", document.get("_id")), document, new ReplaceOptions().upsert(true)))
+                .collect(Collectors.toCollection(ArrayList::new));
+    }
+
+    private static ReviewSummary toReviewSummary(ReviewRatingAggregate aggregate) {
+        if (aggregate.getCount() <= 0) {
+            return ReviewSummary.empty(aggregate.getMovieInfoId());
+        }
+        var histogram = new TreeMap<Integer, Long>();
+        if (aggregate.getHistogram() != null) {
+            aggregate.getHistogram().forEach((bucket, count) -> {
+                if (count > 0) {
+                    histogram.put(Integer.valueOf(bucket), count);
+                }
+            });
+        }
+        return new ReviewSummary(aggregate.getMovieInfoId(), aggregate.getCount(), aggregate.getSum() / aggregate.getCount(),
+                aggregate.getMinRating(), aggregate.getMaxRating(), histogram);
+    }
+}
@@ -0,0 +1,151 @@
+package com.rsw.moviesreviewservice.service;
+
+import com.rsw.moviesreviewservice.domain.Review;
+import com.rsw.moviesreviewservice.exception.ReviewWriteRejectedException;
+import com.rsw.moviesreviewservice.repository.ReviewReactiveRepository;
+import io.micrometer.core.instrument.Counter;
+import io.micrometer.core.instrument.DistributionSummary;
+import io.micrometer.core.instrument.MeterRegistry;
+import io.micrometer.core.instrument.Timer;
+import lombok.extern.slf4j.Slf4j;
+import org.springframework.beans.factory.ObjectProvider;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.boot.autoconfigure.condition.ConditionalOnProperty;
+import org.springframework.dao.DataIntegrityViolationException;
+import org.springframework.stereotype.Component;
+import reactor.core.publisher.Flux;
+import reactor.core.publisher.FluxSink;
+import reactor.core.publisher.Mono;
+import reactor.core.publisher.MonoSink;
+
+import javax.annotation.PreDestroy;
+import java.time.Duration;
+import java.util.List;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.stream.Collectors;
+import java.util.stream.IntStream;
+
+/**
+ * Write-behind inserts: reviews saved through {@link #save(Review)} are collected for up to
+ * {@code maxLatency} or {@code maxBatchSize} reviews and written with one unordered
+ * {@code insertMany}, followed by one aggregate update for the whole batch. Each caller's Mono
+ * completes once its batch is acknowledged, or fails with the error of its own document. At most
+ * {@code maxPending} reviews wait for their batch; further saves are rejected with a
+ * {@link ReviewWriteRejectedException} until batches have been written.
+ */
+@Slf4j
+@Component
+@ConditionalOnProperty(name = "reviews.writeBehind.enabled", havingValue = "true")
+public class ReviewWriteBatcher {
+
+    private ReviewReactiveRepository reviewReactiveRepository;
+    private ReviewAggregateService reviewAggregateService;
+
+    private final int maxPending;
+    private final AtomicInteger pendingCount = new AtomicInteger();
+
+    private final DistributionSummary batchSizes;
+    private final Timer flushLatency;
+    private final Counter rejectedWrites;
+
+    private volatile FluxSink<PendingWrite> pendingWrites;
+
+    public ReviewWriteBatcher(ReviewReactiveRepository reviewReactiveRepository, ReviewAggregateService reviewAggregateService,
+                              @Value("${reviews.writeBehind.maxBatchSize:500}") int maxBatchSize,
+                              @Value("${reviews.writeBehind.maxLatency:20ms}") Duration maxLatency,
+                              @Value("${reviews.writeBehind.maxPending:10000}") int maxPending,
+                              ObjectProvider<MeterRegistry> meterRegistry) {
+        this.reviewReactiveRepository = reviewReactiveRepository;
+        this.reviewAggregateService = reviewAggregateService;
+        this.maxPending = maxPending;
+        var registry = meterRegistry.getIfAvailable();
+        this.batchSizes = registry == null ? null : DistributionSummary.builder("reviews.writeBehind.batchSize")
+                .publishPercentiles(0.5, 0.9, 0.99)
+                .register(registry);
+        this.flushLatency = registry == null ? null : Timer.builder("reviews.writeBehind.flushLatency")
+                .publishPercentiles(0.5, 0.9, 0.99)
+                .register(registry);
+        this.rejectedWrites = registry == null ? null : registry.counter("reviews.writeBehind.rejected");
+        // save admits at most maxPending reviews, which bounds both buffers: the sink never holds more
+        // reviews, and the batches waiting for the one being written are never more than that either
+        Flux.<PendingWrite>create(sink -> pendingWrites = sink, FluxSink.OverflowStrategy.BUFFER)
+                .bufferTimeout(maxBatchSize, maxLatency)
+                // bufferTimeout fails when a batch is ready without demand; batches queue up here instead
+                .onBackpressureBuffer(maxPending)
+                .concatMap(this::flush)
+                .subscribe();
+    }
+
+    public Mono<Review> save(Review review) {
+        return Mono.create(sink -> {
+            if (pendingCount.incrementAndGet() > maxPending) {
+                pendingCount.decrementAndGet();
+                if (rejectedWrites != null) {
+                    rejectedWrites.increment();
+                }
+                sink.error(new ReviewWriteRejectedException("Too many pending review writes, retry later"));
+                return;
+            }
+            pendingWrites.next(new PendingWrite(review, sink));
+        });
+    }
+
+    /**
+     * Completes the pending writes; the reviews already submitted are still flushed.
+     */
+    @PreDestroy
+    public void close() {
+        pendingWrites.complete();
+    }
+
+    private Mono<Void> flush(List<PendingWrite> batch) {
+        var reviews = batch.stream()
+                .map(pendingWrite -> pendingWrite.review)
+                .collect(Collectors.toList());
+        var startedAt = System.nanoTime();
+        return reviewReactiveRepository.insertUnordered(reviews)
+                .flatMap(failures -> {
+                    var inserted = IntStream.range(0, reviews.size())
+                            .filter(i -> !failures.containsKey(i))
+                            .mapToObj(reviews::get)
+                            .collect(Collectors.toList());
+                    return reviewAggregateService.onReviewsAdded(inserted)
+                            .then(Mono.fromRunnable(() -> {
+                                record(batch.size(), startedAt);
+                                for (int i = 0; i < batch.size(); i++) {
+                                    var failure = failures.get(i);
+                                    if (failure != null) {
+                                        batch.get(i).sink.error(new DataIntegrityViolationException(failure));
+                                    } else {
+                                        batch.get(i).sink.success(reviews.get(i));
+                                    }
+                                }
+                            }));
+                })
+                .then()
+                .onErrorResume(ex -> {
+                    log.error("Review write-behind flush of {} reviews failed : {}", batch.size(), ex.getMessage(), ex);
+                    batch.forEach(pendingWrite -> pendingWrite.sink.error(ex));
+                    return Mono.empty();
+                })
+                .doFinally(signalType -> pendingCount.addAndGet(-batch.size()));
+    }
+
+    private void record(int batchSize, long startedAt) {
+        if (batchSizes != null) {
+            batchSizes.record(batchSize);
+            flushLatency.record(Duration.ofNanos(System.nanoTime() - startedAt));
+        }
+    }
+
+    private static class PendingWrite {
+
+        private final Review review;
+        private final MonoSink<Review> sink;
+
+        private PendingWrite(Review review, MonoSink<Review> sink) {
+            this.review = review;
+            this.sink = sink;
+        }
+    }
+}
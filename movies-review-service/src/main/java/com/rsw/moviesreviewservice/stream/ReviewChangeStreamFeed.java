@@ -0,0 +1,22 @@
+package com.rsw.moviesreviewservice.stream;
+
+import com.rsw.moviesreviewservice.domain.Review;
+import com.rsw.stream.Broadcaster;
+import com.rsw.stream.ChangeStreamFeed;
+import com.rsw.stream.StreamEvent;
+import org.springframework.boot.autoconfigure.condition.ConditionalOnProperty;
+import org.springframework.data.mongodb.core.ReactiveMongoTemplate;
+import org.springframework.stereotype.Component;
+
+/**
+ * Feeds the Review broadcaster from a MongoDB change stream.
+ */
+@Component
+@ConditionalOnProperty(name = "reviews.stream.source", havingValue = "CHANGE_STREAM")
+public class ReviewChangeStreamFeed extends ChangeStreamFeed<Review> {
+
+    public ReviewChangeStreamFeed(ReactiveMongoTemplate reactiveMongoTemplate,
+                                  Broadcaster<StreamEvent<Review>> reviewBroadcaster) {
+        super(reactiveMongoTemplate, reviewBroadcaster, Review.class, "Review");
+    }
+}
@@ -0,0 +1,24 @@
+package com.rsw.moviesreviewservice.stream;
+
+import com.rsw.moviesreviewservice.domain.Review;
+import com.rsw.stream.Broadcaster;
+import com.rsw.stream.OverflowPolicy;
+import com.rsw.stream.StreamEvent;
+import io.micrometer.core.instrument.MeterRegistry;
+import org.springframework.beans.factory.ObjectProvider;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.context.annotation.Bean;
+import org.springframework.context.annotation.Configuration;
+
+@Configuration
+public class StreamConfig {
+
+    @Bean
+    public Broadcaster<StreamEvent<Review>> reviewBroadcaster(@Value("${reviews.stream.replaySize:1}") int replaySize,
+                                                              @Value("${reviews.stream.historySize:256}") int historySize,
+                                                              @Value("${reviews.stream.bufferSize:256}") int bufferSize,
+                                                              @Value("${reviews.stream.overflowPolicy:DROP_OLDEST}") OverflowPolicy overflowPolicy,
+                                                              ObjectProvider<MeterRegistry> meterRegistry) {
+        return new Broadcaster<>("reviews", replaySize, historySize, bufferSize, overflowPolicy, meterRegistry.getIfAvailable());
+    }
+}
@@ -0,0 +1,112 @@
+package com.rsw.moviesreviewservice.repository;
+
+import com.rsw.moviesreviewservice.config.MongoIndexInitializer;
+import com.rsw.moviesreviewservice.domain.Review;
+import com.rsw.moviesreviewservice.domain.ReviewSort;
+import org.bson.Document;
+import org.junit.jupiter.api.AfterEach;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.boot.test.autoconfigure.data.mongo.DataMongoTest;
+import org.springframework.data.domain.Sort;
+import org.springframework.data.mongodb.core.ReactiveMongoTemplate;
+import org.springframework.data.mongodb.core.query.Criteria;
+import org.springframework.data.mongodb.core.query.Query;
+import org.springframework.test.context.ActiveProfiles;
+import org.springframework.test.context.TestPropertySource;
+
+import java.util.List;
+
+import static org.junit.jupiter.api.Assertions.assertFalse;
+import static org.junit.jupiter.api.Assertions.assertNotNull;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+
+/**
+ * Calls the repository methods with the profiler on, runs {@code explain} on the find each of them
+ * issued, and fails when one would scan the whole collection or sort in memory instead of reading
+ * an index in order.
+ */
+@DataMongoTest
+@TestPropertySource(properties = "spring.mongodb.embedded.version=5.0.6")
+@ActiveProfiles("test")
+class ReviewQueryPlanTest {
+
+    @Autowired
+    ReactiveMongoTemplate reactiveMongoTemplate;
+
+    @Autowired
+    ReviewReactiveRepository reviewReactiveRepository;
+
+    @BeforeEach
+    void setUp() {
+        new MongoIndexInitializer(reactiveMongoTemplate).ensureIndexes().block();
+        reactiveMongoTemplate.executeCommand(new Document("profile", 0)).block();
+        reactiveMongoTemplate.dropCollection("system.profile").block();
+        reactiveMongoTemplate.executeCommand(new Document("profile", 2)).block();
+    }
+
+    @AfterEach
+    void tearDown() {
+        reactiveMongoTemplate.executeCommand(new Document("profile", 0)).block();
+    }
+
+    @Test
+    void findByMovieInfoId_usesIndex() {
+        reviewReactiveRepository.findByMovieInfoId(1L).collectList().block();
+        assertUsesIndexWithoutSort();
+    }
+
+    @Test
+    void findByMovieInfoIdIn_usesIndex() {
+        reviewReactiveRepository.findByMovieInfoIdIn(List.of(1L, 2L, 3L)).collectList().block();
+        assertUsesIndexWithoutSort();
+    }
+
+    @Test
+    void findPageAfter_usesIndex() {
+        reviewReactiveRepository.findPageAfter(1L, null, 11).collectList().block();
+        assertUsesIndexWithoutSort();
+    }
+
+    @Test
+    void findPageAfter_withCursor_usesIndex() {
+        reviewReactiveRepository.findPageAfter(1L, "5f5b1c5e9b1e8b3a2c4d6e7f", 11).collectList().block();
+        assertUsesIndexWithoutSort();
+    }
+
+    @Test
+    void findTop_usesIndex() {
+        reviewReactiveRepository.findTop(1L, ReviewSort.RATING_DESC, 10).collectList().block();
+        assertUsesIndexWithoutSort();
+    }
+
+    @Test
+    void findTop_ascending_usesIndex() {
+        reviewReactiveRepository.findTop(1L, ReviewSort.RATING_ASC, 10).collectList().block();
+        assertUsesIndexWithoutSort();
+    }
+
+    // explains the last find the profiler recorded on the reviews collection
+    private void assertUsesIndexWithoutSort() {
+        var collectionName = reactiveMongoTemplate.getCollectionName(Review.class);
+        var profiled = reactiveMongoTemplate.find(new Query(Criteria.where("op").is("query").and("ns").regex("\\." + collectionName + "$"))
+                        .with(Sort.by(Sort.Direction.DESC, "ts"))
+                        .limit(1), Document.class, "system.profile")
+                .blockFirst();
+        assertNotNull(profiled, "no find recorded on " + collectionName);
+        var command = profiled.get("command", Document.class);
+        var find = new Document("find", collectionName)
+                .append("filter", command.get("filter", new Document()));
+        for (var option : List.of("sort", "limit")) {
+            if (command.containsKey(option)) {
+                find.append(option, command.get(option));
+            }
+        }
+        var explain = reactiveMongoTemplate.executeCommand(new Document("explain", find).append("verbosity", "queryPlanner")).block();
+        var winningPlan = explain.get("queryPlanner", Document.class).get("winningPlan", Document.class).toJson();
+        assertTrue(winningPlan.contains("IXSCAN"), () -> "no index used : " + winningPlan);
+        assertFalse(winningPlan.contains("COLLSCAN"), () -> "collection scan : " + winningPlan);
+        assertFalse(winningPlan.contains("\"stage\": \"SORT\""), () -> "in-memory sort : " + winningPlan);
+    }
+}
@@ -1,13 +1,19 @@
 package com.rsw.moviesreviewservice.router;
 
+import com.rsw.moviesreviewservice.domain.BulkItemResult;
 import com.rsw.moviesreviewservice.domain.Review;
+import com.rsw.moviesreviewservice.domain.ReviewRatingAggregate;
 import com.rsw.moviesreviewservice.repository.ReviewReactiveRepository;
+import com.rsw.moviesreviewservice.service.ReviewAggregateService;
 import org.junit.jupiter.api.AfterEach;
 import org.junit.jupiter.api.BeforeEach;
 import org.junit.jupiter.api.Test;
 import org.springframework.beans.factory.annotation.Autowired;
 import org.springframework.boot.test.autoconfigure.web.reactive.AutoConfigureWebTestClient;
 import org.springframework.boot.test.context.SpringBootTest;
+import org.springframework.data.mongodb.core.ReactiveMongoTemplate;
+import org.springframework.data.mongodb.core.query.Query;
+import org.springframework.http.HttpStatus;
 import org.springframework.test.context.ActiveProfiles;
 import org.springframework.test.context.TestPropertySource;
 import org.springframework.test.web.reactive.server.WebTestClient;
@@ -17,11 +23,16 @@ import java.util.List;
 
 import static org.hibernate.validator.internal.util.Contracts.assertNotNull;
 import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertFalse;
+import static org.junit.jupiter.api.Assertions.assertNull;
+import static org.junit.jupiter.api.Assertions.assertTrue;
 
 @SpringBootTest(webEnvironment = SpringBootTest.WebEnvironment.RANDOM_PORT)
 @ActiveProfiles("test")
 @AutoConfigureWebTestClient
-@TestPropertySource(properties = "spring.mongodb.embedded.version=5.0.6")
+@TestPropertySource(properties = {"spring.mongodb.embedded.version=5.0.6",
+        "reviews.aggregates.rebuildOnStartup=false",
+        "reviews.aggregates.backfillOnStartup=false"})
 class ReviewRouterIntgTest {
 
     @Autowired
@@ -30,6 +41,12 @@ class ReviewRouterIntgTest {
     @Autowired
     ReviewReactiveRepository reviewReactiveRepository;
 
+    @Autowired
+    ReviewAggregateService reviewAggregateService;
+
+    @Autowired
+    ReactiveMongoTemplate reactiveMongoTemplate;
+
     static String REVIEWS_URL = "/v1/reviews";
 
     @BeforeEach
@@ -41,12 +58,15 @@ class ReviewRouterIntgTest {
                 new Review(null, 2L, "Excellent Movie", 8.0));
         reviewReactiveRepository.saveAll(reviewsList)
                 .blockLast();
+        // the reviews were saved around the handler, so their aggregates are built from scratch
+        reviewAggregateService.rebuildAggregates().block();
 
     }
 
     @AfterEach
     void tearDown() {
         reviewReactiveRepository.deleteAll().block();
+        reactiveMongoTemplate.remove(new Query(), ReviewRatingAggregate.class).block();
     }
 
     @Test
@@ -106,6 +126,27 @@ class ReviewRouterIntgTest {
                 });
     }
 
+    @Test
+    void updateReview_staleVersion() {
+        webTestClient.put()
+                .uri(REVIEWS_URL + "/{id}", "abc")
+                .bodyValue(new Review(null, 1L, null, 6.0, 0L))
+                .exchange()
+                .expectStatus()
+                .isOk()
+                .expectBody()
+                .jsonPath("$.comment").isEqualTo("Awesome Movie")
+                .jsonPath("$.rating").isEqualTo(6.0)
+                .jsonPath("$.version").isEqualTo(1);
+
+        webTestClient.put()
+                .uri(REVIEWS_URL + "/{id}", "abc")
+                .bodyValue(new Review(null, 1L, null, 4.0, 0L))
+                .exchange()
+                .expectStatus()
+                .isEqualTo(HttpStatus.CONFLICT);
+    }
+
     @Test
     void deleteReview() {
         var reviewId = "abc";
@@ -119,6 +160,67 @@ class ReviewRouterIntgTest {
                 .isNoContent();
     }
 
+    @Test
+    void deleteReview_notFound() {
+        webTestClient
+                .delete()
+                .uri(REVIEWS_URL + "/{id}", "def")
+                .exchange()
+                .expectStatus()
+                .isNotFound();
+    }
+
+    @Test
+    void deleteReviews_byIds() {
+        webTestClient
+                .delete()
+                .uri(REVIEWS_URL + "?ids=abc,def")
+                .exchange()
+                .expectStatus()
+                .isOk()
+                .expectBody()
+                .jsonPath("$.deletedCount").isEqualTo(1);
+
+        webTestClient.get()
+                .uri(REVIEWS_URL + "/summary?movieInfoId=1")
+                .exchange()
+                .expectStatus()
+                .is2xxSuccessful()
+                .expectBody()
+                .jsonPath("$.count").isEqualTo(1);
+    }
+
+    @Test
+    void deleteReviews_byMovieInfoId() {
+        webTestClient
+                .delete()
+                .uri(REVIEWS_URL + "?movieInfoId=1")
+                .exchange()
+                .expectStatus()
+                .isOk()
+                .expectBody()
+                .jsonPath("$.deletedCount").isEqualTo(2);
+
+        webTestClient.get()
+                .uri(REVIEWS_URL + "/summary?movieInfoId=1")
+                .exchange()
+                .expectStatus()
+                .is2xxSuccessful()
+                .expectBody()
+                .jsonPath("$.count").isEqualTo(0);
+        assertEquals(1L, reviewReactiveRepository.count().block());
+    }
+
+    @Test
+    void deleteReviews_withoutFilter() {
+        webTestClient
+                .delete()
+                .uri(REVIEWS_URL)
+                .exchange()
+                .expectStatus()
+                .isBadRequest();
+    }
+
     @Test
     void getReviewsByMovieInfoId() {
         var uri = UriComponentsBuilder.fromUriString(REVIEWS_URL)
@@ -134,4 +236,275 @@ class ReviewRouterIntgTest {
                 .expectBodyList(Review.class)
                 .hasSize(2);
     }
-}
\ No newline at end of file
+
+    @Test
+    void getReviewsByMovieInfoIds() {
+
+        webTestClient.post()
+                .uri(REVIEWS_URL + "/lookup")
+                .bodyValue(List.of(1L, 2L, 3L))
+                .exchange()
+                .expectStatus()
+                .is2xxSuccessful()
+                .expectBody()
+                .jsonPath("$['1'].length()").isEqualTo(2)
+                .jsonPath("$['2'].length()").isEqualTo(1)
+                .jsonPath("$['3'].length()").isEqualTo(0);
+    }
+
+    @Test
+    void getReviewPagesByMovieInfoId() {
+        var firstPage = webTestClient.get()
+                .uri(REVIEWS_URL + "?movieInfoId=1&limit=1")
+                .exchange()
+                .expectStatus()
+                .is2xxSuccessful()
+                .expectBodyList(Review.class)
+                .hasSize(1)
+                .returnResult();
+        // "abc" is a string id and sorts before the generated ObjectIds
+        assertEquals("abc", firstPage.getResponseBody().get(0).getReviewId());
+        var cursor = firstPage.getResponseHeaders().getFirst("X-Next-Cursor");
+        assertNotNull(cursor);
+
+        webTestClient.get()
+                .uri(REVIEWS_URL + "?movieInfoId=1&limit=1&cursor=" + cursor)
+                .exchange()
+                .expectStatus()
+                .is2xxSuccessful()
+                .expectHeader()
+                .doesNotExist("X-Next-Cursor")
+                .expectBodyList(Review.class)
+                .consumeWith(listEntityExchangeResult -> {
+                    var reviews = listEntityExchangeResult.getResponseBody();
+                    assertEquals(1, reviews.size());
+                    assertEquals("Awesome Movie1", reviews.get(0).getComment());
+                });
+    }
+
+    @Test
+    void getTopReviewsByMovieInfoId() {
+        reviewReactiveRepository.save(new Review(null, 1L, "Good Movie", 7.5)).block();
+
+        webTestClient.get()
+                .uri(REVIEWS_URL + "?movieInfoId=1&sort=RATING_ASC&limit=1")
+                .exchange()
+                .expectStatus()
+                .is2xxSuccessful()
+                .expectHeader()
+                .doesNotExist("X-Next-Cursor")
+                .expectBodyList(Review.class)
+                .consumeWith(listEntityExchangeResult -> {
+                    var reviews = listEntityExchangeResult.getResponseBody();
+                    assertEquals(1, reviews.size());
+                    assertEquals(7.5, reviews.get(0).getRating());
+                });
+    }
+
+    @Test
+    void getTopReviewsByMovieInfoId_skipsUnratedReviews() {
+        reviewReactiveRepository.save(new Review(null, 1L, "No rating", null)).block();
+
+        webTestClient.get()
+                .uri(REVIEWS_URL + "?movieInfoId=1&sort=RATING_ASC&limit=1")
+                .exchange()
+                .expectStatus()
+                .is2xxSuccessful()
+                .expectBodyList(Review.class)
+                .consumeWith(listEntityExchangeResult -> {
+                    var reviews = listEntityExchangeResult.getResponseBody();
+                    assertEquals(1, reviews.size());
+                    assertNotNull(reviews.get(0).getRating());
+                });
+    }
+
+    @Test
+    void getTopReviews_withoutMovieInfoId() {
+        webTestClient.get()
+                .uri(REVIEWS_URL + "?sort=RATING_DESC&limit=1")
+                .exchange()
+                .expectStatus()
+                .isBadRequest();
+    }
+
+    @Test
+    void getTopReviews_withoutLimit() {
+        webTestClient.get()
+                .uri(REVIEWS_URL + "?movieInfoId=1&sort=RATING_DESC")
+                .exchange()
+                .expectStatus()
+                .isBadRequest();
+    }
+
+    @Test
+    void getReviewPage_invalidCursor() {
+        webTestClient.get()
+                .uri(REVIEWS_URL + "?limit=2&cursor=not*base64")
+                .exchange()
+                .expectStatus()
+                .isBadRequest();
+    }
+
+    @Test
+    void getReviewSummary() {
+        webTestClient.post()
+                .uri(REVIEWS_URL)
+                .bodyValue(new Review(null, 1L, "Good Movie", 7.5))
+                .exchange()
+                .expectStatus()
+                .isCreated();
+
+        webTestClient.get()
+                .uri(REVIEWS_URL + "/summary?movieInfoId=1")
+                .exchange()
+                .expectStatus()
+                .is2xxSuccessful()
+                .expectBody()
+                .jsonPath("$.count").isEqualTo(3)
+                .jsonPath("$.averageRating").isEqualTo(8.5)
+                .jsonPath("$.minRating").isEqualTo(7.5)
+                .jsonPath("$.maxRating").isEqualTo(9.0)
+                .jsonPath("$.histogram['7']").isEqualTo(1)
+                .jsonPath("$.histogram['9']").isEqualTo(2);
+    }
+
+    @Test
+    void getReviewSummaries() {
+
+        webTestClient.post()
+                .uri(REVIEWS_URL + "/summary")
+                .bodyValue(List.of(2L, 3L))
+                .exchange()
+                .expectStatus()
+                .is2xxSuccessful()
+                .expectBody()
+                .jsonPath("$['2'].count").isEqualTo(1)
+                .jsonPath("$['2'].averageRating").isEqualTo(8.0)
+                .jsonPath("$['3'].count").isEqualTo(0);
+    }
+
+    @Test
+    void getReviewSummary_afterUpdateAndDelete() {
+        webTestClient.put()
+                .uri(REVIEWS_URL + "/{id}", "abc")
+                .bodyValue(new Review(null, 1L, "Average Movie", 5.0))
+                .exchange()
+                .expectStatus()
+                .isOk();
+
+        webTestClient.get()
+                .uri(REVIEWS_URL + "/summary?movieInfoId=1")
+                .exchange()
+                .expectStatus()
+                .is2xxSuccessful()
+                .expectBody()
+                .jsonPath("$.count").isEqualTo(2)
+                .jsonPath("$.averageRating").isEqualTo(7.0)
+                .jsonPath("$.minRating").isEqualTo(5.0)
+                .jsonPath("$.histogram['5']").isEqualTo(1)
+                .jsonPath("$.histogram['9']").isEqualTo(1);
+
+        webTestClient.delete()
+                .uri(REVIEWS_URL + "/{id}", "abc")
+                .exchange()
+                .expectStatus()
+                .isNoContent();
+
+        webTestClient.get()
+                .uri(REVIEWS_URL + "/summary?movieInfoId=1")
+                .exchange()
+                .expectStatus()
+                .is2xxSuccessful()
+                .expectBody()
+                .jsonPath("$.count").isEqualTo(1)
+                .jsonPath("$.minRating").isEqualTo(9.0)
+                .jsonPath("$.histogram['5']").doesNotExist();
+    }
+
+    @Test
+    void getReviewSummary_backfillsReviewsWrittenBeforeTheAggregates() {
+        // as left by a deploy that predates the aggregates
+        reactiveMongoTemplate.remove(new Query(), ReviewRatingAggregate.class).block();
+        reactiveMongoTemplate.dropCollection("reviewRatingAggregateVersion").block();
+
+        assertEquals(2L, reviewAggregateService.backfillAggregates().block());
+        // recorded, so the next startup does not rebuild them again
+        assertNull(reviewAggregateService.backfillAggregates().block());
+
+        webTestClient.get()
+                .uri(REVIEWS_URL + "/summary?movieInfoId=1")
+                .exchange()
+                .expectStatus()
+                .is2xxSuccessful()
+                .expectBody()
+                .jsonPath("$.count").isEqualTo(2)
+                .jsonPath("$.averageRating").isEqualTo(9.0);
+    }
+
+    @Test
+    void deleteReview_notCountedByItsAggregate() {
+        // the aggregate of movie 1 never counted the reviews saved in setUp
+        reactiveMongoTemplate.remove(new Query(), ReviewRatingAggregate.class).block();
+
+        webTestClient.delete()
+                .uri(REVIEWS_URL + "/{id}", "abc")
+                .exchange()
+                .expectStatus()
+                .isNoContent();
+
+        webTestClient.get()
+                .uri(REVIEWS_URL + "/summary?movieInfoId=1")
+                .exchange()
+                .expectStatus()
+                .is2xxSuccessful()
+                .expectBody()
+                .jsonPath("$.count").isEqualTo(1)
+                .jsonPath("$.averageRating").isEqualTo(9.0)
+                .jsonPath("$.histogram['9']").isEqualTo(1);
+    }
+
+    @Test
+    void addReviews_bulk() {
+        var reviews = List.of(
+                new Review(null, 1L, "Good Movie", 7.0),
+                new Review(null, 1L, "Negative Movie", -1.0),
+                new Review("abc", 1L, "Duplicate Movie", 3.0),
+                new Review(null, 3L, "New Movie", 6.0));
+
+        var results = webTestClient
+                .post()
+                .uri(REVIEWS_URL + "/bulk")
+                .bodyValue(reviews)
+                .exchange()
+                .expectStatus()
+                .isOk()
+                .expectBodyList(BulkItemResult.class)
+                .returnResult()
+                .getResponseBody();
+
+        assertNotNull(results);
+        assertEquals(4, results.size());
+        assertTrue(results.get(0).isInserted());
+        assertEquals("rating.negative : please pass a non-negative value", results.get(1).getError());
+        assertFalse(results.get(2).isInserted());
+        assertTrue(results.get(3).isInserted());
+
+        webTestClient.get()
+                .uri(REVIEWS_URL + "/summary?movieInfoId=1")
+                .exchange()
+                .expectStatus()
+                .is2xxSuccessful()
+                .expectBody()
+                .jsonPath("$.count").isEqualTo(3)
+                .jsonPath("$.minRating").isEqualTo(7.0)
+                .jsonPath("$.histogram['7']").isEqualTo(1);
+
+        webTestClient.get()
+                .uri(REVIEWS_URL + "/summary?movieInfoId=3")
+                .exchange()
+                .expectStatus()
+                .is2xxSuccessful()
+                .expectBody()
+                .jsonPath("$.count").isEqualTo(1);
+    }
+}
@@ -1,10 +1,13 @@
 package com.rsw.moviesreviewservice.routes;
 
 import com.rsw.moviesreviewservice.domain.Review;
+import com.rsw.moviesreviewservice.domain.ReviewSummary;
 import com.rsw.moviesreviewservice.exceptionhandler.GlobalErrorHandler;
 import com.rsw.moviesreviewservice.handler.ReviewHandler;
 import com.rsw.moviesreviewservice.repository.ReviewReactiveRepository;
 import com.rsw.moviesreviewservice.router.ReviewRouter;
+import com.rsw.moviesreviewservice.service.ReviewAggregateService;
+import com.rsw.moviesreviewservice.stream.StreamConfig;
 import org.junit.jupiter.api.Test;
 import org.springframework.beans.factory.annotation.Autowired;
 import org.springframework.boot.test.autoconfigure.web.reactive.AutoConfigureWebTestClient;
@@ -16,21 +19,29 @@ import org.springframework.web.util.UriComponentsBuilder;
 import reactor.core.publisher.Flux;
 import reactor.core.publisher.Mono;
 
+import java.util.Base64;
 import java.util.List;
+import java.util.Map;
 
 import static org.junit.jupiter.api.Assertions.assertEquals;
 import static org.junit.jupiter.api.Assertions.assertNotNull;
+import static org.mockito.ArgumentMatchers.anyCollection;
+import static org.mockito.ArgumentMatchers.eq;
 import static org.mockito.ArgumentMatchers.isA;
+import static org.mockito.ArgumentMatchers.isNull;
 import static org.mockito.Mockito.when;
 
 @WebFluxTest
 @AutoConfigureWebTestClient
-@ContextConfiguration(classes = {ReviewRouter.class, ReviewHandler.class, GlobalErrorHandler.class}) // inject dependencies
+@ContextConfiguration(classes = {ReviewRouter.class, ReviewHandler.class, GlobalErrorHandler.class, StreamConfig.class}) // inject dependencies
 public class ReviewsUnitTest {
 
     @MockBean
     private ReviewReactiveRepository reviewReactiveRepository;
 
+    @MockBean
+    private ReviewAggregateService reviewAggregateService;
+
     @Autowired
     private WebTestClient webTestClient;
 
@@ -43,6 +54,7 @@ public class ReviewsUnitTest {
 
         when(reviewReactiveRepository.save(isA(Review.class))).thenReturn(Mono.just(new Review("abc",
                 1L, "Awesome Movie", 9.0)));
+        when(reviewAggregateService.onReviewAdded(isA(Review.class))).thenReturn(Mono.empty());
 
         //when
         webTestClient
@@ -89,8 +101,8 @@ public class ReviewsUnitTest {
         var existingReview = new Review("abc", 1L, "Awesome Movie", 9.0);
 
 
-        when(reviewReactiveRepository.findById(isA(String.class))).thenReturn(Mono.just(existingReview));
-        when(reviewReactiveRepository.save(isA(Review.class))).thenReturn(Mono.just(reviewUpdated));
+        when(reviewReactiveRepository.updateFields(isA(String.class), isA(Review.class))).thenReturn(Mono.just(existingReview));
+        when(reviewAggregateService.onReviewUpdated(isA(Review.class), isA(Review.class))).thenReturn(Mono.empty());
 
         //when
         webTestClient
@@ -117,8 +129,8 @@ public class ReviewsUnitTest {
         var existingReview = new Review("abc", 1L, "Awesome Movie", 9.0);
 
         //when
-        when(reviewReactiveRepository.findById(isA(String.class))).thenReturn(Mono.just(existingReview));
-        when(reviewReactiveRepository.deleteById(isA(String.class))).thenReturn(Mono.empty().then());
+        when(reviewReactiveRepository.removeById(isA(String.class))).thenReturn(Mono.just(existingReview));
+        when(reviewAggregateService.onReviewRemoved(isA(Review.class))).thenReturn(Mono.empty());
 
         webTestClient
                 .delete()
@@ -153,8 +165,90 @@ public class ReviewsUnitTest {
 
     }
 
+    @Test
+    void getReviewsByMovieInfoIds() {
+        //given
+        var reviewsList = List.of(
+                new Review("abc", 1L, "Awesome Movie", 9.0),
+                new Review(null, 1L, "Awesome Movie1", 9.0),
+                new Review(null, 2L, "Excellent Movie", 8.0));
+
+        //when
+        when(reviewReactiveRepository.findByMovieInfoIdIn(anyCollection())).thenReturn(Flux.fromIterable(reviewsList));
+
+        webTestClient.post()
+                .uri(REVIEWS_URL + "/lookup")
+                .bodyValue(List.of(1L, 2L))
+                .exchange()
+                .expectStatus()
+                .is2xxSuccessful()
+                .expectBody()
+                .jsonPath("$['1'].length()").isEqualTo(2)
+                .jsonPath("$['2'].length()").isEqualTo(1);
+    }
+
     // validations
 
+    @Test
+    void getReviewPage() {
+        //given
+        var reviewsList = List.of(
+                new Review("abc", 1L, "Awesome Movie", 9.0),
+                new Review("def", 1L, "Awesome Movie1", 9.0),
+                new Review("ghi", 2L, "Excellent Movie", 8.0));
+
+        // one review more than the limit is read to detect the next page
+        when(reviewReactiveRepository.findPageAfter(isNull(), isNull(), eq(3))).thenReturn(Flux.fromIterable(reviewsList));
+
+        webTestClient
+                .get()
+                .uri(REVIEWS_URL + "?limit=2")
+                .exchange()
+                .expectStatus()
+                .is2xxSuccessful()
+                .expectHeader()
+                .valueEquals("X-Next-Cursor", Base64.getUrlEncoder().withoutPadding().encodeToString("def".getBytes()))
+                .expectBodyList(Review.class)
+                .hasSize(2);
+    }
+
+    @Test
+    void getReviewSummary() {
+        //given
+        when(reviewAggregateService.getSummary(1L))
+                .thenReturn(Mono.just(new ReviewSummary(1L, 2, 8.5, 8.0, 9.0, Map.of(8, 1L, 9, 1L))));
+
+        webTestClient
+                .get()
+                .uri(REVIEWS_URL + "/summary?movieInfoId=1")
+                .exchange()
+                .expectStatus()
+                .is2xxSuccessful()
+                .expectBody(ReviewSummary.class)
+                .consumeWith(summaryResponse -> {
+                    var summary = summaryResponse.getResponseBody();
+                    assert summary != null;
+                    assertEquals(2, summary.getCount());
+                    assertEquals(8.5, summary.getAverageRating());
+                });
+    }
+
+    @Test
+    void getReviewSummary_noReviews() {
+        //given
+        when(reviewAggregateService.getSummary(1L)).thenReturn(Mono.just(ReviewSummary.empty(1L)));
+
+        webTestClient
+                .get()
+                .uri(REVIEWS_URL + "/summary?movieInfoId=1")
+                .exchange()
+                .expectStatus()
+                .is2xxSuccessful()
+                .expectBody()
+                .jsonPath("$.movieInfoId").isEqualTo(1)
+                .jsonPath("$.count").isEqualTo(0);
+    }
+
     @Test
     void addReviewValidation() {
         //given
@@ -0,0 +1,106 @@
+package com.rsw.moviesreviewservice.service;
+
+import com.rsw.moviesreviewservice.domain.Review;
+import com.rsw.moviesreviewservice.domain.ReviewRatingAggregate;
+import com.rsw.moviesreviewservice.exception.ReviewWriteRejectedException;
+import com.rsw.moviesreviewservice.repository.ReviewReactiveRepository;
+import io.micrometer.core.instrument.MeterRegistry;
+import org.junit.jupiter.api.AfterEach;
+import org.junit.jupiter.api.Test;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.beans.factory.support.StaticListableBeanFactory;
+import org.springframework.boot.test.context.SpringBootTest;
+import org.springframework.dao.DataIntegrityViolationException;
+import org.springframework.data.mongodb.core.ReactiveMongoTemplate;
+import org.springframework.data.mongodb.core.query.Query;
+import org.springframework.test.context.ActiveProfiles;
+import org.springframework.test.context.TestPropertySource;
+import reactor.core.publisher.Flux;
+import reactor.test.StepVerifier;
+
+import java.time.Duration;
+import java.util.List;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+
+@SpringBootTest
+@ActiveProfiles("test")
+@TestPropertySource(properties = {"spring.mongodb.embedded.version=5.0.6",
+        "reviews.aggregates.rebuildOnStartup=false",
+        "reviews.aggregates.backfillOnStartup=false",
+        "reviews.writeBehind.enabled=true",
+        "reviews.writeBehind.maxBatchSize=50",
+        "reviews.writeBehind.maxLatency=100ms"})
+class ReviewWriteBatcherIntgTest {
+
+    @Autowired
+    ReviewWriteBatcher reviewWriteBatcher;
+
+    @Autowired
+    ReviewReactiveRepository reviewReactiveRepository;
+
+    @Autowired
+    ReviewAggregateService reviewAggregateService;
+
+    @Autowired
+    ReactiveMongoTemplate reactiveMongoTemplate;
+
+    @Autowired
+    MeterRegistry meterRegistry;
+
+    @AfterEach
+    void tearDown() {
+        reviewReactiveRepository.deleteAll().block();
+        reactiveMongoTemplate.remove(new Query(), ReviewRatingAggregate.class).block();
+    }
+
+    @Test
+    void save_coalescesConcurrentWrites() {
+        var saved = Flux.range(0, 20)
+                .flatMap(i -> reviewWriteBatcher.save(new Review(null, 1L, "Review " + i, 8.0)))
+                .collectList()
+                .block();
+
+        assertEquals(20, saved.size());
+        assertTrue(saved.stream().allMatch(review -> review.getReviewId() != null));
+        assertEquals(20L, reviewAggregateService.getSummary(1L).block().getCount());
+        var batchSizes = meterRegistry.get("reviews.writeBehind.batchSize").summary();
+        assertTrue(batchSizes.count() < 20);
+    }
+
+    @Test
+    void save_failsOnlyTheRejectedReview() {
+        reviewWriteBatcher.save(new Review("abc", 1L, "First", 9.0)).block();
+
+        var duplicate = reviewWriteBatcher.save(new Review("abc", 1L, "Duplicate", 9.0));
+        var other = reviewWriteBatcher.save(new Review(null, 1L, "Other", 7.0));
+
+        var results = Flux.merge(
+                        duplicate.map(Review::getComment).onErrorReturn(DataIntegrityViolationException.class, "rejected"),
+                        other.map(Review::getComment))
+                .collectList()
+                .block();
+
+        assertEquals(2, results.size());
+        assertTrue(results.containsAll(List.of("rejected", "Other")));
+        assertEquals(2L, reviewAggregateService.getSummary(1L).block().getCount());
+    }
+
+    @Test
+    void save_rejectsWritesBeyondMaxPending() {
+        var batcher = new ReviewWriteBatcher(reviewReactiveRepository, reviewAggregateService, 50, Duration.ofMillis(200), 1,
+                new StaticListableBeanFactory().getBeanProvider(MeterRegistry.class));
+        try {
+            var first = batcher.save(new Review(null, 1L, "First", 9.0)).toFuture();
+
+            StepVerifier.create(batcher.save(new Review(null, 1L, "Second", 7.0)))
+                    .expectError(ReviewWriteRejectedException.class)
+                    .verify();
+
+            assertEquals("First", first.join().getComment());
+        } finally {
+            batcher.close();
+        }
+    }
+}
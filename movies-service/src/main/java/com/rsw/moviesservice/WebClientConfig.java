@@ -1,13 +1,71 @@
 package com.rsw.moviesservice;
 
+import io.netty.channel.ChannelOption;
+import org.springframework.beans.factory.annotation.Value;
 import org.springframework.context.annotation.Bean;
 import org.springframework.context.annotation.Configuration;
+import org.springframework.http.client.reactive.ReactorClientHttpConnector;
 import org.springframework.web.reactive.function.client.WebClient;
+import reactor.netty.http.HttpProtocol;
+import reactor.netty.http.client.HttpClient;
+import reactor.netty.resources.ConnectionProvider;
+import reactor.netty.resources.LoopResources;
+
+import java.time.Duration;
 
 @Configuration
 public class WebClientConfig {
+
+    /**
+     * Connection pool shared by all downstream calls. Limits apply per remote host; callers that
+     * cannot get a connection wait in a bounded queue and fail after {@code pendingAcquireTimeout}.
+     * Pool gauges are published as {@code reactor.netty.connection.provider.*}.
+     */
+    @Bean(destroyMethod = "dispose")
+    public ConnectionProvider restClientConnectionProvider(
+            @Value("${restClient.pool.maxConnections:500}") int maxConnections,
+            @Value("${restClient.pool.pendingAcquireMaxCount:1000}") int pendingAcquireMaxCount,
+            @Value("${restClient.pool.pendingAcquireTimeout:5s}") Duration pendingAcquireTimeout,
+            @Value("${restClient.pool.maxIdleTime:30s}") Duration maxIdleTime,
+            @Value("${restClient.pool.maxLifeTime:5m}") Duration maxLifeTime,
+            @Value("${restClient.pool.evictionInterval:30s}") Duration evictionInterval,
+            @Value("${restClient.pool.metrics:true}") boolean metrics) {
+        return ConnectionProvider.builder("restClient")
+                .maxConnections(maxConnections)
+                .pendingAcquireMaxCount(pendingAcquireMaxCount)
+                .pendingAcquireTimeout(pendingAcquireTimeout)
+                .maxIdleTime(maxIdleTime)
+                .maxLifeTime(maxLifeTime)
+                .evictInBackground(evictionInterval)
+                .metrics(metrics)
+                .build();
+    }
+
+    // 0 keeps the Reactor Netty default of one thread per core
+    @Bean(destroyMethod = "dispose")
+    public LoopResources restClientLoopResources(@Value("${restClient.eventLoopThreads:0}") int eventLoopThreads) {
+        var threads = eventLoopThreads > 0 ? eventLoopThreads : LoopResources.DEFAULT_IO_WORKER_COUNT;
+        return LoopResources.create("restClient", threads, true);
+    }
+
+    // The response timeout is set per request by the clients, so that event streams can stay idle
+    @Bean
+    public HttpClient restHttpClient(ConnectionProvider restClientConnectionProvider,
+                                     LoopResources restClientLoopResources,
+                                     @Value("${restClient.connectTimeout:2s}") Duration connectTimeout,
+                                     @Value("${restClient.compression:true}") boolean compression,
+                                     @Value("${restClient.protocols:HTTP11}") HttpProtocol[] protocols) {
+        return HttpClient.create(restClientConnectionProvider)
+                .runOn(restClientLoopResources)
+                .option(ChannelOption.CONNECT_TIMEOUT_MILLIS, (int) connectTimeout.toMillis())
+                .compress(compression)
+                .protocol(protocols);
+    }
+
     @Bean
-    public WebClient webClient(WebClient.Builder builder) {
-        return builder.build();
+    public WebClient webClient(WebClient.Builder builder, HttpClient restHttpClient) {
+        return builder
+                .clientConnector(new ReactorClientHttpConnector(restHttpClient))
+                .build();
     }
 }
@@ -0,0 +1,130 @@
+package com.rsw.moviesservice.cache;
+
+import com.rsw.moviesservice.domain.MovieInfo;
+import io.micrometer.core.instrument.Counter;
+import io.micrometer.core.instrument.Gauge;
+import io.micrometer.core.instrument.MeterRegistry;
+import lombok.extern.slf4j.Slf4j;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.stereotype.Component;
+import reactor.core.publisher.Mono;
+
+import java.time.Duration;
+import java.util.LinkedHashMap;
+import java.util.Map;
+import java.util.function.Function;
+
+/**
+ * Size bounded, TTL based in-process cache of {@link MovieInfo}s. Entries are kept in LRU order and
+ * hold the loading {@link Mono} itself, so concurrent misses for the same id share one downstream call.
+ */
+@Slf4j
+@Component
+public class MovieInfoCache {
+
+    @Value("${movies.cache.movieInfo.enabled:true}")
+    private boolean enabled;
+
+    @Value("${movies.cache.movieInfo.maxSize:10000}")
+    private int maxSize;
+
+    @Value("${movies.cache.movieInfo.ttl:5m}")
+    private Duration ttl;
+
+    // guarded by this
+    private final Map<String, Entry> entries = new LinkedHashMap<>(16, 0.75f, true) {
+        @Override
+        protected boolean removeEldestEntry(Map.Entry<String, Entry> eldest) {
+            if (size() > maxSize) {
+                sizeEvictions.increment();
+                return true;
+            }
+            return false;
+        }
+    };
+
+    private final Counter hits;
+    private final Counter misses;
+    private final Counter sizeEvictions;
+    private final Counter expiredEvictions;
+    private final Counter invalidations;
+
+    public MovieInfoCache(MeterRegistry meterRegistry) {
+        this.hits = meterRegistry.counter("movies.cache.movieInfo.requests", "result", "hit");
+        this.misses = meterRegistry.counter("movies.cache.movieInfo.requests", "result", "miss");
+        this.sizeEvictions = meterRegistry.counter("movies.cache.movieInfo.evictions", "cause", "size");
+        this.expiredEvictions = meterRegistry.counter("movies.cache.movieInfo.evictions", "cause", "expired");
+        this.invalidations = meterRegistry.counter("movies.cache.movieInfo.evictions", "cause", "invalidated");
+        Gauge.builder("movies.cache.movieInfo.size", this, MovieInfoCache::size)
+                .register(meterRegistry);
+    }
+
+    public Mono<MovieInfo> get(String movieId, Function<String, Mono<MovieInfo>> loader) {
+        if (!enabled) {
+            return loader.apply(movieId);
+        }
+        return Mono.defer(() -> {
+            Entry entry;
+            synchronized (this) {
+                entry = entries.get(movieId);
+                if (entry != null && entry.isExpired()) {
+                    entries.remove(movieId);
+                    expiredEvictions.increment();
+                    entry = null;
+                }
+                if (entry != null) {
+                    hits.increment();
+                } else {
+                    misses.increment();
+                    entry = new Entry(ttl);
+                    var loading = entry;
+                    entry.value = loader.apply(movieId)
+                            .doOnError(ex -> remove(movieId, loading))
+                            .cache();
+                    entries.put(movieId, entry);
+                }
+            }
+            return entry.value;
+        });
+    }
+
+    /**
+     * Replaces an already cached MovieInfo with a newer version, restarting its TTL. Ids that are
+     * not cached are ignored so that change feeds do not fill the cache with cold entries.
+     */
+    public synchronized void refresh(MovieInfo movieInfo) {
+        var movieId = movieInfo.getMovieInfoId();
+        if (movieId != null && entries.containsKey(movieId)) {
+            var entry = new Entry(ttl);
+            entry.value = Mono.just(movieInfo);
+            entries.put(movieId, entry);
+        }
+    }
+
+    public synchronized void invalidate(String movieId) {
+        if (entries.remove(movieId) != null) {
+            invalidations.increment();
+        }
+    }
+
+    public synchronized int size() {
+        return entries.size();
+    }
+
+    private synchronized void remove(String movieId, Entry entry) {
+        entries.remove(movieId, entry);
+    }
+
+    private static class Entry {
+        private final long expiresAt;
+        private Mono<MovieInfo> value;
+
+        private Entry(Duration ttl) {
+            this.expiresAt = System.nanoTime() + ttl.toNanos();
+        }
+
+        private boolean isExpired() {
+            return System.nanoTime() - expiresAt > 0;
+        }
+    }
+}
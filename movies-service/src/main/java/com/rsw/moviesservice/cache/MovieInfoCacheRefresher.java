@@ -0,0 +1,59 @@
+package com.rsw.moviesservice.cache;
+
+import com.rsw.moviesservice.client.MoviesInfoRestClient;
+import com.rsw.moviesservice.domain.MovieInfo;
+import lombok.extern.slf4j.Slf4j;
+import org.springframework.beans.factory.DisposableBean;
+import org.springframework.boot.autoconfigure.condition.ConditionalOnProperty;
+import org.springframework.boot.context.event.ApplicationReadyEvent;
+import org.springframework.context.ApplicationListener;
+import org.springframework.http.codec.ServerSentEvent;
+import org.springframework.stereotype.Component;
+import reactor.core.Disposable;
+import reactor.util.retry.Retry;
+
+import java.time.Duration;
+
+/**
+ * Follows the movies-info-service {@code /events} feed, refreshing the cached MovieInfos it
+ * announces as added or updated and evicting the deleted ones. The client reconnects the feed where it stopped; only when it gives up, on a client
+ * error, is the feed subscribed again with backoff, from the live events.
+ */
+@Slf4j
+@Component
+@ConditionalOnProperty(name = "movies.cache.movieInfo.streamRefresh", havingValue = "true")
+public class MovieInfoCacheRefresher implements ApplicationListener<ApplicationReadyEvent>, DisposableBean {
+
+    private MoviesInfoRestClient moviesInfoRestClient;
+    private MovieInfoCache movieInfoCache;
+    private Disposable subscription;
+
+    public MovieInfoCacheRefresher(MoviesInfoRestClient moviesInfoRestClient, MovieInfoCache movieInfoCache) {
+        this.moviesInfoRestClient = moviesInfoRestClient;
+        this.movieInfoCache = movieInfoCache;
+    }
+
+    @Override
+    public void onApplicationEvent(ApplicationReadyEvent event) {
+        subscription = moviesInfoRestClient.retrieveMovieInfoEvents()
+                .doOnNext(this::apply)
+                .doOnError(ex -> log.warn("MovieInfo stream failed, reconnecting : {}", ex.getMessage()))
+                .retryWhen(Retry.backoff(Long.MAX_VALUE, Duration.ofSeconds(1)).maxBackoff(Duration.ofSeconds(30)))
+                .subscribe();
+    }
+
+    void apply(ServerSentEvent<MovieInfo> event) {
+        if (MoviesInfoRestClient.DELETE_EVENT.equals(event.event())) {
+            movieInfoCache.invalidate(event.data().getMovieInfoId());
+        } else {
+            movieInfoCache.refresh(event.data());
+        }
+    }
+
+    @Override
+    public void destroy() {
+        if (subscription != null) {
+            subscription.dispose();
+        }
+    }
+}
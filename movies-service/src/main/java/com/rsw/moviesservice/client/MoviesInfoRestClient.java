@@ -1,36 +1,84 @@
 package com.rsw.moviesservice.client;
 
 import com.rsw.moviesservice.domain.MovieInfo;
+import com.rsw.moviesservice.domain.MovieInfoLookup;
 import com.rsw.moviesservice.exception.MoviesInfoClientException;
 import com.rsw.moviesservice.exception.MoviesInfoServerException;
+import com.rsw.moviesservice.util.Bulkhead;
+import com.rsw.moviesservice.util.CircuitBreaker;
+import com.rsw.moviesservice.util.HedgedRequests;
+import com.rsw.moviesservice.util.ResilienceRegistry;
 import com.rsw.moviesservice.util.RetryUtil;
+import com.rsw.moviesservice.util.SingleFlight;
 import lombok.extern.slf4j.Slf4j;
 import org.springframework.beans.factory.annotation.Value;
+import org.springframework.core.ParameterizedTypeReference;
 import org.springframework.http.HttpStatus;
+import org.springframework.http.client.reactive.ClientHttpRequest;
+import org.springframework.http.MediaType;
+import org.springframework.http.codec.ServerSentEvent;
 import org.springframework.stereotype.Component;
 import org.springframework.web.reactive.function.client.WebClient;
+import org.springframework.web.reactive.function.client.WebClientRequestException;
 import reactor.core.Exceptions;
 import reactor.core.publisher.Flux;
 import reactor.core.publisher.Mono;
+import reactor.netty.http.client.HttpClientRequest;
 import reactor.util.retry.Retry;
 
+import java.io.IOException;
 import java.time.Duration;
+import java.util.List;
+import java.util.concurrent.TimeoutException;
+import java.util.concurrent.atomic.AtomicReference;
 
 @Slf4j
 @Component
 public class MoviesInfoRestClient {
 
+    public static final String INSERT_EVENT = "insert";
+    public static final String DELETE_EVENT = "delete";
+
     private WebClient webClient;
+    private RetryUtil retryUtil;
+    private HedgedRequests hedgedRequests;
+    private CircuitBreaker circuitBreaker;
+    private Bulkhead bulkhead;
 
     @Value("${restClient.moviesInfoUrl}")
     private String moviesInfoUrl;
 
-    public MoviesInfoRestClient(WebClient webClient) {
+    @Value("${restClient.singleFlight.enabled:true}")
+    private boolean singleFlightEnabled;
+
+    @Value("${restClient.responseTimeout:5s}")
+    private Duration responseTimeout;
+
+    @Value("${restClient.stream.reconnect.firstBackoff:1s}")
+    private Duration reconnectFirstBackoff;
+
+    @Value("${restClient.stream.reconnect.maxBackoff:30s}")
+    private Duration reconnectMaxBackoff;
+
+    private final SingleFlight<String, MovieInfo> movieInfoFlights = new SingleFlight<>();
+
+    public MoviesInfoRestClient(WebClient webClient, RetryUtil retryUtil, HedgedRequests hedgedRequests,
+                                ResilienceRegistry resilienceRegistry) {
         this.webClient = webClient;
+        this.retryUtil = retryUtil;
+        this.hedgedRequests = hedgedRequests;
+        this.circuitBreaker = resilienceRegistry.circuitBreaker("moviesInfo");
+        this.bulkhead = resilienceRegistry.bulkhead("moviesInfo");
     }
 
     public Mono<MovieInfo> retrieveMovieInfo(String movieId) {
+        if (singleFlightEnabled) {
+            return movieInfoFlights.execute(movieId, () -> fetchMovieInfo(movieId));
+        }
+        return fetchMovieInfo(movieId);
+    }
 
+    private Mono<MovieInfo> fetchMovieInfo(String movieId) {
 
         /*var retrySpec = Retry.fixedDelay(3, Duration.ofSeconds(1))
                 .filter(ex -> ex instanceof  MoviesInfoServerException)
@@ -39,9 +87,10 @@ public class MoviesInfoRestClient {
                 ));*/
         var url = moviesInfoUrl.concat("/{id}");
 
-        return webClient
+        return bulkhead.decorate(retryUtil.withRetry(circuitBreaker.decorate(hedgedRequests.hedge("moviesInfo", () -> webClient
                 .get()
                 .uri(url, movieId)
+                .httpRequest(this::applyResponseTimeout)
                 .retrieve()
                 .onStatus(HttpStatus::is4xxClientError, (clientResponse -> {
                     log.info("Status code : {}", clientResponse.statusCode().value());
@@ -56,20 +105,95 @@ public class MoviesInfoRestClient {
                     return clientResponse.bodyToMono(String.class)
                             .flatMap(response -> Mono.error(new MoviesInfoServerException(response)));
                 }))
-                .bodyToMono(MovieInfo.class)
+                .bodyToMono(MovieInfo.class)))))
                 //.retry(3)
-                .retryWhen(RetryUtil.retrySpec())
                 .log();
     }
 
+    public Mono<MovieInfoLookup> retrieveMovieInfos(List<String> movieIds) {
+        var url = moviesInfoUrl.concat("/lookup");
+
+        return bulkhead.decorate(retryUtil.withRetry(circuitBreaker.decorate(webClient
+                .post()
+                .uri(url)
+                .httpRequest(this::applyResponseTimeout)
+                .bodyValue(movieIds)
+                .retrieve()
+                .onStatus(HttpStatus::is4xxClientError, (clientResponse -> {
+                    log.info("Status code : {}", clientResponse.statusCode().value());
+                    return clientResponse.bodyToMono(String.class)
+                            .flatMap(response -> Mono.error(new MoviesInfoClientException(response, clientResponse.statusCode().value())));
+                }))
+                .onStatus(HttpStatus::is5xxServerError, (clientResponse -> {
+                    log.info("Status code : {}", clientResponse.statusCode().value());
+                    return clientResponse.bodyToMono(String.class)
+                            .flatMap(response -> Mono.error(new MoviesInfoServerException(response)));
+                }))
+                .bodyToMono(MovieInfoLookup.class))));
+    }
+
+    /**
+     * The MovieInfos added, as announced by {@link #retrieveMovieInfoEvents()}; events without a
+     * name come from a movies-info-service that only announced additions.
+     */
     public Flux<MovieInfo> retrieveMovieInfoStream() {
-        var url = moviesInfoUrl.concat("/stream");
+        return retrieveMovieInfoEvents()
+                .filter(event -> event.event() == null || INSERT_EVENT.equals(event.event()))
+                .map(ServerSentEvent::data);
+    }
+
+    /**
+     * Follows the server-sent MovieInfo events, named {@code insert}, {@code update} or
+     * {@code delete}; the data of a delete only carries the movieInfoId. The stream reconnects by
+     * itself whenever the connection drops, the server fails or the stream completes, with a backoff
+     * that starts over once events arrive again. Every reconnect sends the id of the last event
+     * received as {@code Last-Event-ID}, so it continues where it stopped instead of starting over.
+     * Reconnects do not draw on the retry budget of the request calls; a client error ends the stream.
+     */
+    public Flux<ServerSentEvent<MovieInfo>> retrieveMovieInfoEvents() {
+        var url = moviesInfoUrl.concat("/events");
         /*var retrySpec = RetrySpec.fixedDelay(3, Duration.ofSeconds(1))
                 .filter((ex) -> ex instanceof MoviesInfoServerException)
                 .onRetryExhaustedThrow(((retryBackoffSpec, retrySignal) -> Exceptions.propagate(retrySignal.failure())));*/
 
+        return Flux.defer(() -> {
+            // outlives the reconnects of this subscription
+            var lastEventId = new AtomicReference<String>();
+            return Flux.defer(() -> fetchMovieInfoEvents(url, lastEventId.get()))
+                    .doOnNext(event -> {
+                        if (event.id() != null) {
+                            lastEventId.set(event.id());
+                        }
+                    })
+                    .retryWhen(Retry.backoff(Long.MAX_VALUE, reconnectFirstBackoff)
+                            .maxBackoff(reconnectMaxBackoff)
+                            .transientErrors(true)
+                            .filter(MoviesInfoRestClient::isReconnectable)
+                            .doBeforeRetry(retrySignal -> log.warn("MovieInfo event stream failed, reconnecting after {} : {}",
+                                    lastEventId.get(), retrySignal.failure().toString())))
+                    .repeatWhen(completed -> completed.delayElements(reconnectFirstBackoff));
+        })
+                .filter(event -> event.data() != null)
+                .log();
+    }
+
+    // a dropped or refused connection, a server error or a stalled stream
+    private static boolean isReconnectable(Throwable ex) {
+        return ex instanceof WebClientRequestException
+                || ex instanceof IOException
+                || ex instanceof MoviesInfoServerException
+                || ex instanceof TimeoutException;
+    }
+
+    private Flux<ServerSentEvent<MovieInfo>> fetchMovieInfoEvents(String url, String lastEventId) {
         return webClient.get()
                 .uri(url)
+                .accept(MediaType.TEXT_EVENT_STREAM)
+                .headers(headers -> {
+                    if (lastEventId != null) {
+                        headers.set("Last-Event-ID", lastEventId);
+                    }
+                })
                 .retrieve()
                 .onStatus(HttpStatus::is4xxClientError, (clientResponse -> {
                     log.info("Status code : {}", clientResponse.statusCode().value());
@@ -81,9 +205,12 @@ public class MoviesInfoRestClient {
                     return clientResponse.bodyToMono(String.class)
                             .flatMap(response -> Mono.error(new MoviesInfoServerException(response)));
                 }))
-                .bodyToFlux(MovieInfo.class)
-                //.retry(3)
-                .retryWhen(RetryUtil.retrySpec())
-                .log();
+                .bodyToFlux(new ParameterizedTypeReference<ServerSentEvent<MovieInfo>>() {
+                });
+    }
+
+    private void applyResponseTimeout(ClientHttpRequest httpRequest) {
+        HttpClientRequest reactorRequest = httpRequest.getNativeRequest();
+        reactorRequest.responseTimeout(responseTimeout);
     }
 }
@@ -1,39 +1,104 @@
 package com.rsw.moviesservice.client;
 
 import com.rsw.moviesservice.domain.Review;
+import com.rsw.moviesservice.domain.ReviewSort;
+import com.rsw.moviesservice.domain.ReviewSummary;
 import com.rsw.moviesservice.exception.ReviewsClientException;
 import com.rsw.moviesservice.exception.ReviewsServerException;
+import com.rsw.moviesservice.util.Bulkhead;
+import com.rsw.moviesservice.util.CircuitBreaker;
+import com.rsw.moviesservice.util.HedgedRequests;
+import com.rsw.moviesservice.util.ResilienceRegistry;
 import com.rsw.moviesservice.util.RetryUtil;
+import com.rsw.moviesservice.util.SingleFlight;
 import lombok.extern.slf4j.Slf4j;
 import org.springframework.beans.factory.annotation.Value;
+import org.springframework.core.ParameterizedTypeReference;
 import org.springframework.http.HttpStatus;
+import org.springframework.http.client.reactive.ClientHttpRequest;
 import org.springframework.stereotype.Component;
 import org.springframework.web.reactive.function.client.WebClient;
 import org.springframework.web.util.UriComponentsBuilder;
 import reactor.core.publisher.Flux;
 import reactor.core.publisher.Mono;
+import reactor.netty.http.client.HttpClientRequest;
+
+import java.time.Duration;
+import java.util.List;
+import java.util.Map;
 
 @Slf4j
 @Component
 public class ReviewsRestClient {
 
     private WebClient webClient;
+    private RetryUtil retryUtil;
+    private HedgedRequests hedgedRequests;
+    private CircuitBreaker circuitBreaker;
+    private Bulkhead bulkhead;
 
     @Value("${restClient.reviewsUrl}")
     private String reviewsUrl;
 
-    public ReviewsRestClient(WebClient webClient) {
+    @Value("${restClient.singleFlight.enabled:true}")
+    private boolean singleFlightEnabled;
+
+    @Value("${restClient.responseTimeout:5s}")
+    private Duration responseTimeout;
+
+    private final SingleFlight<String, List<Review>> reviewsFlights = new SingleFlight<>();
+
+    public ReviewsRestClient(WebClient webClient, RetryUtil retryUtil, HedgedRequests hedgedRequests,
+                             ResilienceRegistry resilienceRegistry) {
         this.webClient = webClient;
+        this.retryUtil = retryUtil;
+        this.hedgedRequests = hedgedRequests;
+        this.circuitBreaker = resilienceRegistry.circuitBreaker("reviews");
+        this.bulkhead = resilienceRegistry.bulkhead("reviews");
     }
 
+    /**
+     * Retrieves every review of the movie. Concurrent calls share one collected list, so the reviews
+     * are emitted once the call completed.
+     */
     public Flux<Review> retrieveReviews(String movieId) {
+        if (singleFlightEnabled) {
+            return reviewsFlights.execute(movieId, () -> fetchReviews(movieId, null, 0).collectList())
+                    .flatMapIterable(reviews -> reviews);
+        }
+        return fetchReviews(movieId, null, 0);
+    }
 
-        var url = UriComponentsBuilder.fromHttpUrl(reviewsUrl)
-                .queryParam("movieInfoId", movieId)
-                .buildAndExpand().toString();
+    /**
+     * Streams the reviews as they arrive, without coalescing concurrent calls, so a caller that only
+     * takes part of them cancels its own call.
+     */
+    public Flux<Review> streamReviews(String movieId) {
+        return fetchReviews(movieId, null, 0);
+    }
+
+    /**
+     * Retrieves at most {@code limit} reviews, sorted by the reviews service when {@code sort} is set
+     * and in its storage order otherwise. Limited calls are not coalesced.
+     */
+    public Flux<Review> retrieveReviews(String movieId, ReviewSort sort, int limit) {
+        return fetchReviews(movieId, sort, limit);
+    }
+
+    private Flux<Review> fetchReviews(String movieId, ReviewSort sort, int limit) {
+        var urlBuilder = UriComponentsBuilder.fromHttpUrl(reviewsUrl)
+                .queryParam("movieInfoId", movieId);
+        if (limit > 0) {
+            urlBuilder.queryParam("limit", limit);
+        }
+        if (sort != null) {
+            urlBuilder.queryParam("sort", sort);
+        }
+        var url = urlBuilder.buildAndExpand().toString();
 
-        return webClient.get()
+        return bulkhead.decorate(retryUtil.withRetry(circuitBreaker.decorate(hedgedRequests.hedgeMany("reviews", () -> webClient.get()
                 .uri(url)
+                .httpRequest(this::applyResponseTimeout)
                 .retrieve()
                 .onStatus(HttpStatus::is4xxClientError, (clientResponse -> {
                     log.info("Status code : {}", clientResponse.statusCode().value());
@@ -48,9 +113,62 @@ public class ReviewsRestClient {
                     return clientResponse.bodyToMono(String.class)
                             .flatMap(response -> Mono.error(new ReviewsServerException(response)));
                 }))
-                .bodyToFlux(Review.class)
-                .retryWhen(RetryUtil.retrySpec());
+                .bodyToFlux(Review.class)))));
 
     }
 
+    /**
+     * Retrieves the reviews of many movies in one call, keyed by movieInfoId.
+     */
+    public Mono<Map<String, List<Review>>> retrieveReviews(List<String> movieIds) {
+
+        var url = reviewsUrl.concat("/lookup");
+
+        return bulkhead.decorate(retryUtil.withRetry(circuitBreaker.decorate(webClient.post()
+                .uri(url)
+                .httpRequest(this::applyResponseTimeout)
+                .bodyValue(movieIds)
+                .retrieve()
+                .onStatus(HttpStatus::is4xxClientError, (clientResponse -> {
+                    log.info("Status code : {}", clientResponse.statusCode().value());
+                    return clientResponse.bodyToMono(String.class)
+                            .flatMap(response -> Mono.error(new ReviewsClientException(response)));
+                }))
+                .onStatus(HttpStatus::is5xxServerError, (clientResponse -> {
+                    log.info("Status code : {}", clientResponse.statusCode().value());
+                    return clientResponse.bodyToMono(String.class)
+                            .flatMap(response -> Mono.error(new ReviewsServerException(response)));
+                }))
+                .bodyToMono(new ParameterizedTypeReference<Map<String, List<Review>>>() {}))));
+    }
+
+    /**
+     * Retrieves the rating summary of a movie, computed by the reviews service.
+     */
+    public Mono<ReviewSummary> retrieveReviewSummary(String movieId) {
+        var url = UriComponentsBuilder.fromHttpUrl(reviewsUrl.concat("/summary"))
+                .queryParam("movieInfoId", movieId)
+                .buildAndExpand().toString();
+
+        return bulkhead.decorate(retryUtil.withRetry(circuitBreaker.decorate(hedgedRequests.hedge("reviewSummary", () -> webClient.get()
+                .uri(url)
+                .httpRequest(this::applyResponseTimeout)
+                .retrieve()
+                .onStatus(HttpStatus::is4xxClientError, (clientResponse -> {
+                    log.info("Status code : {}", clientResponse.statusCode().value());
+                    return clientResponse.bodyToMono(String.class)
+                            .flatMap(response -> Mono.error(new ReviewsClientException(response)));
+                }))
+                .onStatus(HttpStatus::is5xxServerError, (clientResponse -> {
+                    log.info("Status code : {}", clientResponse.statusCode().value());
+                    return clientResponse.bodyToMono(String.class)
+                            .flatMap(response -> Mono.error(new ReviewsServerException(response)));
+                }))
+                .bodyToMono(ReviewSummary.class)))));
+    }
+
+    private void applyResponseTimeout(ClientHttpRequest httpRequest) {
+        HttpClientRequest reactorRequest = httpRequest.getNativeRequest();
+        reactorRequest.responseTimeout(responseTimeout);
+    }
 }
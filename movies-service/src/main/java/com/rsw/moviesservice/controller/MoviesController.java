@@ -1,40 +1,63 @@
 package com.rsw.moviesservice.controller;
 
 import com.rsw.moviesservice.client.MoviesInfoRestClient;
-import com.rsw.moviesservice.client.ReviewsRestClient;
 import com.rsw.moviesservice.domain.Movie;
+import com.rsw.moviesservice.domain.MovieFrame;
 import com.rsw.moviesservice.domain.MovieInfo;
+import com.rsw.moviesservice.domain.ReviewSort;
+import com.rsw.moviesservice.service.MoviesService;
 import org.springframework.http.MediaType;
 import org.springframework.web.bind.annotation.GetMapping;
 import org.springframework.web.bind.annotation.PathVariable;
+import org.springframework.web.bind.annotation.PostMapping;
+import org.springframework.web.bind.annotation.RequestBody;
 import org.springframework.web.bind.annotation.RequestMapping;
+import org.springframework.web.bind.annotation.RequestParam;
 import org.springframework.web.bind.annotation.RestController;
 import reactor.core.publisher.Flux;
 import reactor.core.publisher.Mono;
 
+import java.util.List;
+
 @RestController
 @RequestMapping("/v1/movies")
 public class MoviesController {
 
     private MoviesInfoRestClient moviesInfoRestClient;
-    private ReviewsRestClient reviewsRestClient;
+    private MoviesService moviesService;
 
-    public MoviesController(MoviesInfoRestClient moviesInfoRestClient, ReviewsRestClient reviewsRestClient) {
+    public MoviesController(MoviesInfoRestClient moviesInfoRestClient, MoviesService moviesService) {
         this.moviesInfoRestClient = moviesInfoRestClient;
-        this.reviewsRestClient = reviewsRestClient;
+        this.moviesService = moviesService;
     }
 
     @GetMapping("/{id}")
-    public Mono<Movie> retrieveMovieById(@PathVariable("id") String movieId){
+    public Mono<Movie> retrieveMovieById(@PathVariable("id") String movieId,
+                                         @RequestParam(value = "reviewLimit", required = false) Integer reviewLimit,
+                                         @RequestParam(value = "sort", required = false) ReviewSort sort){
+        return moviesService.retrieveMovieById(movieId, reviewLimit, sort);
+    }
+
+    @GetMapping("/{id}/summary")
+    public Mono<Movie> retrieveMovieSummaryById(@PathVariable("id") String movieId,
+                                                @RequestParam(value = "topReviews", defaultValue = "5") int topReviews,
+                                                @RequestParam(value = "sort", defaultValue = "RATING_DESC") ReviewSort sort){
+        return moviesService.retrieveMovieSummaryById(movieId, topReviews, sort);
+    }
 
-        return moviesInfoRestClient.retrieveMovieInfo(movieId)
-                //moviesInfoRestClient.retrieveMovieInfo_exchange(movieId)
-                .flatMap(movieInfo -> {
-                    var reviewList = reviewsRestClient.retrieveReviews(movieId)
-                            .collectList();
-                    return reviewList.map(reviews -> new Movie(movieInfo, reviews));
-                });
+    @GetMapping(value = "/{id}/stream", produces = {MediaType.APPLICATION_NDJSON_VALUE, MediaType.TEXT_EVENT_STREAM_VALUE})
+    public Flux<MovieFrame> streamMovieById(@PathVariable("id") String movieId){
+        return moviesService.streamMovieById(movieId);
+    }
+
+    @PostMapping("/batch")
+    public Flux<Movie> retrieveMoviesByIds(@RequestBody List<String> movieIds){
+        return moviesService.retrieveMoviesByIds(movieIds);
+    }
 
+    @PostMapping(value = "/batch/stream", produces = MediaType.APPLICATION_NDJSON_VALUE)
+    public Flux<Movie> streamMoviesByIds(@RequestBody List<String> movieIds){
+        return moviesService.retrieveMoviesByIds(movieIds);
     }
 
     @GetMapping(value = "/stream", produces = MediaType.APPLICATION_NDJSON_VALUE)
@@ -13,4 +13,16 @@ public class Movie {
 
     private MovieInfo movieInfo;
     private List<Review> reviewList;
+    // true when the review list was replaced by a fallback because the reviews call failed or timed out
+    private boolean degraded;
+    // set on the summary view, where reviewList only holds the top reviews
+    private ReviewSummary reviewSummary;
+
+    public Movie(MovieInfo movieInfo, List<Review> reviewList) {
+        this(movieInfo, reviewList, false);
+    }
+
+    public Movie(MovieInfo movieInfo, List<Review> reviewList, boolean degraded) {
+        this(movieInfo, reviewList, degraded, null);
+    }
 }
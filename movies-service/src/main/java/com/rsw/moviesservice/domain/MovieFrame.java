@@ -0,0 +1,40 @@
+package com.rsw.moviesservice.domain;
+
+import lombok.AllArgsConstructor;
+import lombok.Data;
+import lombok.NoArgsConstructor;
+
+import java.util.List;
+
+/**
+ * One line of the streamed Movie aggregation: the MovieInfo first, then chunks of reviews as they
+ * arrive and a closing summary of the reviews that were streamed.
+ */
+@Data
+@NoArgsConstructor
+@AllArgsConstructor
+public class MovieFrame {
+
+    public enum Type {
+        INFO, REVIEWS, SUMMARY
+    }
+
+    private Type type;
+    private MovieInfo movieInfo;
+    private List<Review> reviews;
+    private ReviewSummary summary;
+    // set on the summary frame when the review stream was cut short by a fallback
+    private boolean degraded;
+
+    public static MovieFrame info(MovieInfo movieInfo) {
+        return new MovieFrame(Type.INFO, movieInfo, null, null, false);
+    }
+
+    public static MovieFrame reviews(List<Review> reviews) {
+        return new MovieFrame(Type.REVIEWS, null, reviews, null, false);
+    }
+
+    public static MovieFrame summary(ReviewSummary summary, boolean degraded) {
+        return new MovieFrame(Type.SUMMARY, null, null, summary, degraded);
+    }
+}
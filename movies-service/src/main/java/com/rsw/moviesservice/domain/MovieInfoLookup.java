@@ -0,0 +1,16 @@
+package com.rsw.moviesservice.domain;
+
+import lombok.AllArgsConstructor;
+import lombok.Data;
+import lombok.NoArgsConstructor;
+
+import java.util.List;
+
+@Data
+@NoArgsConstructor
+@AllArgsConstructor
+public class MovieInfoLookup {
+
+    private List<MovieInfo> movieInfos;
+    private List<String> missingIds;
+}
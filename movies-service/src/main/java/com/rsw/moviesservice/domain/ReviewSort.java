@@ -0,0 +1,20 @@
+package com.rsw.moviesservice.domain;
+
+import java.util.Comparator;
+
+public enum ReviewSort {
+
+    // reviews without a rating come last in both orders
+    RATING_DESC(Comparator.comparing(Review::getRating, Comparator.nullsLast(Comparator.<Double>reverseOrder()))),
+    RATING_ASC(Comparator.comparing(Review::getRating, Comparator.nullsLast(Comparator.<Double>naturalOrder())));
+
+    private final Comparator<Review> comparator;
+
+    ReviewSort(Comparator<Review> comparator) {
+        this.comparator = comparator;
+    }
+
+    public Comparator<Review> comparator() {
+        return comparator;
+    }
+}
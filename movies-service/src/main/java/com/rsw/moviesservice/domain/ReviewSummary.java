@@ -0,0 +1,21 @@
+package com.rsw.moviesservice.domain;
+
+import lombok.AllArgsConstructor;
+import lombok.Data;
+import lombok.NoArgsConstructor;
+
+import java.util.Map;
+
+@Data
+@NoArgsConstructor
+@AllArgsConstructor
+public class ReviewSummary {
+
+    private Long movieInfoId;
+    private long count;
+    private Double averageRating;
+    private Double minRating;
+    private Double maxRating;
+    // number of ratings per floor(rating) bucket
+    private Map<Integer, Long> histogram;
+}
@@ -0,0 +1,16 @@
+package com.rsw.moviesservice.exception;
+
+public class DownstreamUnavailableException extends RuntimeException{
+    private String message;
+    private String downstream;
+
+    public DownstreamUnavailableException(String downstream, String message) {
+        super(message);
+        this.message = message;
+        this.downstream = downstream;
+    }
+
+    public String getDownstream() {
+        return downstream;
+    }
+}
@@ -1,5 +1,6 @@
 package com.rsw.moviesservice.exceptionhandler;
 
+import com.rsw.moviesservice.exception.DownstreamUnavailableException;
 import com.rsw.moviesservice.exception.MoviesInfoClientException;
 import lombok.extern.slf4j.Slf4j;
 import org.springframework.http.HttpStatus;
@@ -18,6 +19,12 @@ public class GlobalErrorHandler {
         return ResponseEntity.status(HttpStatus.valueOf(ex.getStatusCode())).body(ex.getMessage());
     }
 
+    @ExceptionHandler(DownstreamUnavailableException.class)
+    public ResponseEntity<String> handleDownstreamUnavailableException(DownstreamUnavailableException ex){
+        log.error("Exception caught in handleDownstreamUnavailableException :  {} " ,ex.getMessage());
+        return ResponseEntity.status(HttpStatus.SERVICE_UNAVAILABLE).body(ex.getMessage());
+    }
+
     @ExceptionHandler(RuntimeException.class)
     public ResponseEntity<String> handleRuntimeException(RuntimeException ex){
         log.error("Exception caught in handleClientException :  {} " ,ex.getMessage(),  ex);
@@ -0,0 +1,8 @@
+package com.rsw.moviesservice.service;
+
+public enum AggregationMode {
+    // fetch the MovieInfo first and only then the reviews
+    SEQUENTIAL,
+    // fetch the MovieInfo and the reviews at the same time
+    PARALLEL
+}
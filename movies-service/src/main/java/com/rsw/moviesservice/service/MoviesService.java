@@ -0,0 +1,349 @@
+package com.rsw.moviesservice.service;
+
+import com.rsw.moviesservice.cache.MovieInfoCache;
+import com.rsw.moviesservice.client.MoviesInfoRestClient;
+import com.rsw.moviesservice.client.ReviewsRestClient;
+import com.rsw.moviesservice.domain.Movie;
+import com.rsw.moviesservice.domain.MovieFrame;
+import com.rsw.moviesservice.domain.MovieInfo;
+import com.rsw.moviesservice.domain.Review;
+import com.rsw.moviesservice.domain.ReviewSort;
+import com.rsw.moviesservice.domain.ReviewSummary;
+import com.rsw.moviesservice.exception.DownstreamUnavailableException;
+import com.rsw.moviesservice.util.TopN;
+import lombok.extern.slf4j.Slf4j;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.stereotype.Service;
+import reactor.core.publisher.Flux;
+import reactor.core.publisher.Mono;
+
+import java.time.Duration;
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.HashMap;
+import java.util.LinkedHashSet;
+import java.util.List;
+import java.util.Map;
+import java.util.Optional;
+import java.util.TreeMap;
+import java.util.function.Supplier;
+
+@Slf4j
+@Service
+public class MoviesService {
+
+    private MoviesInfoRestClient moviesInfoRestClient;
+    private ReviewsRestClient reviewsRestClient;
+    private MovieInfoCache movieInfoCache;
+
+    @Value("${movies.batch.maxConcurrency:8}")
+    private int batchMaxConcurrency;
+
+    // ids resolved per lookup call, a larger batch is split
+    @Value("${movies.batch.lookupSize:100}")
+    private int batchLookupSize;
+
+    @Value("${movies.aggregation.mode:PARALLEL}")
+    private AggregationMode aggregationMode;
+
+    @Value("${movies.aggregation.reviewsFallback:FAIL}")
+    private ReviewsFallback reviewsFallback;
+
+    // bounds the whole reviews call, zero disables the timeout
+    @Value("${movies.aggregation.reviewsTimeout:0s}")
+    private Duration reviewsTimeout;
+
+    @Value("${movies.summary.maxTopReviews:50}")
+    private int maxTopReviews;
+
+    @Value("${movies.aggregation.maxReviewLimit:1000}")
+    private int maxReviewLimit;
+
+    // false for a reviews service that cannot sort and limit, the full stream is then selected here
+    @Value("${movies.aggregation.reviewPushdown:true}")
+    private boolean reviewPushdown;
+
+    @Value("${movies.stream.reviewChunkSize:50}")
+    private int reviewChunkSize;
+
+    // bounds the wait for each streamed review, so a long stream that keeps moving is not cut; zero disables it
+    @Value("${movies.stream.reviewTimeout:0s}")
+    private Duration streamReviewTimeout;
+
+    public MoviesService(MoviesInfoRestClient moviesInfoRestClient, ReviewsRestClient reviewsRestClient,
+                         MovieInfoCache movieInfoCache) {
+        this.moviesInfoRestClient = moviesInfoRestClient;
+        this.reviewsRestClient = reviewsRestClient;
+        this.movieInfoCache = movieInfoCache;
+    }
+
+    public Mono<Movie> retrieveMovieById(String movieId) {
+        return retrieveMovieById(movieId, null, null);
+    }
+
+    /**
+     * With a {@code reviewLimit} only that many reviews (capped at {@code movies.aggregation.maxReviewLimit})
+     * are kept, the first ones in {@code sort} order, so the memory per request does not depend on
+     * the number of reviews of the movie.
+     */
+    public Mono<Movie> retrieveMovieById(String movieId, Integer reviewLimit, ReviewSort sort) {
+        var maxReviews = reviewLimit == null ? -1 : Math.max(0, Math.min(reviewLimit, maxReviewLimit));
+        if (aggregationMode == AggregationMode.SEQUENTIAL) {
+            return retrieveMovieInfo(movieId)
+                    .flatMap(movieInfo -> retrieveReviewList(movieId, maxReviews, sort)
+                            .map(reviews -> toMovie(movieInfo, reviews)));
+        }
+        // the reviews call only needs the movieId, so both hops run concurrently
+        return Mono.zip(retrieveMovieInfo(movieId), retrieveReviewList(movieId, maxReviews, sort))
+                .map(tuple -> toMovie(tuple.getT1(), tuple.getT2()));
+    }
+
+    /**
+     * Aggregates a {@link Movie} with the rating summary computed by the reviews service and only the
+     * first {@code topReviews} reviews in {@code sort} order (capped at {@code movies.summary.maxTopReviews}), so the
+     * response size does not grow with the number of reviews.
+     */
+    public Mono<Movie> retrieveMovieSummaryById(String movieId, int topReviews, ReviewSort sort) {
+        var reviewLimit = Math.max(0, Math.min(topReviews, maxTopReviews));
+        return Mono.zip(retrieveMovieInfo(movieId), retrieveReviewList(movieId, reviewLimit, sort), retrieveReviewSummary(movieId))
+                .map(tuple -> {
+                    var reviewList = tuple.getT2();
+                    var reviewSummary = tuple.getT3();
+                    return new Movie(tuple.getT1(), reviewList.reviews, reviewList.degraded || reviewSummary.isEmpty(),
+                            reviewSummary.orElse(null));
+                });
+    }
+
+    /**
+     * Streams the Movie aggregation as frames: the MovieInfo as soon as it arrives, the reviews in
+     * chunks of {@code movies.stream.reviewChunkSize} while they stream in, then a summary computed on
+     * the way. Both calls start together; only the running totals are kept, never the review list.
+     * The summary covers the reviews sent; when the stream is cut short the reviews of the unfinished
+     * chunk are sent first under the PARTIAL fallback and dropped otherwise.
+     */
+    public Flux<MovieFrame> streamMovieById(String movieId) {
+        var infoFrame = retrieveMovieInfo(movieId)
+                .map(MovieFrame::info);
+        var reviewFrames = Flux.defer(() -> {
+            var stats = new ReviewStats();
+            var pending = new ArrayList<Review>(reviewChunkSize);
+            var reviews = reviewsRestClient.streamReviews(movieId);
+            if (!streamReviewTimeout.isZero()) {
+                reviews = reviews.timeout(streamReviewTimeout);
+            }
+            return reviews
+                    .<List<Review>>handle((review, sink) -> {
+                        pending.add(review);
+                        if (pending.size() >= reviewChunkSize) {
+                            sink.next(drain(pending));
+                        }
+                    })
+                    .concatWith(Flux.defer(() -> flush(pending)))
+                    .doOnNext(chunk -> chunk.forEach(stats::add))
+                    .map(MovieFrame::reviews)
+                    .concatWith(Mono.fromCallable(() -> MovieFrame.summary(stats.toSummary(), false)))
+                    .onErrorResume(ex -> {
+                        if (reviewsFallback == ReviewsFallback.FAIL && !(ex instanceof DownstreamUnavailableException)) {
+                            return Mono.error(ex);
+                        }
+                        log.warn("Reviews stream cut short for movie {} : {}", movieId, ex.toString());
+                        var partial = reviewsFallback == ReviewsFallback.PARTIAL
+                                ? flush(pending)
+                                : Flux.<List<Review>>empty();
+                        return partial
+                                .doOnNext(chunk -> chunk.forEach(stats::add))
+                                .map(MovieFrame::reviews)
+                                .concatWith(Mono.fromCallable(() -> MovieFrame.summary(stats.toSummary(), true)));
+                    });
+        });
+        return Flux.mergeSequential(infoFrame, reviewFrames);
+    }
+
+    // the reviews of an unfinished chunk, if any, as a last chunk
+    private static Flux<List<Review>> flush(List<Review> pending) {
+        return pending.isEmpty() ? Flux.empty() : Flux.just(drain(pending));
+    }
+
+    private static List<Review> drain(List<Review> pending) {
+        var chunk = new ArrayList<>(pending);
+        pending.clear();
+        return chunk;
+    }
+
+    /**
+     * Aggregates a {@link Movie} for every id, in the request order. The ids are split in chunks of at
+     * most {@code movies.batch.lookupSize}, each resolved by one MovieInfo lookup and one reviews lookup
+     * running concurrently, with at most {@code movies.batch.maxConcurrency} chunks at a time. Ids
+     * without a MovieInfo are skipped. When the reviews lookup fails the movies of the chunk are
+     * returned degraded without reviews, unless the reviews fallback is FAIL.
+     */
+    public Flux<Movie> retrieveMoviesByIds(List<String> movieIds) {
+        return Flux.fromIterable(new LinkedHashSet<>(movieIds))
+                .buffer(batchLookupSize)
+                .flatMapSequential(this::retrieveMovieChunk, batchMaxConcurrency);
+    }
+
+    private Flux<Movie> retrieveMovieChunk(List<String> movieIds) {
+        return Mono.zip(lookupMovieInfos(movieIds), retrieveReviewLists(movieIds))
+                .flatMapIterable(tuple -> {
+                    var reviewLists = tuple.getT2();
+                    var movies = new ArrayList<Movie>(tuple.getT1().size());
+                    tuple.getT1().forEach(movieInfo -> movies.add(toMovie(movieInfo, reviewLists.get(movieInfo.getMovieInfoId()))));
+                    return movies;
+                });
+    }
+
+    private Mono<List<MovieInfo>> lookupMovieInfos(List<String> movieIds) {
+        return moviesInfoRestClient.retrieveMovieInfos(movieIds)
+                .map(lookup -> {
+                    if (!lookup.getMissingIds().isEmpty()) {
+                        log.info("Skipping movies {} in batch : no MovieInfo", lookup.getMissingIds());
+                    }
+                    return lookup.getMovieInfos();
+                });
+    }
+
+    private Mono<Map<String, ReviewList>> retrieveReviewLists(List<String> movieIds) {
+        var reviewsByMovieId = reviewsRestClient.retrieveReviews(movieIds);
+        if (!reviewsTimeout.isZero()) {
+            reviewsByMovieId = reviewsByMovieId.timeout(reviewsTimeout);
+        }
+        return reviewsByMovieId
+                .map(reviews -> toReviewLists(movieIds, reviews, false))
+                .onErrorResume(ex -> {
+                    // one response for the whole chunk, there is nothing partial to keep
+                    if (reviewsFallback == ReviewsFallback.FAIL && !(ex instanceof DownstreamUnavailableException)) {
+                        return Mono.error(ex);
+                    }
+                    log.warn("Reviews unavailable for movies {}, returning them without reviews : {}", movieIds, ex.toString());
+                    return Mono.just(toReviewLists(movieIds, Map.of(), true));
+                });
+    }
+
+    private static Map<String, ReviewList> toReviewLists(List<String> movieIds, Map<String, List<Review>> reviewsByMovieId,
+                                                         boolean degraded) {
+        var reviewLists = new HashMap<String, ReviewList>();
+        movieIds.forEach(movieId -> reviewLists.put(movieId,
+                new ReviewList(new ArrayList<>(reviewsByMovieId.getOrDefault(movieId, List.of())), degraded)));
+        return reviewLists;
+    }
+
+    private Mono<MovieInfo> retrieveMovieInfo(String movieId) {
+        return movieInfoCache.get(movieId, moviesInfoRestClient::retrieveMovieInfo);
+    }
+
+    /**
+     * A negative {@code maxReviews} keeps every review. Otherwise the reviews are selected by a
+     * {@link TopN} of that size; the sort and limit are also pushed down to the reviews service, and
+     * without a sort the call is cancelled once enough reviews arrived.
+     */
+    private Mono<ReviewList> retrieveReviewList(String movieId, int maxReviews, ReviewSort sort) {
+        if (maxReviews == 0) {
+            return Mono.fromCallable(() -> new ReviewList(new ArrayList<>(), false));
+        }
+        return Mono.defer(() -> {
+            Flux<Review> reviews;
+            Supplier<List<Review>> received;
+            if (maxReviews < 0) {
+                var all = Collections.synchronizedList(new ArrayList<Review>());
+                reviews = reviewsRestClient.retrieveReviews(movieId)
+                        .doOnNext(all::add);
+                received = () -> new ArrayList<>(all);
+            } else {
+                var selected = new TopN<Review>(maxReviews, sort == null ? null : sort.comparator());
+                reviews = reviewPushdown
+                        ? reviewsRestClient.retrieveReviews(movieId, sort, maxReviews)
+                        : reviewsRestClient.streamReviews(movieId);
+                if (sort == null) {
+                    reviews = reviews.take(maxReviews);
+                }
+                reviews = reviews.doOnNext(selected::offer);
+                received = selected::toList;
+            }
+            var completion = reviews.then();
+            if (!reviewsTimeout.isZero()) {
+                completion = completion.timeout(reviewsTimeout);
+            }
+            return completion
+                    .then(Mono.fromCallable(() -> new ReviewList(received.get(), false)))
+                    .onErrorResume(ex -> {
+                        // an open circuit or a full bulkhead always falls back, whatever the policy
+                        var fallback = ex instanceof DownstreamUnavailableException && reviewsFallback == ReviewsFallback.FAIL
+                                ? ReviewsFallback.EMPTY
+                                : reviewsFallback;
+                        if (fallback == ReviewsFallback.FAIL) {
+                            return Mono.error(ex);
+                        }
+                        log.warn("Reviews unavailable for movie {}, applying {} fallback : {}", movieId, fallback, ex.toString());
+                        var fallbackReviews = fallback == ReviewsFallback.PARTIAL
+                                ? received.get()
+                                : new ArrayList<Review>();
+                        return Mono.just(new ReviewList(fallbackReviews, true));
+                    });
+        });
+    }
+
+    /**
+     * The summary is optional for the response: when it cannot be retrieved the movie is returned
+     * degraded without it, unless the reviews fallback is FAIL.
+     */
+    private Mono<Optional<ReviewSummary>> retrieveReviewSummary(String movieId) {
+        var summary = reviewsRestClient.retrieveReviewSummary(movieId);
+        if (!reviewsTimeout.isZero()) {
+            summary = summary.timeout(reviewsTimeout);
+        }
+        return summary
+                .map(Optional::of)
+                .defaultIfEmpty(Optional.empty())
+                .onErrorResume(ex -> {
+                    if (reviewsFallback == ReviewsFallback.FAIL && !(ex instanceof DownstreamUnavailableException)) {
+                        return Mono.error(ex);
+                    }
+                    log.warn("Review summary unavailable for movie {} : {}", movieId, ex.toString());
+                    return Mono.just(Optional.empty());
+                });
+    }
+
+    private static Movie toMovie(MovieInfo movieInfo, ReviewList reviewList) {
+        return new Movie(movieInfo, reviewList.reviews, reviewList.degraded);
+    }
+
+    // running rating totals of a streamed review list, bounded by the number of histogram buckets
+    private static class ReviewStats {
+        private Long movieInfoId;
+        private long count;
+        private double sum;
+        private Double min;
+        private Double max;
+        private final Map<Integer, Long> histogram = new TreeMap<>();
+
+        private synchronized void add(Review review) {
+            if (movieInfoId == null) {
+                movieInfoId = review.getMovieInfoId();
+            }
+            var rating = review.getRating();
+            if (rating == null) {
+                return;
+            }
+            count++;
+            sum += rating;
+            min = min == null ? rating : Math.min(min, rating);
+            max = max == null ? rating : Math.max(max, rating);
+            histogram.merge((int) Math.floor(rating), 1L, Long::sum);
+        }
+
+        private synchronized ReviewSummary toSummary() {
+            return new ReviewSummary(movieInfoId, count, count == 0 ? null : sum / count, min, max, new TreeMap<>(histogram));
+        }
+    }
+
+    private static class ReviewList {
+        private final List<Review> reviews;
+        private final boolean degraded;
+
+        private ReviewList(List<Review> reviews, boolean degraded) {
+            this.reviews = reviews;
+            this.degraded = degraded;
+        }
+    }
+}
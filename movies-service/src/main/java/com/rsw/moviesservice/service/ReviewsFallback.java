@@ -0,0 +1,10 @@
+package com.rsw.moviesservice.service;
+
+public enum ReviewsFallback {
+    // propagate the reviews error, failing the whole Movie
+    FAIL,
+    // return the Movie with no reviews and mark it as degraded
+    EMPTY,
+    // return the Movie with the reviews received so far and mark it as degraded
+    PARTIAL
+}
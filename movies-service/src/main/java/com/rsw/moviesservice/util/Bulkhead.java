@@ -0,0 +1,62 @@
+package com.rsw.moviesservice.util;
+
+import com.rsw.moviesservice.exception.DownstreamUnavailableException;
+import io.micrometer.core.instrument.Counter;
+import io.micrometer.core.instrument.Gauge;
+import io.micrometer.core.instrument.MeterRegistry;
+import reactor.core.publisher.Flux;
+import reactor.core.publisher.Mono;
+
+import java.util.concurrent.atomic.AtomicInteger;
+
+/**
+ * Limits the number of concurrent calls to one downstream. Calls over the limit are rejected right
+ * away with a {@link DownstreamUnavailableException} instead of queueing for connections and buffers.
+ */
+public class Bulkhead {
+
+    private final String name;
+    private final int maxConcurrentCalls;
+    private final AtomicInteger inFlight = new AtomicInteger();
+    private final Counter rejected;
+
+    public Bulkhead(String name, int maxConcurrentCalls, MeterRegistry meterRegistry) {
+        this.name = name;
+        this.maxConcurrentCalls = maxConcurrentCalls;
+        this.rejected = meterRegistry.counter("restClient.bulkhead.rejected", "name", name);
+        Gauge.builder("restClient.bulkhead.inFlight", inFlight, AtomicInteger::get)
+                .tag("name", name)
+                .register(meterRegistry);
+    }
+
+    public <T> Mono<T> decorate(Mono<T> call) {
+        return Mono.defer(() -> {
+            if (!tryAcquire()) {
+                return Mono.error(bulkheadFull());
+            }
+            return call.doFinally(signalType -> inFlight.decrementAndGet());
+        });
+    }
+
+    public <T> Flux<T> decorate(Flux<T> call) {
+        return Flux.defer(() -> {
+            if (!tryAcquire()) {
+                return Flux.error(bulkheadFull());
+            }
+            return call.doFinally(signalType -> inFlight.decrementAndGet());
+        });
+    }
+
+    private boolean tryAcquire() {
+        if (inFlight.incrementAndGet() > maxConcurrentCalls) {
+            inFlight.decrementAndGet();
+            return false;
+        }
+        return true;
+    }
+
+    private DownstreamUnavailableException bulkheadFull() {
+        rejected.increment();
+        return new DownstreamUnavailableException(name, "Bulkhead " + name + " is full, call not permitted");
+    }
+}
@@ -0,0 +1,194 @@
+package com.rsw.moviesservice.util;
+
+import com.rsw.moviesservice.exception.DownstreamUnavailableException;
+import io.micrometer.core.instrument.Counter;
+import io.micrometer.core.instrument.Gauge;
+import io.micrometer.core.instrument.MeterRegistry;
+import lombok.extern.slf4j.Slf4j;
+import reactor.core.publisher.Flux;
+import reactor.core.publisher.Mono;
+
+import java.time.Duration;
+import java.util.function.Predicate;
+
+/**
+ * Count based circuit breaker. While CLOSED it records the outcome of the last {@code windowSize}
+ * calls and opens once at least {@code minimumCalls} were recorded and either the failure rate or the
+ * slow call rate reaches its threshold. While OPEN every call fails immediately with a
+ * {@link DownstreamUnavailableException}. After {@code waitDurationInOpenState} it lets
+ * {@code permittedCallsInHalfOpenState} trial calls through and closes again or re-opens on their outcome.
+ */
+@Slf4j
+public class CircuitBreaker {
+
+    public enum State {
+        CLOSED, OPEN, HALF_OPEN
+    }
+
+    private static final byte SUCCESS = 0;
+    private static final byte FAILURE = 1;
+    private static final byte SLOW = 2;
+
+    private final String name;
+    private final int minimumCalls;
+    private final float failureRateThreshold;
+    private final float slowCallRateThreshold;
+    private final long slowCallDurationNanos;
+    private final long waitDurationInOpenStateNanos;
+    private final int permittedCallsInHalfOpenState;
+    private final Predicate<Throwable> recordFailure;
+    private final MeterRegistry meterRegistry;
+    private final Counter notPermitted;
+
+    // guarded by this
+    private State state = State.CLOSED;
+    private final byte[] outcomes;
+    private int next;
+    private int recorded;
+    private int failures;
+    private int slowCalls;
+    private long openedAt;
+    private int halfOpenPermitsIssued;
+
+    public CircuitBreaker(String name, int windowSize, int minimumCalls, float failureRateThreshold,
+                          float slowCallRateThreshold, Duration slowCallDuration, Duration waitDurationInOpenState,
+                          int permittedCallsInHalfOpenState, Predicate<Throwable> recordFailure,
+                          MeterRegistry meterRegistry) {
+        this.name = name;
+        this.outcomes = new byte[windowSize];
+        this.minimumCalls = Math.min(minimumCalls, windowSize);
+        this.failureRateThreshold = failureRateThreshold;
+        this.slowCallRateThreshold = slowCallRateThreshold;
+        this.slowCallDurationNanos = slowCallDuration.toNanos();
+        this.waitDurationInOpenStateNanos = waitDurationInOpenState.toNanos();
+        this.permittedCallsInHalfOpenState = permittedCallsInHalfOpenState;
+        this.recordFailure = recordFailure;
+        this.meterRegistry = meterRegistry;
+        this.notPermitted = meterRegistry.counter("restClient.circuitBreaker.notPermitted", "name", name);
+        Gauge.builder("restClient.circuitBreaker.state", this, circuitBreaker -> circuitBreaker.getState().ordinal())
+                .tag("name", name)
+                .description("0 = closed, 1 = open, 2 = half open")
+                .register(meterRegistry);
+    }
+
+    public <T> Mono<T> decorate(Mono<T> call) {
+        return Mono.defer(() -> {
+            if (!tryAcquirePermission()) {
+                return Mono.error(callNotPermitted());
+            }
+            var start = System.nanoTime();
+            return call
+                    .doOnSuccess(value -> onResult(System.nanoTime() - start, false))
+                    .doOnError(ex -> onResult(System.nanoTime() - start, recordFailure.test(ex)))
+                    .doOnCancel(this::releasePermission);
+        });
+    }
+
+    public <T> Flux<T> decorate(Flux<T> call) {
+        return Flux.defer(() -> {
+            if (!tryAcquirePermission()) {
+                return Flux.error(callNotPermitted());
+            }
+            var start = System.nanoTime();
+            return call
+                    .doOnComplete(() -> onResult(System.nanoTime() - start, false))
+                    .doOnError(ex -> onResult(System.nanoTime() - start, recordFailure.test(ex)))
+                    .doOnCancel(this::releasePermission);
+        });
+    }
+
+    public synchronized State getState() {
+        return state;
+    }
+
+    synchronized boolean tryAcquirePermission() {
+        if (state == State.OPEN) {
+            if (System.nanoTime() - openedAt < waitDurationInOpenStateNanos) {
+                return false;
+            }
+            transitionTo(State.HALF_OPEN);
+        }
+        if (state == State.HALF_OPEN) {
+            if (halfOpenPermitsIssued >= permittedCallsInHalfOpenState) {
+                return false;
+            }
+            halfOpenPermitsIssued++;
+        }
+        return true;
+    }
+
+    synchronized void onResult(long durationNanos, boolean failed) {
+        if (state == State.OPEN) {
+            // a call that started before the circuit opened
+            return;
+        }
+        byte outcome = failed ? FAILURE : SUCCESS;
+        if (durationNanos >= slowCallDurationNanos) {
+            outcome |= SLOW;
+        }
+        record(outcome);
+
+        var window = state == State.HALF_OPEN ? permittedCallsInHalfOpenState : minimumCalls;
+        if (recorded < window) {
+            return;
+        }
+        var failureRate = failures * 100.0f / recorded;
+        var slowCallRate = slowCalls * 100.0f / recorded;
+        if (failureRate >= failureRateThreshold || slowCallRate >= slowCallRateThreshold) {
+            log.warn("Circuit breaker {} opening : failure rate {}%, slow call rate {}%", name, failureRate, slowCallRate);
+            transitionTo(State.OPEN);
+        } else if (state == State.HALF_OPEN) {
+            transitionTo(State.CLOSED);
+        }
+    }
+
+    private synchronized void releasePermission() {
+        if (state == State.HALF_OPEN && halfOpenPermitsIssued > 0) {
+            halfOpenPermitsIssued--;
+        }
+    }
+
+    private void record(byte outcome) {
+        if (recorded == outcomes.length) {
+            forget(outcomes[next]);
+        } else {
+            recorded++;
+        }
+        outcomes[next] = outcome;
+        next = (next + 1) % outcomes.length;
+        if ((outcome & FAILURE) != 0) {
+            failures++;
+        }
+        if ((outcome & SLOW) != 0) {
+            slowCalls++;
+        }
+    }
+
+    private void forget(byte outcome) {
+        if ((outcome & FAILURE) != 0) {
+            failures--;
+        }
+        if ((outcome & SLOW) != 0) {
+            slowCalls--;
+        }
+    }
+
+    private void transitionTo(State newState) {
+        meterRegistry.counter("restClient.circuitBreaker.transitions",
+                "name", name, "from", state.name(), "to", newState.name()).increment();
+        state = newState;
+        next = 0;
+        recorded = 0;
+        failures = 0;
+        slowCalls = 0;
+        halfOpenPermitsIssued = 0;
+        if (newState == State.OPEN) {
+            openedAt = System.nanoTime();
+        }
+    }
+
+    private DownstreamUnavailableException callNotPermitted() {
+        notPermitted.increment();
+        return new DownstreamUnavailableException(name, "Circuit breaker " + name + " is " + getState() + ", call not permitted");
+    }
+}
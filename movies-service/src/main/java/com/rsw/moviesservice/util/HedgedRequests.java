@@ -0,0 +1,101 @@
+package com.rsw.moviesservice.util;
+
+import io.micrometer.core.instrument.MeterRegistry;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.stereotype.Component;
+import reactor.core.publisher.Flux;
+import reactor.core.publisher.Mono;
+
+import java.time.Duration;
+import java.util.Map;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.function.Supplier;
+
+/**
+ * Sends a second, identical request when the first one has not answered within the recent
+ * {@code restClient.hedging.percentile} latency of that downstream, and keeps whichever signals first.
+ * Nothing is hedged until {@code restClient.hedging.minSamples} latencies were recorded. Only use
+ * it for idempotent reads.
+ */
+@Component
+public class HedgedRequests {
+
+    private final boolean enabled;
+    private final double percentile;
+    private final Duration minDelay;
+    private final int minSamples;
+    private final MeterRegistry meterRegistry;
+    private final Map<String, LatencyTracker> latencies = new ConcurrentHashMap<>();
+
+    public HedgedRequests(@Value("${restClient.hedging.enabled:false}") boolean enabled,
+                          @Value("${restClient.hedging.percentile:0.95}") double percentile,
+                          @Value("${restClient.hedging.minDelay:50ms}") Duration minDelay,
+                          @Value("${restClient.hedging.minSamples:100}") int minSamples,
+                          MeterRegistry meterRegistry) {
+        this.enabled = enabled;
+        this.percentile = percentile;
+        this.minDelay = minDelay;
+        this.minSamples = minSamples;
+        this.meterRegistry = meterRegistry;
+    }
+
+    public <T> Mono<T> hedge(String downstream, Supplier<Mono<T>> call) {
+        if (!enabled) {
+            return Mono.defer(call);
+        }
+        var tracker = tracker(downstream);
+        return Mono.defer(() -> {
+            if (tracker.count() < minSamples) {
+                return timed(call.get(), tracker);
+            }
+            var hedge = Mono.delay(hedgeDelay(tracker))
+                    .then(Mono.defer(() -> {
+                        meterRegistry.counter("restClient.hedgedRequests", "downstream", downstream).increment();
+                        return timed(call.get(), tracker);
+                    }));
+            return Mono.firstWithSignal(timed(call.get(), tracker), hedge);
+        });
+    }
+
+    public <T> Flux<T> hedgeMany(String downstream, Supplier<Flux<T>> call) {
+        if (!enabled) {
+            return Flux.defer(call);
+        }
+        var tracker = tracker(downstream);
+        return Flux.defer(() -> {
+            if (tracker.count() < minSamples) {
+                return timed(call.get(), tracker);
+            }
+            var hedge = Mono.delay(hedgeDelay(tracker))
+                    .thenMany(Flux.defer(() -> {
+                        meterRegistry.counter("restClient.hedgedRequests", "downstream", downstream).increment();
+                        return timed(call.get(), tracker);
+                    }));
+            return Flux.firstWithSignal(timed(call.get(), tracker), hedge);
+        });
+    }
+
+    private LatencyTracker tracker(String downstream) {
+        return latencies.computeIfAbsent(downstream, key -> new LatencyTracker(1000));
+    }
+
+    // calls are not hedged until minSamples latencies are known, see hedge
+    private Duration hedgeDelay(LatencyTracker tracker) {
+        var delay = Duration.ofNanos(tracker.percentile(percentile));
+        return delay.compareTo(minDelay) > 0 ? delay : minDelay;
+    }
+
+    private static <T> Mono<T> timed(Mono<T> call, LatencyTracker tracker) {
+        return Mono.defer(() -> {
+            var start = System.nanoTime();
+            return call.doOnSuccess(value -> tracker.record(System.nanoTime() - start));
+        });
+    }
+
+    private static <T> Flux<T> timed(Flux<T> call, LatencyTracker tracker) {
+        return Flux.defer(() -> {
+            var start = System.nanoTime();
+            return call.doOnComplete(() -> tracker.record(System.nanoTime() - start));
+        });
+    }
+}
@@ -0,0 +1,59 @@
+package com.rsw.moviesservice.util;
+
+import java.util.Arrays;
+
+/**
+ * Keeps the latencies of the last {@code capacity} calls and answers percentile queries over them.
+ * A percentile is cached and only recomputed once a tenth of the samples has been replaced, so most
+ * queries do not copy and sort the samples.
+ */
+public class LatencyTracker {
+
+    // guarded by this
+    private final long[] samples;
+    private int next;
+    private int count;
+    private int recordedSinceRefresh;
+    private double cachedPercentile = Double.NaN;
+    private long cachedLatency;
+
+    public LatencyTracker(int capacity) {
+        this.samples = new long[capacity];
+    }
+
+    public synchronized void record(long latencyNanos) {
+        samples[next] = latencyNanos;
+        next = (next + 1) % samples.length;
+        count = Math.min(count + 1, samples.length);
+        recordedSinceRefresh++;
+    }
+
+    public synchronized int count() {
+        return count;
+    }
+
+    /**
+     * @return the latency at the given percentile (0..1) in nanoseconds, or -1 when nothing was recorded
+     */
+    public long percentile(double percentile) {
+        long[] sorted;
+        synchronized (this) {
+            if (count == 0) {
+                return -1;
+            }
+            if (percentile == cachedPercentile && recordedSinceRefresh < Math.max(1, count / 10)) {
+                return cachedLatency;
+            }
+            sorted = Arrays.copyOf(samples, count);
+            recordedSinceRefresh = 0;
+        }
+        Arrays.sort(sorted);
+        var index = (int) Math.ceil(percentile * sorted.length) - 1;
+        var latency = sorted[Math.max(0, Math.min(index, sorted.length - 1))];
+        synchronized (this) {
+            cachedPercentile = percentile;
+            cachedLatency = latency;
+        }
+        return latency;
+    }
+}
@@ -0,0 +1,66 @@
+package com.rsw.moviesservice.util;
+
+import com.rsw.moviesservice.exception.MoviesInfoClientException;
+import com.rsw.moviesservice.exception.ReviewsClientException;
+import io.micrometer.core.instrument.MeterRegistry;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.stereotype.Component;
+
+import java.time.Duration;
+import java.util.Map;
+import java.util.concurrent.ConcurrentHashMap;
+
+/**
+ * Hands out one {@link CircuitBreaker} and one {@link Bulkhead} per downstream, all configured from
+ * {@code restClient.circuitBreaker.*} and {@code restClient.bulkhead.*}.
+ */
+@Component
+public class ResilienceRegistry {
+
+    @Value("${restClient.circuitBreaker.windowSize:50}")
+    private int windowSize;
+
+    @Value("${restClient.circuitBreaker.minimumCalls:20}")
+    private int minimumCalls;
+
+    @Value("${restClient.circuitBreaker.failureRateThreshold:50}")
+    private float failureRateThreshold;
+
+    @Value("${restClient.circuitBreaker.slowCallRateThreshold:80}")
+    private float slowCallRateThreshold;
+
+    @Value("${restClient.circuitBreaker.slowCallDuration:2s}")
+    private Duration slowCallDuration;
+
+    @Value("${restClient.circuitBreaker.waitDurationInOpenState:10s}")
+    private Duration waitDurationInOpenState;
+
+    @Value("${restClient.circuitBreaker.permittedCallsInHalfOpenState:5}")
+    private int permittedCallsInHalfOpenState;
+
+    @Value("${restClient.bulkhead.maxConcurrentCalls:200}")
+    private int maxConcurrentCalls;
+
+    private final MeterRegistry meterRegistry;
+    private final Map<String, CircuitBreaker> circuitBreakers = new ConcurrentHashMap<>();
+    private final Map<String, Bulkhead> bulkheads = new ConcurrentHashMap<>();
+
+    public ResilienceRegistry(MeterRegistry meterRegistry) {
+        this.meterRegistry = meterRegistry;
+    }
+
+    public CircuitBreaker circuitBreaker(String downstream) {
+        return circuitBreakers.computeIfAbsent(downstream, name -> new CircuitBreaker(name, windowSize, minimumCalls,
+                failureRateThreshold, slowCallRateThreshold, slowCallDuration, waitDurationInOpenState,
+                permittedCallsInHalfOpenState, ResilienceRegistry::isFailure, meterRegistry));
+    }
+
+    public Bulkhead bulkhead(String downstream) {
+        return bulkheads.computeIfAbsent(downstream, name -> new Bulkhead(name, maxConcurrentCalls, meterRegistry));
+    }
+
+    // 4xx answers mean the downstream is healthy
+    private static boolean isFailure(Throwable ex) {
+        return !(ex instanceof MoviesInfoClientException || ex instanceof ReviewsClientException);
+    }
+}
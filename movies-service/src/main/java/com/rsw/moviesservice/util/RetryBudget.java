@@ -0,0 +1,62 @@
+package com.rsw.moviesservice.util;
+
+/**
+ * Caps retries to a fraction of the recent request rate so that a failing downstream does not get
+ * hit by a retry storm. Requests and retries are counted in one-second buckets over a sliding window;
+ * a retry is allowed while {@code retries < minRetriesPerSecond * window + ratio * requests}.
+ */
+public class RetryBudget {
+
+    private final double ratio;
+    private final int minRetriesPerSecond;
+    private final int windowSeconds;
+
+    // guarded by this
+    private final long[] bucketSeconds;
+    private final long[] requests;
+    private final long[] retries;
+
+    public RetryBudget(double ratio, int minRetriesPerSecond, int windowSeconds) {
+        this.ratio = ratio;
+        this.minRetriesPerSecond = minRetriesPerSecond;
+        this.windowSeconds = windowSeconds;
+        this.bucketSeconds = new long[windowSeconds];
+        this.requests = new long[windowSeconds];
+        this.retries = new long[windowSeconds];
+    }
+
+    public synchronized void recordRequest() {
+        requests[bucket(currentSecond())]++;
+    }
+
+    public synchronized boolean tryAcquireRetry() {
+        var now = currentSecond();
+        long requestCount = 0;
+        long retryCount = 0;
+        for (int i = 0; i < windowSeconds; i++) {
+            if (now - bucketSeconds[i] < windowSeconds) {
+                requestCount += requests[i];
+                retryCount += retries[i];
+            }
+        }
+        if (retryCount >= (long) minRetriesPerSecond * windowSeconds + ratio * requestCount) {
+            return false;
+        }
+        retries[bucket(now)]++;
+        return true;
+    }
+
+    private int bucket(long second) {
+        var index = (int) Math.floorMod(second, (long) windowSeconds);
+        if (bucketSeconds[index] != second) {
+            bucketSeconds[index] = second;
+            requests[index] = 0;
+            retries[index] = 0;
+        }
+        return index;
+    }
+
+    private static long currentSecond() {
+        return System.nanoTime() / 1_000_000_000L;
+    }
+}
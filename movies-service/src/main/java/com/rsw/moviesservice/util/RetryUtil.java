@@ -2,18 +2,109 @@ package com.rsw.moviesservice.util;
 
 import com.rsw.moviesservice.exception.MoviesInfoServerException;
 import com.rsw.moviesservice.exception.ReviewsServerException;
+import io.micrometer.core.instrument.Counter;
+import io.micrometer.core.instrument.MeterRegistry;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.stereotype.Component;
 import reactor.core.Exceptions;
+import reactor.core.publisher.Flux;
+import reactor.core.publisher.Mono;
 import reactor.util.retry.Retry;
 
 import java.time.Duration;
+import java.util.concurrent.TimeoutException;
+import java.util.concurrent.atomic.AtomicBoolean;
+import java.util.function.Predicate;
 
+@Component
 public class RetryUtil {
 
-    public static Retry retrySpec() {
-        return Retry.fixedDelay(3, Duration.ofSeconds(1))
-                .filter(ex -> ex instanceof MoviesInfoServerException || ex instanceof ReviewsServerException)
+    private final long maxRetries;
+    private final Duration firstBackoff;
+    private final Duration maxBackoff;
+    private final double jitter;
+    private final Duration perAttemptTimeout;
+    private final RetryBudget retryBudget;
+    private final Counter retries;
+    private final Counter budgetExhausted;
+
+    public RetryUtil(@Value("${restClient.retry.maxRetries:3}") long maxRetries,
+                     @Value("${restClient.retry.firstBackoff:100ms}") Duration firstBackoff,
+                     @Value("${restClient.retry.maxBackoff:2s}") Duration maxBackoff,
+                     @Value("${restClient.retry.jitter:0.5}") double jitter,
+                     @Value("${restClient.retry.perAttemptTimeout:0s}") Duration perAttemptTimeout,
+                     @Value("${restClient.retry.budget.ratio:0.2}") double budgetRatio,
+                     @Value("${restClient.retry.budget.minRetriesPerSecond:10}") int budgetMinRetriesPerSecond,
+                     @Value("${restClient.retry.budget.windowSeconds:10}") int budgetWindowSeconds,
+                     MeterRegistry meterRegistry) {
+        this.maxRetries = maxRetries;
+        this.firstBackoff = firstBackoff;
+        this.maxBackoff = maxBackoff;
+        this.jitter = jitter;
+        this.perAttemptTimeout = perAttemptTimeout;
+        this.retryBudget = new RetryBudget(budgetRatio, budgetMinRetriesPerSecond, budgetWindowSeconds);
+        this.retries = meterRegistry.counter("restClient.retries");
+        this.budgetExhausted = meterRegistry.counter("restClient.retries.budgetExhausted");
+    }
+
+    /**
+     * Exponential backoff with jitter for server errors and attempt timeouts. Every retry draws from
+     * the shared {@link RetryBudget}; once it is spent the original error is propagated right away.
+     */
+    public Retry retrySpec() {
+        return retrySpec(RetryUtil::isRetryable);
+    }
+
+    private Retry retrySpec(Predicate<Throwable> retryable) {
+        return Retry.backoff(maxRetries, firstBackoff)
+                .maxBackoff(maxBackoff)
+                .jitter(jitter)
+                .filter(ex -> retryable.test(ex) && acquireRetry())
                 .onRetryExhaustedThrow(((retryBackoffSpec, retrySignal) ->
                         Exceptions.propagate(retrySignal.failure())
                 ));
     }
+
+    /**
+     * Applies the per-attempt timeout to {@code call} and retries it with {@link #retrySpec()},
+     * counting the call as one request towards the retry budget.
+     */
+    public <T> Mono<T> withRetry(Mono<T> call) {
+        var attempt = perAttemptTimeout.isZero() ? call : call.timeout(perAttemptTimeout);
+        return attempt.retryWhen(retrySpec())
+                .doOnSubscribe(subscription -> retryBudget.recordRequest());
+    }
+
+    /**
+     * Like {@link #withRetry(Mono)}, but the per-attempt timeout only bounds the wait for the first
+     * element, and an attempt is only retried before it emitted one: a retry after that would emit
+     * the same elements again.
+     */
+    public <T> Flux<T> withRetry(Flux<T> call) {
+        return Flux.defer(() -> {
+            var emitted = new AtomicBoolean();
+            var attempt = perAttemptTimeout.isZero()
+                    ? call
+                    : call.timeout(Mono.delay(perAttemptTimeout), element -> Mono.never());
+            return attempt
+                    .doOnNext(element -> emitted.set(true))
+                    .retryWhen(retrySpec(ex -> !emitted.get() && isRetryable(ex)));
+        })
+                .doOnSubscribe(subscription -> retryBudget.recordRequest());
+    }
+
+    private boolean acquireRetry() {
+        if (retryBudget.tryAcquireRetry()) {
+            retries.increment();
+            return true;
+        }
+        budgetExhausted.increment();
+        return false;
+    }
+
+    private static boolean isRetryable(Throwable ex) {
+        return ex instanceof MoviesInfoServerException
+                || ex instanceof ReviewsServerException
+                || ex instanceof TimeoutException;
+    }
 }
@@ -0,0 +1,40 @@
+package com.rsw.moviesservice.util;
+
+import reactor.core.publisher.Mono;
+
+import java.util.Map;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.atomic.AtomicReference;
+import java.util.function.Supplier;
+
+/**
+ * Collapses concurrent calls for the same key into one upstream subscription. Callers that arrive
+ * while a call is in flight receive its result; once it terminates the next caller starts a new one,
+ * so results are never served stale. The subscription is reference counted: when every caller has
+ * cancelled, the upstream call is cancelled as well.
+ */
+public class SingleFlight<K, V> {
+
+    private final Map<K, Mono<V>> inFlight = new ConcurrentHashMap<>();
+
+    public Mono<V> execute(K key, Supplier<Mono<V>> call) {
+        return Mono.defer(() -> inFlight.computeIfAbsent(key, k -> share(k, call)));
+    }
+
+    public int inFlightCount() {
+        return inFlight.size();
+    }
+
+    private Mono<V> share(K key, Supplier<Mono<V>> call) {
+        var shared = new AtomicReference<Mono<V>>();
+        var mono = call.get()
+                .doFinally(signalType -> inFlight.remove(key, shared.get()))
+                .flux()
+                .publish()
+                .refCount()
+                // waits for completion instead of cancelling on the value, which would disconnect the other callers
+                .singleOrEmpty();
+        shared.set(mono);
+        return mono;
+    }
+}
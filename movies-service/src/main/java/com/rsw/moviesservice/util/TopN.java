@@ -0,0 +1,56 @@
+package com.rsw.moviesservice.util;
+
+import java.util.ArrayList;
+import java.util.Comparator;
+import java.util.List;
+import java.util.PriorityQueue;
+
+/**
+ * Keeps the first {@code n} elements in {@code order} out of a stream of any length, in a heap of
+ * at most {@code n} elements. Without an order it keeps the first {@code n} elements received.
+ */
+public class TopN<T> {
+
+    // guarded by this; the head is the element that would be dropped next
+    private final PriorityQueue<T> heap;
+    private final List<T> firstReceived;
+    private final Comparator<? super T> order;
+    private final int n;
+
+    public TopN(int n, Comparator<? super T> order) {
+        this.n = n;
+        this.order = order;
+        this.heap = order == null ? null : new PriorityQueue<>(Math.max(1, n), order.reversed());
+        this.firstReceived = order == null ? new ArrayList<>() : null;
+    }
+
+    public synchronized void offer(T element) {
+        if (n <= 0) {
+            return;
+        }
+        if (order == null) {
+            if (firstReceived.size() < n) {
+                firstReceived.add(element);
+            }
+            return;
+        }
+        if (heap.size() < n) {
+            heap.offer(element);
+        } else if (order.compare(element, heap.peek()) < 0) {
+            heap.poll();
+            heap.offer(element);
+        }
+    }
+
+    /**
+     * @return the selected elements, in {@code order} (or in arrival order without one)
+     */
+    public synchronized List<T> toList() {
+        if (order == null) {
+            return new ArrayList<>(firstReceived);
+        }
+        var selected = new ArrayList<>(heap);
+        selected.sort(order);
+        return selected;
+    }
+}
@@ -0,0 +1,107 @@
+package com.rsw.moviesservice;
+
+import com.github.tomakehurst.wiremock.client.WireMock;
+import com.rsw.moviesservice.client.MoviesInfoRestClient;
+import io.netty.handler.timeout.ReadTimeoutException;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.boot.test.autoconfigure.web.client.AutoConfigureWebClient;
+import org.springframework.boot.test.context.SpringBootTest;
+import org.springframework.cloud.contract.wiremock.AutoConfigureWireMock;
+import org.springframework.test.context.ActiveProfiles;
+import org.springframework.test.context.TestPropertySource;
+import org.springframework.web.reactive.function.client.WebClient;
+import reactor.core.publisher.Flux;
+import reactor.netty.resources.ConnectionProvider;
+import reactor.test.StepVerifier;
+
+import java.time.Duration;
+
+import static com.github.tomakehurst.wiremock.client.WireMock.*;
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+
+@SpringBootTest
+@ActiveProfiles("test")
+@AutoConfigureWebClient
+@AutoConfigureWireMock(port = 8071)
+@TestPropertySource(properties = {
+        "restClient.moviesInfoUrl=http://localhost:8071/v1/movieInfos",
+        "restClient.reviewsUrl=http://localhost:8071/v1/reviews",
+        "restClient.pool.maxConnections=1",
+        "restClient.pool.pendingAcquireMaxCount=1",
+        "restClient.pool.pendingAcquireTimeout=5s",
+        "restClient.responseTimeout=200ms",
+        "restClient.retry.maxRetries=0",
+})
+class WebClientConfigTest {
+
+    private static final String SLOW_URL = "http://localhost:8071/slow";
+
+    @Autowired
+    ConnectionProvider restClientConnectionProvider;
+
+    @Autowired
+    WebClient webClient;
+
+    @Autowired
+    MoviesInfoRestClient moviesInfoRestClient;
+
+    @BeforeEach
+    void setUp() {
+        WireMock.reset();
+    }
+
+    @Test
+    void restClientConnectionProvider_limits() {
+        assertEquals(1, restClientConnectionProvider.maxConnections());
+    }
+
+    @Test
+    void restClientConnectionProvider_rejectsAcquiresBeyondThePendingLimit() {
+        //given
+        stubFor(get(urlEqualTo("/slow"))
+                .willReturn(aResponse()
+                        .withBody("slow")
+                        .withFixedDelay(1000)));
+
+        //when
+        // one call holds the only connection, one waits for it and the third finds the queue full
+        var calls = Flux.range(0, 3)
+                .flatMap(i -> webClient.get()
+                        .uri(SLOW_URL)
+                        .retrieve()
+                        .bodyToMono(String.class));
+
+        //then
+        StepVerifier.create(calls)
+                .expectErrorSatisfies(ex -> assertTrue(hasCause(ex, "PoolAcquirePendingLimitException"), ex.toString()))
+                .verify(Duration.ofSeconds(5));
+    }
+
+    @Test
+    void responseTimeout() {
+        //given
+        stubFor(get(urlEqualTo("/v1/movieInfos/abc"))
+                .willReturn(aResponse()
+                        .withHeader("Content-Type", "application/json")
+                        .withBodyFile("movieinfo.json")
+                        .withFixedDelay(1000)));
+
+        //when
+        StepVerifier.create(moviesInfoRestClient.retrieveMovieInfo("abc"))
+                .expectErrorSatisfies(ex -> assertTrue(hasCause(ex, ReadTimeoutException.class.getSimpleName()), ex.toString()))
+                .verify(Duration.ofSeconds(5));
+    }
+
+    // the pool exception class is shaded inside reactor-netty, so it is matched by name
+    private static boolean hasCause(Throwable ex, String simpleName) {
+        for (var cause = ex; cause != null; cause = cause.getCause()) {
+            if (cause.getClass().getSimpleName().equals(simpleName)) {
+                return true;
+            }
+        }
+        return false;
+    }
+}
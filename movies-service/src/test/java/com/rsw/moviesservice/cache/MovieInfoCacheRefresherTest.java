@@ -0,0 +1,59 @@
+package com.rsw.moviesservice.cache;
+
+import com.rsw.moviesservice.client.MoviesInfoRestClient;
+import com.rsw.moviesservice.domain.MovieInfo;
+import io.micrometer.core.instrument.simple.SimpleMeterRegistry;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.springframework.http.codec.ServerSentEvent;
+import org.springframework.test.util.ReflectionTestUtils;
+import reactor.core.publisher.Mono;
+
+import java.time.Duration;
+import java.time.LocalDate;
+import java.util.List;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.mockito.Mockito.mock;
+
+class MovieInfoCacheRefresherTest {
+
+    private MovieInfoCache movieInfoCache;
+    private MovieInfoCacheRefresher movieInfoCacheRefresher;
+
+    @BeforeEach
+    void setUp() {
+        movieInfoCache = new MovieInfoCache(new SimpleMeterRegistry());
+        ReflectionTestUtils.setField(movieInfoCache, "enabled", true);
+        ReflectionTestUtils.setField(movieInfoCache, "maxSize", 10);
+        ReflectionTestUtils.setField(movieInfoCache, "ttl", Duration.ofMinutes(5));
+        movieInfoCacheRefresher = new MovieInfoCacheRefresher(mock(MoviesInfoRestClient.class), movieInfoCache);
+        movieInfoCache.get("abc", id -> Mono.just(movieInfo(id, "Batman Begins"))).block();
+    }
+
+    private static MovieInfo movieInfo(String movieId, String name) {
+        return new MovieInfo(movieId, name, 2005, List.of("Christian Bale", "Michael Cane"), LocalDate.parse("2005-06-15"));
+    }
+
+    @Test
+    void apply_updateRefreshesTheCachedMovieInfo() {
+        movieInfoCacheRefresher.apply(ServerSentEvent.builder(movieInfo("abc", "Batman Begins 2"))
+                .event("update")
+                .build());
+
+        var movieInfo = movieInfoCache.get("abc", id -> Mono.error(new IllegalStateException("not cached"))).block();
+        assertEquals("Batman Begins 2", movieInfo.getName());
+    }
+
+    @Test
+    void apply_deleteEvictsTheCachedMovieInfo() {
+        var deleted = new MovieInfo();
+        deleted.setMovieInfoId("abc");
+
+        movieInfoCacheRefresher.apply(ServerSentEvent.builder(deleted)
+                .event("delete")
+                .build());
+
+        assertEquals(0, movieInfoCache.size());
+    }
+}
@@ -0,0 +1,107 @@
+package com.rsw.moviesservice.cache;
+
+import com.rsw.moviesservice.domain.MovieInfo;
+import io.micrometer.core.instrument.simple.SimpleMeterRegistry;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.springframework.test.util.ReflectionTestUtils;
+import reactor.core.publisher.Mono;
+import reactor.test.StepVerifier;
+
+import java.time.Duration;
+import java.time.LocalDate;
+import java.util.List;
+import java.util.concurrent.atomic.AtomicInteger;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+
+class MovieInfoCacheTest {
+
+    private SimpleMeterRegistry meterRegistry;
+    private MovieInfoCache movieInfoCache;
+    private AtomicInteger loads;
+
+    @BeforeEach
+    void setUp() {
+        meterRegistry = new SimpleMeterRegistry();
+        movieInfoCache = new MovieInfoCache(meterRegistry);
+        ReflectionTestUtils.setField(movieInfoCache, "enabled", true);
+        ReflectionTestUtils.setField(movieInfoCache, "maxSize", 2);
+        ReflectionTestUtils.setField(movieInfoCache, "ttl", Duration.ofMinutes(5));
+        loads = new AtomicInteger();
+    }
+
+    private Mono<MovieInfo> load(String movieId) {
+        return Mono.fromCallable(() -> {
+            loads.incrementAndGet();
+            return new MovieInfo(movieId, "Batman Begins",
+                    2005, List.of("Christian Bale", "Michael Cane"), LocalDate.parse("2005-06-15"));
+        });
+    }
+
+    @Test
+    void get_concurrentMissesShareOneLoad() {
+        var delayedLoad = load("abc").delayElement(Duration.ofMillis(100));
+
+        var first = movieInfoCache.get("abc", id -> delayedLoad);
+        var second = movieInfoCache.get("abc", id -> delayedLoad);
+
+        StepVerifier.create(Mono.zip(first, second))
+                .assertNext(tuple -> assertEquals(tuple.getT1(), tuple.getT2()))
+                .verifyComplete();
+
+        assertEquals(1, loads.get());
+        assertEquals(1.0, meterRegistry.counter("movies.cache.movieInfo.requests", "result", "miss").count());
+        assertEquals(1.0, meterRegistry.counter("movies.cache.movieInfo.requests", "result", "hit").count());
+    }
+
+    @Test
+    void get_expiredEntryIsReloaded() {
+        ReflectionTestUtils.setField(movieInfoCache, "ttl", Duration.ZERO);
+
+        movieInfoCache.get("abc", this::load).block();
+        movieInfoCache.get("abc", this::load).block();
+
+        assertEquals(2, loads.get());
+        assertEquals(1.0, meterRegistry.counter("movies.cache.movieInfo.evictions", "cause", "expired").count());
+    }
+
+    @Test
+    void get_evictsLeastRecentlyUsedWhenFull() {
+        movieInfoCache.get("abc", this::load).block();
+        movieInfoCache.get("def", this::load).block();
+        movieInfoCache.get("abc", this::load).block();
+        movieInfoCache.get("ghi", this::load).block();
+
+        assertEquals(2, movieInfoCache.size());
+        assertEquals(1.0, meterRegistry.counter("movies.cache.movieInfo.evictions", "cause", "size").count());
+
+        // "def" was the least recently used entry
+        movieInfoCache.get("def", this::load).block();
+        assertEquals(4, loads.get());
+    }
+
+    @Test
+    void get_errorsAreNotCached() {
+        StepVerifier.create(movieInfoCache.get("abc", id -> Mono.error(new RuntimeException("MovieInfo Service Unavailable"))))
+                .expectError(RuntimeException.class)
+                .verify();
+
+        StepVerifier.create(movieInfoCache.get("abc", this::load))
+                .expectNextCount(1)
+                .verifyComplete();
+    }
+
+    @Test
+    void refresh_replacesCachedEntry() {
+        movieInfoCache.get("abc", this::load).block();
+
+        movieInfoCache.refresh(new MovieInfo("abc", "Batman Begins Remastered",
+                2005, List.of("Christian Bale", "Michael Cane"), LocalDate.parse("2005-06-15")));
+
+        StepVerifier.create(movieInfoCache.get("abc", this::load))
+                .assertNext(movieInfo -> assertEquals("Batman Begins Remastered", movieInfo.getName()))
+                .verifyComplete();
+        assertEquals(1, loads.get());
+    }
+}
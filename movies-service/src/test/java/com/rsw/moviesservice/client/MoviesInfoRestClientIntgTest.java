@@ -0,0 +1,160 @@
+package com.rsw.moviesservice.client;
+
+import com.github.tomakehurst.wiremock.client.ResponseDefinitionBuilder;
+import com.github.tomakehurst.wiremock.client.WireMock;
+import com.github.tomakehurst.wiremock.http.Fault;
+import com.github.tomakehurst.wiremock.stubbing.Scenario;
+import com.rsw.moviesservice.domain.MovieInfo;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.boot.test.autoconfigure.web.client.AutoConfigureWebClient;
+import org.springframework.boot.test.context.SpringBootTest;
+import org.springframework.cloud.contract.wiremock.AutoConfigureWireMock;
+import org.springframework.test.context.ActiveProfiles;
+import org.springframework.test.context.TestPropertySource;
+import reactor.test.StepVerifier;
+
+import java.time.Duration;
+import java.util.List;
+import java.util.stream.Collectors;
+
+import static com.github.tomakehurst.wiremock.client.WireMock.*;
+import static org.junit.jupiter.api.Assertions.assertEquals;
+
+@SpringBootTest
+@ActiveProfiles("test")
+@AutoConfigureWebClient
+@AutoConfigureWireMock(port = 8071)
+@TestPropertySource(properties = {
+        "restClient.moviesInfoUrl=http://localhost:8071/v1/movieInfos",
+        "restClient.reviewsUrl=http://localhost:8071/v1/reviews",
+        "restClient.stream.reconnect.firstBackoff=50ms",
+        "restClient.stream.reconnect.maxBackoff=200ms",
+})
+class MoviesInfoRestClientIntgTest {
+
+    private static final String EVENTS_URL = "/v1/movieInfos/events";
+
+    @Autowired
+    MoviesInfoRestClient moviesInfoRestClient;
+
+    @BeforeEach
+    void setUp() {
+        WireMock.reset();
+    }
+
+    @Test
+    void retrieveMovieInfoStream_resumesAfterDroppedConnection() {
+        //given
+        stubFor(get(urlEqualTo(EVENTS_URL))
+                .inScenario("reconnect")
+                .whenScenarioStateIs(Scenario.STARTED)
+                .withHeader("Last-Event-ID", absent())
+                .willReturn(movieInfoEvent("abc:0", "1", "Batman Begins"))
+                .willSetStateTo("dropped"));
+
+        stubFor(get(urlEqualTo(EVENTS_URL))
+                .inScenario("reconnect")
+                .whenScenarioStateIs("dropped")
+                .willReturn(aResponse()
+                        .withFault(Fault.CONNECTION_RESET_BY_PEER))
+                .willSetStateTo("resumed"));
+
+        stubFor(get(urlEqualTo(EVENTS_URL))
+                .inScenario("reconnect")
+                .whenScenarioStateIs("resumed")
+                .withHeader("Last-Event-ID", equalTo("abc:0"))
+                .willReturn(movieInfoEvent("abc:1", "2", "The Dark Knight")));
+
+        //when
+        StepVerifier.create(moviesInfoRestClient.retrieveMovieInfoStream())
+                .assertNext(movieInfo -> assertEquals("Batman Begins", movieInfo.getName()))
+                .assertNext(movieInfo -> assertEquals("The Dark Knight", movieInfo.getName()))
+                .thenCancel()
+                .verify(Duration.ofSeconds(10));
+
+        //then
+        // the completed stream reconnected, then the reset one, both after the event received
+        WireMock.verify(1, getRequestedFor(urlEqualTo(EVENTS_URL)).withoutHeader("Last-Event-ID"));
+        WireMock.verify(moreThanOrExactly(2), getRequestedFor(urlEqualTo(EVENTS_URL))
+                .withHeader("Last-Event-ID", equalTo("abc:0")));
+    }
+
+    @Test
+    void retrieveMovieInfoEvents_namesInsertsUpdatesAndDeletes() {
+        //given
+        stubFor(get(urlEqualTo(EVENTS_URL))
+                .willReturn(aResponse()
+                        .withHeader("Content-Type", "text/event-stream")
+                        .withBody(sseEvent("abc:0", "insert", "{\"movieInfoId\":\"1\",\"name\":\"Batman Begins\"}")
+                                + sseEvent("abc:1", "update", "{\"movieInfoId\":\"1\",\"name\":\"Batman Begins 2\"}")
+                                + sseEvent("abc:2", "delete", "{\"movieInfoId\":\"1\"}"))));
+
+        //when
+        StepVerifier.create(moviesInfoRestClient.retrieveMovieInfoEvents())
+                .assertNext(event -> assertEquals("insert", event.event()))
+                .assertNext(event -> {
+                    assertEquals("update", event.event());
+                    assertEquals("Batman Begins 2", event.data().getName());
+                })
+                .assertNext(event -> {
+                    assertEquals("delete", event.event());
+                    assertEquals("1", event.data().getMovieInfoId());
+                })
+                .thenCancel()
+                .verify(Duration.ofSeconds(10));
+    }
+
+    @Test
+    void retrieveMovieInfoStream_onlyInserts() {
+        //given
+        stubFor(get(urlEqualTo(EVENTS_URL))
+                .willReturn(aResponse()
+                        .withHeader("Content-Type", "text/event-stream")
+                        .withBody(sseEvent("abc:0", "update", "{\"movieInfoId\":\"1\",\"name\":\"Batman Begins 2\"}")
+                                + sseEvent("abc:1", "delete", "{\"movieInfoId\":\"1\"}")
+                                + sseEvent("abc:2", "insert", "{\"movieInfoId\":\"2\",\"name\":\"The Dark Knight\"}"))));
+
+        //when
+        StepVerifier.create(moviesInfoRestClient.retrieveMovieInfoStream())
+                .assertNext(movieInfo -> assertEquals("The Dark Knight", movieInfo.getName()))
+                .thenCancel()
+                .verify(Duration.ofSeconds(10));
+    }
+
+    @Test
+    void retrieveMovieInfos() {
+        //given
+        stubFor(post(urlEqualTo("/v1/movieInfos/lookup"))
+                .withRequestBody(equalToJson("[\"2\", \"3\", \"1\"]"))
+                .willReturn(aResponse()
+                        .withHeader("Content-Type", "application/json")
+                        .withBody("{\"movieInfos\":["
+                                + "{\"movieInfoId\":\"2\",\"name\":\"The Dark Knight\",\"year\":2008},"
+                                + "{\"movieInfoId\":\"1\",\"name\":\"Batman Begins\",\"year\":2005}],"
+                                + "\"missingIds\":[\"3\"]}")));
+
+        //when
+        StepVerifier.create(moviesInfoRestClient.retrieveMovieInfos(List.of("2", "3", "1")))
+                .assertNext(lookup -> {
+                    assertEquals(List.of("2", "1"), lookup.getMovieInfos().stream()
+                            .map(MovieInfo::getMovieInfoId)
+                            .collect(Collectors.toList()));
+                    assertEquals(List.of("3"), lookup.getMissingIds());
+                })
+                .verifyComplete();
+    }
+
+    private static ResponseDefinitionBuilder movieInfoEvent(String id, String movieInfoId, String name) {
+        return aResponse()
+                .withHeader("Content-Type", "text/event-stream")
+                .withBody("id:" + id + "\n"
+                        + "data:{\"movieInfoId\":\"" + movieInfoId + "\",\"name\":\"" + name + "\",\"year\":2005,"
+                        + "\"cast\":[\"Christian Bale\"],\"release_date\":\"2005-06-15\"}\n\n");
+    }
+
+    private static String sseEvent(String id, String event, String data) {
+        return "id:" + id + "\nevent:" + event + "\ndata:" + data + "\n\n";
+    }
+}
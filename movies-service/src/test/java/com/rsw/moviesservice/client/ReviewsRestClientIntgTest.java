@@ -0,0 +1,78 @@
+package com.rsw.moviesservice.client;
+
+import com.github.tomakehurst.wiremock.client.WireMock;
+import com.rsw.moviesservice.exception.ReviewsServerException;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.boot.test.autoconfigure.web.client.AutoConfigureWebClient;
+import org.springframework.boot.test.context.SpringBootTest;
+import org.springframework.cloud.contract.wiremock.AutoConfigureWireMock;
+import org.springframework.test.context.ActiveProfiles;
+import org.springframework.test.context.TestPropertySource;
+import reactor.test.StepVerifier;
+
+import java.util.List;
+
+import static com.github.tomakehurst.wiremock.client.WireMock.*;
+import static org.junit.jupiter.api.Assertions.assertEquals;
+
+@SpringBootTest
+@ActiveProfiles("test")
+@AutoConfigureWebClient
+@AutoConfigureWireMock(port = 8071)
+@TestPropertySource(properties = {
+        "restClient.moviesInfoUrl=http://localhost:8071/v1/movieInfos",
+        "restClient.reviewsUrl=http://localhost:8071/v1/reviews",
+        "restClient.retry.maxRetries=0",
+})
+class ReviewsRestClientIntgTest {
+
+    private static final String LOOKUP_URL = "/v1/reviews/lookup";
+
+    @Autowired
+    ReviewsRestClient reviewsRestClient;
+
+    @BeforeEach
+    void setUp() {
+        WireMock.reset();
+    }
+
+    @Test
+    void retrieveReviews_lookup() {
+        //given
+        stubFor(post(urlEqualTo(LOOKUP_URL))
+                .withRequestBody(equalToJson("[\"1\", \"2\"]"))
+                .willReturn(aResponse()
+                        .withHeader("Content-Type", "application/json")
+                        .withBody("{\"1\":[{\"reviewId\":\"1\",\"movieInfoId\":1,\"comment\":\"Awesome Movie\",\"rating\":9.0},"
+                                + "{\"reviewId\":\"2\",\"movieInfoId\":1,\"comment\":\"Excellent Movie\",\"rating\":8.0}],"
+                                + "\"2\":[]}")));
+
+        //when
+        StepVerifier.create(reviewsRestClient.retrieveReviews(List.of("1", "2")))
+                .assertNext(reviewsByMovieId -> {
+                    assertEquals(2, reviewsByMovieId.get("1").size());
+                    assertEquals("Awesome Movie", reviewsByMovieId.get("1").get(0).getComment());
+                    assertEquals(0, reviewsByMovieId.get("2").size());
+                })
+                .verifyComplete();
+
+        //then
+        WireMock.verify(1, postRequestedFor(urlEqualTo(LOOKUP_URL)));
+    }
+
+    @Test
+    void retrieveReviews_lookupServerError() {
+        //given
+        stubFor(post(urlEqualTo(LOOKUP_URL))
+                .willReturn(aResponse()
+                        .withStatus(500)
+                        .withBody("Review Service Unavailable")));
+
+        //when
+        StepVerifier.create(reviewsRestClient.retrieveReviews(List.of("1")))
+                .expectError(ReviewsServerException.class)
+                .verify();
+    }
+}
@@ -11,8 +11,11 @@ import org.springframework.test.context.ActiveProfiles;
 import org.springframework.cloud.contract.wiremock.AutoConfigureWireMock;
 import org.springframework.test.context.TestPropertySource;
 import org.springframework.test.web.reactive.server.WebTestClient;
+import reactor.test.StepVerifier;
 
+import java.util.List;
 import java.util.Objects;
+import java.util.stream.Collectors;
 
 import static com.github.tomakehurst.wiremock.client.WireMock.*;
 import static org.junit.jupiter.api.Assertions.*;
@@ -24,9 +27,13 @@ import static org.junit.jupiter.api.Assertions.*;
 @TestPropertySource(properties = {
         "restClient.moviesInfoUrl=http://localhost:8071/v1/movieInfos",
         "restClient.reviewsUrl=http://localhost:8071/v1/reviews",
+        "movies.cache.movieInfo.enabled=false",
 })
 class MoviesControllerIntgTest {
 
+    private static final String REVIEWS = "[{\"reviewId\":\"1\",\"movieInfoId\":1,\"comment\":\"Awesome Movie\",\"rating\":9.0},"
+            + "{\"reviewId\":\"2\",\"movieInfoId\":1,\"comment\":\"Excellent Movie\",\"rating\":8.0}]";
+
     @Autowired
     WebTestClient webTestClient;
 
@@ -181,4 +188,78 @@ class MoviesControllerIntgTest {
         // then
         WireMock.verify(4, getRequestedFor(urlPathMatching("/v1/reviews*")));
     }
-}
\ No newline at end of file
+
+    @Test
+    void retrieveMoviesByIds() {
+        //given
+        var movieIds = List.of("abc", "def");
+        stubFor(post(urlEqualTo("/v1/movieInfos/lookup"))
+                .withRequestBody(equalToJson("[\"abc\", \"def\"]"))
+                .willReturn(aResponse()
+                        .withHeader("Content-Type", "application/json")
+                        .withBody(movieInfoLookup(List.of("abc", "def"), List.of()))));
+        stubFor(post(urlEqualTo("/v1/reviews/lookup"))
+                .withRequestBody(equalToJson("[\"abc\", \"def\"]"))
+                .willReturn(aResponse()
+                        .withHeader("Content-Type", "application/json")
+                        .withBody("{\"abc\":" + REVIEWS + ",\"def\":" + REVIEWS + "}")));
+
+        //when
+        webTestClient
+                .post()
+                .uri("/v1/movies/batch")
+                .bodyValue(movieIds)
+                .exchange()
+                .expectStatus()
+                .isOk()
+                .expectBodyList(Movie.class)
+                .hasSize(2)
+                .consumeWith(listEntityExchangeResult -> {
+                    var movies = Objects.requireNonNull(listEntityExchangeResult.getResponseBody());
+                    assertEquals("abc", movies.get(0).getMovieInfo().getMovieInfoId());
+                    assertEquals("def", movies.get(1).getMovieInfo().getMovieInfoId());
+                    movies.forEach(movie -> assertEquals(2, movie.getReviewList().size()));
+                });
+    }
+
+    @Test
+    void retrieveMoviesByIds_skipsMissingMovieInfo() {
+        //given
+        stubFor(post(urlEqualTo("/v1/movieInfos/lookup"))
+                .willReturn(aResponse()
+                        .withHeader("Content-Type", "application/json")
+                        .withBody(movieInfoLookup(List.of("abc"), List.of("def")))));
+
+        stubFor(post(urlEqualTo("/v1/reviews/lookup"))
+                .willReturn(aResponse()
+                        .withHeader("Content-Type", "application/json")
+                        .withBody("{\"abc\":" + REVIEWS + ",\"def\":[]}")));
+
+        //when
+        var moviesFlux = webTestClient
+                .post()
+                .uri("/v1/movies/batch/stream")
+                .bodyValue(List.of("abc", "def"))
+                .exchange()
+                .expectStatus()
+                .isOk()
+                .returnResult(Movie.class)
+                .getResponseBody();
+
+        //then
+        StepVerifier.create(moviesFlux)
+                .assertNext(movie -> assertEquals("Batman Begins", movie.getMovieInfo().getName()))
+                .verifyComplete();
+    }
+
+    private static String movieInfoLookup(List<String> movieInfoIds, List<String> missingIds) {
+        var movieInfos = movieInfoIds.stream()
+                .map(movieInfoId -> "{\"movieInfoId\":\"" + movieInfoId + "\",\"name\":\"Batman Begins\",\"year\":2005,"
+                        + "\"cast\":[\"Christian Bale\"],\"release_date\":\"2005-06-15\"}")
+                .collect(Collectors.joining(","));
+        var missing = missingIds.stream()
+                .map(movieInfoId -> "\"" + movieInfoId + "\"")
+                .collect(Collectors.joining(","));
+        return "{\"movieInfos\":[" + movieInfos + "],\"missingIds\":[" + missing + "]}";
+    }
+}
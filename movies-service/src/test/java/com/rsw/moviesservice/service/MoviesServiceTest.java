@@ -0,0 +1,281 @@
+package com.rsw.moviesservice.service;
+
+import com.rsw.moviesservice.cache.MovieInfoCache;
+import com.rsw.moviesservice.client.MoviesInfoRestClient;
+import com.rsw.moviesservice.client.ReviewsRestClient;
+import com.rsw.moviesservice.domain.MovieFrame;
+import com.rsw.moviesservice.domain.MovieInfo;
+import com.rsw.moviesservice.domain.MovieInfoLookup;
+import com.rsw.moviesservice.domain.Review;
+import com.rsw.moviesservice.domain.ReviewSort;
+import com.rsw.moviesservice.domain.ReviewSummary;
+import com.rsw.moviesservice.exception.ReviewsServerException;
+import io.micrometer.core.instrument.simple.SimpleMeterRegistry;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.extension.ExtendWith;
+import org.mockito.Mock;
+import org.mockito.junit.jupiter.MockitoExtension;
+import org.springframework.test.util.ReflectionTestUtils;
+import reactor.core.publisher.Flux;
+import reactor.core.publisher.Mono;
+import reactor.test.StepVerifier;
+
+import java.time.Duration;
+import java.time.LocalDate;
+import java.util.List;
+import java.util.Map;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertFalse;
+import static org.junit.jupiter.api.Assertions.assertNull;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+import static org.mockito.Mockito.when;
+
+@ExtendWith(MockitoExtension.class)
+class MoviesServiceTest {
+
+    @Mock
+    private MoviesInfoRestClient moviesInfoRestClient;
+
+    @Mock
+    private ReviewsRestClient reviewsRestClient;
+
+    private MoviesService moviesService;
+
+    private final MovieInfo movieInfo = new MovieInfo("abc", "Batman Begins",
+            2005, List.of("Christian Bale", "Michael Cane"), LocalDate.parse("2005-06-15"));
+
+    private final List<Review> reviews = List.of(
+            new Review("1", 1L, "Awesome Movie", 9.0),
+            new Review("2", 1L, "Excellent Movie", 8.0));
+
+    @BeforeEach
+    void setUp() {
+        // a cache that is not enabled passes every call through to the client
+        moviesService = new MoviesService(moviesInfoRestClient, reviewsRestClient, new MovieInfoCache(new SimpleMeterRegistry()));
+        ReflectionTestUtils.setField(moviesService, "batchMaxConcurrency", 8);
+        ReflectionTestUtils.setField(moviesService, "batchLookupSize", 100);
+        ReflectionTestUtils.setField(moviesService, "aggregationMode", AggregationMode.PARALLEL);
+        ReflectionTestUtils.setField(moviesService, "reviewsFallback", ReviewsFallback.FAIL);
+        ReflectionTestUtils.setField(moviesService, "reviewsTimeout", Duration.ZERO);
+        ReflectionTestUtils.setField(moviesService, "maxTopReviews", 50);
+        ReflectionTestUtils.setField(moviesService, "maxReviewLimit", 1000);
+        ReflectionTestUtils.setField(moviesService, "reviewPushdown", true);
+        ReflectionTestUtils.setField(moviesService, "reviewChunkSize", 50);
+        ReflectionTestUtils.setField(moviesService, "streamReviewTimeout", Duration.ZERO);
+    }
+
+    @Test
+    void retrieveMovieById_parallel() {
+        when(moviesInfoRestClient.retrieveMovieInfo("abc")).thenReturn(Mono.just(movieInfo));
+        when(reviewsRestClient.retrieveReviews("abc")).thenReturn(Flux.fromIterable(reviews));
+
+        StepVerifier.create(moviesService.retrieveMovieById("abc"))
+                .assertNext(movie -> {
+                    assertEquals("Batman Begins", movie.getMovieInfo().getName());
+                    assertEquals(2, movie.getReviewList().size());
+                    assertFalse(movie.isDegraded());
+                })
+                .verifyComplete();
+    }
+
+    @Test
+    void retrieveMovieById_reviewsError_fail() {
+        when(moviesInfoRestClient.retrieveMovieInfo("abc")).thenReturn(Mono.just(movieInfo));
+        when(reviewsRestClient.retrieveReviews("abc")).thenReturn(Flux.error(new ReviewsServerException("Review Service Unavailable")));
+
+        StepVerifier.create(moviesService.retrieveMovieById("abc"))
+                .expectError(ReviewsServerException.class)
+                .verify();
+    }
+
+    @Test
+    void retrieveMovieById_reviewsError_empty() {
+        ReflectionTestUtils.setField(moviesService, "reviewsFallback", ReviewsFallback.EMPTY);
+        when(moviesInfoRestClient.retrieveMovieInfo("abc")).thenReturn(Mono.just(movieInfo));
+        when(reviewsRestClient.retrieveReviews("abc")).thenReturn(Flux.error(new ReviewsServerException("Review Service Unavailable")));
+
+        StepVerifier.create(moviesService.retrieveMovieById("abc"))
+                .assertNext(movie -> {
+                    assertEquals(0, movie.getReviewList().size());
+                    assertTrue(movie.isDegraded());
+                })
+                .verifyComplete();
+    }
+
+    @Test
+    void retrieveMovieById_reviewsTimeout_partial() {
+        ReflectionTestUtils.setField(moviesService, "reviewsFallback", ReviewsFallback.PARTIAL);
+        ReflectionTestUtils.setField(moviesService, "reviewsTimeout", Duration.ofMillis(200));
+        when(moviesInfoRestClient.retrieveMovieInfo("abc")).thenReturn(Mono.just(movieInfo));
+        when(reviewsRestClient.retrieveReviews("abc")).thenReturn(Flux.just(reviews.get(0)).concatWith(Flux.never()));
+
+        StepVerifier.create(moviesService.retrieveMovieById("abc"))
+                .assertNext(movie -> {
+                    assertEquals(1, movie.getReviewList().size());
+                    assertTrue(movie.isDegraded());
+                })
+                .verifyComplete();
+    }
+
+    @Test
+    void retrieveMovieSummaryById() {
+        when(moviesInfoRestClient.retrieveMovieInfo("abc")).thenReturn(Mono.just(movieInfo));
+        when(reviewsRestClient.retrieveReviews("abc", ReviewSort.RATING_DESC, 1)).thenReturn(Flux.fromIterable(reviews.subList(0, 1)));
+        when(reviewsRestClient.retrieveReviewSummary("abc"))
+                .thenReturn(Mono.just(new ReviewSummary(1L, 2, 8.5, 8.0, 9.0, Map.of(8, 1L, 9, 1L))));
+
+        StepVerifier.create(moviesService.retrieveMovieSummaryById("abc", 1, ReviewSort.RATING_DESC))
+                .assertNext(movie -> {
+                    assertEquals(1, movie.getReviewList().size());
+                    assertEquals(2, movie.getReviewSummary().getCount());
+                    assertFalse(movie.isDegraded());
+                })
+                .verifyComplete();
+    }
+
+    @Test
+    void retrieveMovieSummaryById_summaryError_empty() {
+        ReflectionTestUtils.setField(moviesService, "reviewsFallback", ReviewsFallback.EMPTY);
+        when(moviesInfoRestClient.retrieveMovieInfo("abc")).thenReturn(Mono.just(movieInfo));
+        when(reviewsRestClient.retrieveReviews("abc", null, 5)).thenReturn(Flux.fromIterable(reviews));
+        when(reviewsRestClient.retrieveReviewSummary("abc")).thenReturn(Mono.error(new ReviewsServerException("Review Service Unavailable")));
+
+        StepVerifier.create(moviesService.retrieveMovieSummaryById("abc", 5, null))
+                .assertNext(movie -> {
+                    assertEquals(2, movie.getReviewList().size());
+                    assertNull(movie.getReviewSummary());
+                    assertTrue(movie.isDegraded());
+                })
+                .verifyComplete();
+    }
+
+    @Test
+    void retrieveMovieById_topReviewsWithoutPushdown() {
+        ReflectionTestUtils.setField(moviesService, "reviewPushdown", false);
+        when(moviesInfoRestClient.retrieveMovieInfo("abc")).thenReturn(Mono.just(movieInfo));
+        when(reviewsRestClient.streamReviews("abc")).thenReturn(Flux.just(
+                new Review("1", 1L, "Average Movie", 5.0),
+                new Review("2", 1L, "Awesome Movie", 9.0),
+                new Review("3", 1L, "Good Movie", 7.0)));
+
+        StepVerifier.create(moviesService.retrieveMovieById("abc", 2, ReviewSort.RATING_DESC))
+                .assertNext(movie -> {
+                    assertEquals(2, movie.getReviewList().size());
+                    assertEquals(9.0, movie.getReviewList().get(0).getRating());
+                    assertEquals(7.0, movie.getReviewList().get(1).getRating());
+                })
+                .verifyComplete();
+    }
+
+    @Test
+    void streamMovieById() {
+        ReflectionTestUtils.setField(moviesService, "reviewChunkSize", 1);
+        when(moviesInfoRestClient.retrieveMovieInfo("abc")).thenReturn(Mono.just(movieInfo));
+        when(reviewsRestClient.streamReviews("abc")).thenReturn(Flux.fromIterable(reviews));
+
+        StepVerifier.create(moviesService.streamMovieById("abc"))
+                .assertNext(frame -> assertEquals("Batman Begins", frame.getMovieInfo().getName()))
+                .assertNext(frame -> assertEquals(List.of(reviews.get(0)), frame.getReviews()))
+                .assertNext(frame -> assertEquals(List.of(reviews.get(1)), frame.getReviews()))
+                .assertNext(frame -> {
+                    assertEquals(MovieFrame.Type.SUMMARY, frame.getType());
+                    assertEquals(2, frame.getSummary().getCount());
+                    assertEquals(8.5, frame.getSummary().getAverageRating());
+                    assertFalse(frame.isDegraded());
+                })
+                .verifyComplete();
+    }
+
+    @Test
+    void streamMovieById_reviewsError_empty() {
+        ReflectionTestUtils.setField(moviesService, "reviewsFallback", ReviewsFallback.EMPTY);
+        when(moviesInfoRestClient.retrieveMovieInfo("abc")).thenReturn(Mono.just(movieInfo));
+        when(reviewsRestClient.streamReviews("abc"))
+                .thenReturn(Flux.concat(Flux.just(reviews.get(0)), Flux.error(new ReviewsServerException("Review Service Unavailable"))));
+
+        StepVerifier.create(moviesService.streamMovieById("abc"))
+                .assertNext(frame -> assertEquals(MovieFrame.Type.INFO, frame.getType()))
+                .assertNext(frame -> {
+                    assertEquals(MovieFrame.Type.SUMMARY, frame.getType());
+                    assertEquals(0, frame.getSummary().getCount());
+                    assertTrue(frame.isDegraded());
+                })
+                .verifyComplete();
+    }
+
+    @Test
+    void streamMovieById_reviewsError_partialFlushesUnfinishedChunk() {
+        ReflectionTestUtils.setField(moviesService, "reviewsFallback", ReviewsFallback.PARTIAL);
+        when(moviesInfoRestClient.retrieveMovieInfo("abc")).thenReturn(Mono.just(movieInfo));
+        when(reviewsRestClient.streamReviews("abc"))
+                .thenReturn(Flux.concat(Flux.just(reviews.get(0)), Flux.error(new ReviewsServerException("Review Service Unavailable"))));
+
+        StepVerifier.create(moviesService.streamMovieById("abc"))
+                .assertNext(frame -> assertEquals(MovieFrame.Type.INFO, frame.getType()))
+                .assertNext(frame -> assertEquals(List.of(reviews.get(0)), frame.getReviews()))
+                .assertNext(frame -> {
+                    assertEquals(MovieFrame.Type.SUMMARY, frame.getType());
+                    assertEquals(1, frame.getSummary().getCount());
+                    assertTrue(frame.isDegraded());
+                })
+                .verifyComplete();
+    }
+
+    @Test
+    void retrieveMoviesByIds_splitsLookupsAndKeepsRequestOrder() {
+        ReflectionTestUtils.setField(moviesService, "batchLookupSize", 2);
+        var darkKnight = new MovieInfo("ghi", "The Dark Knight",
+                2008, List.of("Christian Bale", "Heath Ledger"), LocalDate.parse("2008-07-18"));
+        when(moviesInfoRestClient.retrieveMovieInfos(List.of("ghi", "def")))
+                .thenReturn(Mono.just(new MovieInfoLookup(List.of(darkKnight), List.of("def"))));
+        when(moviesInfoRestClient.retrieveMovieInfos(List.of("abc")))
+                .thenReturn(Mono.just(new MovieInfoLookup(List.of(movieInfo), List.of())));
+        // the first chunk completes last, it is still emitted first
+        when(reviewsRestClient.retrieveReviews(List.of("ghi", "def")))
+                .thenReturn(Mono.just(Map.<String, List<Review>>of("ghi", List.of(), "def", List.of())).delayElement(Duration.ofMillis(100)));
+        when(reviewsRestClient.retrieveReviews(List.of("abc")))
+                .thenReturn(Mono.just(Map.of("abc", reviews)));
+
+        StepVerifier.create(moviesService.retrieveMoviesByIds(List.of("ghi", "def", "ghi", "abc")))
+                .assertNext(movie -> {
+                    assertEquals("The Dark Knight", movie.getMovieInfo().getName());
+                    assertEquals(0, movie.getReviewList().size());
+                })
+                .assertNext(movie -> {
+                    assertEquals("Batman Begins", movie.getMovieInfo().getName());
+                    assertEquals(2, movie.getReviewList().size());
+                    assertFalse(movie.isDegraded());
+                })
+                .verifyComplete();
+    }
+
+    @Test
+    void retrieveMoviesByIds_reviewsError_fail() {
+        when(moviesInfoRestClient.retrieveMovieInfos(List.of("abc")))
+                .thenReturn(Mono.just(new MovieInfoLookup(List.of(movieInfo), List.of())));
+        when(reviewsRestClient.retrieveReviews(List.of("abc")))
+                .thenReturn(Mono.error(new ReviewsServerException("Review Service Unavailable")));
+
+        StepVerifier.create(moviesService.retrieveMoviesByIds(List.of("abc")))
+                .expectError(ReviewsServerException.class)
+                .verify();
+    }
+
+    @Test
+    void retrieveMoviesByIds_reviewsError_empty() {
+        ReflectionTestUtils.setField(moviesService, "reviewsFallback", ReviewsFallback.EMPTY);
+        when(moviesInfoRestClient.retrieveMovieInfos(List.of("abc")))
+                .thenReturn(Mono.just(new MovieInfoLookup(List.of(movieInfo), List.of())));
+        when(reviewsRestClient.retrieveReviews(List.of("abc")))
+                .thenReturn(Mono.error(new ReviewsServerException("Review Service Unavailable")));
+
+        StepVerifier.create(moviesService.retrieveMoviesByIds(List.of("abc")))
+                .assertNext(movie -> {
+                    assertEquals(0, movie.getReviewList().size());
+                    assertTrue(movie.isDegraded());
+                })
+                .verifyComplete();
+    }
+}
@@ -0,0 +1,79 @@
+package com.rsw.moviesservice.util;
+
+import com.rsw.moviesservice.exception.DownstreamUnavailableException;
+import com.rsw.moviesservice.exception.ReviewsServerException;
+import io.micrometer.core.instrument.simple.SimpleMeterRegistry;
+import org.junit.jupiter.api.Test;
+import reactor.core.publisher.Mono;
+import reactor.test.StepVerifier;
+
+import java.time.Duration;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+
+class CircuitBreakerTest {
+
+    private final SimpleMeterRegistry meterRegistry = new SimpleMeterRegistry();
+
+    private CircuitBreaker circuitBreaker(Duration waitDurationInOpenState) {
+        return new CircuitBreaker("reviews", 10, 4, 50, 100, Duration.ofSeconds(5),
+                waitDurationInOpenState, 2, ex -> true, meterRegistry);
+    }
+
+    private void fail(CircuitBreaker circuitBreaker) {
+        StepVerifier.create(circuitBreaker.decorate(Mono.error(new ReviewsServerException("Review Service Unavailable"))))
+                .expectError(ReviewsServerException.class)
+                .verify();
+    }
+
+    private void succeed(CircuitBreaker circuitBreaker) {
+        StepVerifier.create(circuitBreaker.decorate(Mono.just("ok")))
+                .expectNext("ok")
+                .verifyComplete();
+    }
+
+    @Test
+    void opensWhenFailureRateReachesThreshold() {
+        var circuitBreaker = circuitBreaker(Duration.ofMinutes(1));
+
+        succeed(circuitBreaker);
+        succeed(circuitBreaker);
+        fail(circuitBreaker);
+        assertEquals(CircuitBreaker.State.CLOSED, circuitBreaker.getState());
+
+        fail(circuitBreaker);
+        assertEquals(CircuitBreaker.State.OPEN, circuitBreaker.getState());
+
+        StepVerifier.create(circuitBreaker.decorate(Mono.just("ok")))
+                .expectError(DownstreamUnavailableException.class)
+                .verify();
+        assertEquals(1.0, meterRegistry.counter("restClient.circuitBreaker.notPermitted", "name", "reviews").count());
+    }
+
+    @Test
+    void closesAfterSuccessfulHalfOpenCalls() {
+        var circuitBreaker = circuitBreaker(Duration.ZERO);
+        for (int i = 0; i < 4; i++) {
+            fail(circuitBreaker);
+        }
+        assertEquals(CircuitBreaker.State.OPEN, circuitBreaker.getState());
+
+        succeed(circuitBreaker);
+        assertEquals(CircuitBreaker.State.HALF_OPEN, circuitBreaker.getState());
+
+        succeed(circuitBreaker);
+        assertEquals(CircuitBreaker.State.CLOSED, circuitBreaker.getState());
+    }
+
+    @Test
+    void reopensWhenHalfOpenCallsFail() {
+        var circuitBreaker = circuitBreaker(Duration.ZERO);
+        for (int i = 0; i < 4; i++) {
+            fail(circuitBreaker);
+        }
+
+        fail(circuitBreaker);
+        fail(circuitBreaker);
+        assertEquals(CircuitBreaker.State.OPEN, circuitBreaker.getState());
+    }
+}
@@ -0,0 +1,34 @@
+package com.rsw.moviesservice.util;
+
+import org.junit.jupiter.api.Test;
+
+import static org.junit.jupiter.api.Assertions.assertFalse;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+
+class RetryBudgetTest {
+
+    @Test
+    void tryAcquireRetry_allowsMinimumRetries() {
+        var retryBudget = new RetryBudget(0.0, 1, 3);
+
+        assertTrue(retryBudget.tryAcquireRetry());
+        assertTrue(retryBudget.tryAcquireRetry());
+        assertTrue(retryBudget.tryAcquireRetry());
+        assertFalse(retryBudget.tryAcquireRetry());
+    }
+
+    @Test
+    void tryAcquireRetry_growsWithRequests() {
+        var retryBudget = new RetryBudget(0.1, 0, 10);
+
+        assertFalse(retryBudget.tryAcquireRetry());
+
+        for (int i = 0; i < 20; i++) {
+            retryBudget.recordRequest();
+        }
+
+        assertTrue(retryBudget.tryAcquireRetry());
+        assertTrue(retryBudget.tryAcquireRetry());
+        assertFalse(retryBudget.tryAcquireRetry());
+    }
+}
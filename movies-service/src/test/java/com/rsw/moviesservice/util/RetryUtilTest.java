@@ -0,0 +1,56 @@
+package com.rsw.moviesservice.util;
+
+import com.rsw.moviesservice.exception.ReviewsServerException;
+import io.micrometer.core.instrument.simple.SimpleMeterRegistry;
+import org.junit.jupiter.api.Test;
+import reactor.core.publisher.Flux;
+import reactor.test.StepVerifier;
+
+import java.time.Duration;
+import java.util.concurrent.atomic.AtomicInteger;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+
+class RetryUtilTest {
+
+    private final RetryUtil retryUtil = new RetryUtil(3, Duration.ofMillis(1), Duration.ofMillis(10), 0.0,
+            Duration.ofMillis(100), 1.0, 10, 10, new SimpleMeterRegistry());
+    private final AtomicInteger attempts = new AtomicInteger();
+
+    @Test
+    void withRetryFlux_retriesBeforeFirstElement() {
+        var call = Flux.defer(() -> attempts.incrementAndGet() < 3
+                ? Flux.<String>error(new ReviewsServerException("Review Service Unavailable"))
+                : Flux.just("a", "b"));
+
+        StepVerifier.create(retryUtil.withRetry(call))
+                .expectNext("a", "b")
+                .verifyComplete();
+
+        assertEquals(3, attempts.get());
+    }
+
+    @Test
+    void withRetryFlux_doesNotRetryAfterFirstElement() {
+        var call = Flux.defer(() -> {
+            attempts.incrementAndGet();
+            return Flux.just("a").concatWith(Flux.error(new ReviewsServerException("Review Service Unavailable")));
+        });
+
+        StepVerifier.create(retryUtil.withRetry(call))
+                .expectNext("a")
+                .verifyError(ReviewsServerException.class);
+
+        assertEquals(1, attempts.get());
+    }
+
+    @Test
+    void withRetryFlux_timeoutOnlyBoundsFirstElement() {
+        var call = Flux.just("a", "b")
+                .delayElements(Duration.ofMillis(60));
+
+        StepVerifier.create(retryUtil.withRetry(call))
+                .expectNext("a", "b")
+                .verifyComplete();
+    }
+}
@@ -0,0 +1,76 @@
+package com.rsw.moviesservice.util;
+
+import org.junit.jupiter.api.Test;
+import reactor.core.publisher.Mono;
+import reactor.test.StepVerifier;
+
+import java.time.Duration;
+import java.util.concurrent.atomic.AtomicBoolean;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.function.Supplier;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertFalse;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+
+class SingleFlightTest {
+
+    private final SingleFlight<String, String> singleFlight = new SingleFlight<>();
+    private final AtomicInteger calls = new AtomicInteger();
+
+    private Mono<String> call(String key) {
+        return Mono.fromCallable(() -> key + "-" + calls.incrementAndGet())
+                .delayElement(Duration.ofMillis(100));
+    }
+
+    @Test
+    void execute_concurrentCallsShareOneSubscription() {
+        var first = singleFlight.execute("abc", () -> call("abc"));
+        var second = singleFlight.execute("abc", () -> call("abc"));
+
+        StepVerifier.create(Mono.zip(first, second))
+                .assertNext(tuple -> {
+                    assertEquals("abc-1", tuple.getT1());
+                    assertEquals("abc-1", tuple.getT2());
+                })
+                .verifyComplete();
+
+        assertEquals(1, calls.get());
+        assertEquals(0, singleFlight.inFlightCount());
+    }
+
+    @Test
+    void execute_differentKeysDoNotShare() {
+        StepVerifier.create(Mono.zip(
+                        singleFlight.execute("abc", () -> call("abc")),
+                        singleFlight.execute("def", () -> call("def"))))
+                .expectNextCount(1)
+                .verifyComplete();
+
+        assertEquals(2, calls.get());
+    }
+
+    @Test
+    void execute_completedCallIsNotReused() {
+        singleFlight.execute("abc", () -> call("abc")).block();
+
+        StepVerifier.create(singleFlight.execute("abc", () -> call("abc")))
+                .expectNext("abc-2")
+                .verifyComplete();
+    }
+
+    @Test
+    void execute_upstreamCancelledWhenEveryCallerCancels() {
+        var cancelled = new AtomicBoolean();
+        Supplier<Mono<String>> never = () -> Mono.<String>never().doOnCancel(() -> cancelled.set(true));
+
+        var first = singleFlight.execute("abc", never).subscribe();
+        var second = singleFlight.execute("abc", never).subscribe();
+
+        first.dispose();
+        assertFalse(cancelled.get());
+        second.dispose();
+        assertTrue(cancelled.get());
+        assertEquals(0, singleFlight.inFlightCount());
+    }
+}
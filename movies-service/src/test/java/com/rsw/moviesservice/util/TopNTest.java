@@ -0,0 +1,38 @@
+package com.rsw.moviesservice.util;
+
+import org.junit.jupiter.api.Test;
+
+import java.util.Comparator;
+import java.util.List;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+
+class TopNTest {
+
+    @Test
+    void toList_keepsSmallestInOrder() {
+        var topN = new TopN<Integer>(3, Comparator.naturalOrder());
+
+        List.of(7, 3, 9, 1, 8, 2, 6).forEach(topN::offer);
+
+        assertEquals(List.of(1, 2, 3), topN.toList());
+    }
+
+    @Test
+    void toList_withoutOrderKeepsFirstReceived() {
+        var topN = new TopN<Integer>(2, null);
+
+        List.of(7, 3, 9).forEach(topN::offer);
+
+        assertEquals(List.of(7, 3), topN.toList());
+    }
+
+    @Test
+    void toList_fewerElementsThanN() {
+        var topN = new TopN<Integer>(5, Comparator.<Integer>reverseOrder());
+
+        List.of(4, 8).forEach(topN::offer);
+
+        assertEquals(List.of(8, 4), topN.toList());
+    }
+}
@@ -0,0 +1,353 @@
+package com.rsw.stream;
+
+import io.micrometer.core.instrument.Counter;
+import io.micrometer.core.instrument.Gauge;
+import io.micrometer.core.instrument.MeterRegistry;
+import lombok.extern.slf4j.Slf4j;
+import reactor.core.Exceptions;
+import reactor.core.publisher.Flux;
+import reactor.core.publisher.FluxSink;
+
+import java.util.ArrayDeque;
+import java.util.List;
+import java.util.Set;
+import java.util.UUID;
+import java.util.concurrent.CopyOnWriteArraySet;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.function.IntSupplier;
+import java.util.function.LongFunction;
+import java.util.function.Predicate;
+import java.util.function.Supplier;
+
+/**
+ * Fans events out to any number of subscribers. Emission is serialized, so concurrent writers never
+ * lose events, and every subscriber gets its own buffer of {@code bufferSize} events drained at the
+ * pace of its demand; a full buffer is handled by the {@link OverflowPolicy}. New subscribers first
+ * receive the last {@code replaySize} events.
+ * <p>
+ * Every event gets a sequence number, increasing in emission order, and the last {@code historySize}
+ * events are kept so a reconnecting subscriber can continue after the last sequence it received,
+ * or after the last event it received when the events carry ids of their own. Sequences are only
+ * comparable within one broadcaster instance, so their ids are prefixed with its instance id.
+ */
+@Slf4j
+public class Broadcaster<T> {
+
+    // returned by a skipped supplier when the subscriber cannot be resumed from the history
+    private static final int NOT_IN_HISTORY = Integer.MIN_VALUE;
+
+    private final String name;
+    private final int replaySize;
+    private final int historySize;
+    private final int bufferSize;
+    private final OverflowPolicy overflowPolicy;
+    // differs per instance and per restart, an id with another prefix was handed out by someone else
+    private final String instanceId = UUID.randomUUID().toString().substring(0, 8);
+
+    // guards history and nextSequence, and makes the replay and the registration of a new subscriber atomic
+    private final Object lock = new Object();
+    private final ArrayDeque<Sequenced<T>> history;
+    private long nextSequence;
+    private final Set<BufferedSubscriber> subscribers = new CopyOnWriteArraySet<>();
+
+    private final Counter droppedEvents;
+    private final Counter disconnectedSubscribers;
+    private final Counter resumeGaps;
+
+    public Broadcaster(String name, int replaySize, int bufferSize, OverflowPolicy overflowPolicy, MeterRegistry meterRegistry) {
+        this(name, replaySize, replaySize, bufferSize, overflowPolicy, meterRegistry);
+    }
+
+    /**
+     * @param meterRegistry may be null, the broadcaster then records no metrics
+     */
+    public Broadcaster(String name, int replaySize, int historySize, int bufferSize, OverflowPolicy overflowPolicy,
+                       MeterRegistry meterRegistry) {
+        this.name = name;
+        this.replaySize = replaySize;
+        this.historySize = Math.max(historySize, replaySize);
+        // a new subscriber must be able to hold the whole history
+        this.bufferSize = Math.max(bufferSize, this.historySize);
+        this.overflowPolicy = overflowPolicy;
+        this.history = new ArrayDeque<>(this.historySize);
+        if (meterRegistry != null) {
+            this.droppedEvents = meterRegistry.counter("stream.events.dropped", "stream", name, "policy", overflowPolicy.name());
+            this.disconnectedSubscribers = meterRegistry.counter("stream.subscribers.disconnected", "stream", name);
+            this.resumeGaps = meterRegistry.counter("stream.resume.gaps", "stream", name);
+            Gauge.builder("stream.subscribers", this, Broadcaster::subscriberCount)
+                    .tag("stream", name)
+                    .register(meterRegistry);
+            Gauge.builder("stream.subscribers.lagging", this, Broadcaster::laggingSubscriberCount)
+                    .tag("stream", name)
+                    .description("subscribers with more than half of their buffer filled")
+                    .register(meterRegistry);
+        } else {
+            this.droppedEvents = null;
+            this.disconnectedSubscribers = null;
+            this.resumeGaps = null;
+        }
+    }
+
+    public void emit(T event) {
+        emit(sequence -> event);
+    }
+
+    /**
+     * Emits the event built for the next sequence number, so the event can carry it.
+     */
+    public T emit(LongFunction<T> eventFactory) {
+        T event;
+        synchronized (lock) {
+            event = append(eventFactory);
+        }
+        subscribers.forEach(BufferedSubscriber::drain);
+        return event;
+    }
+
+    /**
+     * Emits the events in order with a single lock acquisition and drains each subscriber once for
+     * all of them.
+     */
+    public void emitAll(List<LongFunction<T>> eventFactories) {
+        if (eventFactories.isEmpty()) {
+            return;
+        }
+        synchronized (lock) {
+            eventFactories.forEach(this::append);
+        }
+        subscribers.forEach(BufferedSubscriber::drain);
+    }
+
+    // called under the lock
+    private T append(LongFunction<T> eventFactory) {
+        var sequence = nextSequence++;
+        var event = eventFactory.apply(sequence);
+        if (historySize > 0) {
+            if (history.size() == historySize) {
+                history.poll();
+            }
+            history.add(new Sequenced<>(sequence, event));
+        }
+        // enqueued under the lock so every subscriber sees the events in the same order
+        subscribers.forEach(subscriber -> subscriber.enqueue(event));
+        return event;
+    }
+
+    /**
+     * The stream id of the event with this sequence, {@code <instanceId>:<sequence>}.
+     */
+    public String eventId(long sequence) {
+        return instanceId + ":" + sequence;
+    }
+
+    public Flux<T> asFlux() {
+        return subscribe(() -> history.size() - replaySize);
+    }
+
+    /**
+     * Events emitted after the one with id {@code lastEventId}, then the live ones. When its sequence
+     * is no longer in the history, was never handed out, or the id comes from another instance, the
+     * whole history is sent and the gap is counted. A malformed id resumes live.
+     */
+    public Flux<T> asFlux(String lastEventId) {
+        var separator = lastEventId.lastIndexOf(':');
+        long lastSequence;
+        try {
+            lastSequence = Long.parseLong(lastEventId.substring(separator + 1));
+        } catch (NumberFormatException e) {
+            log.info("Ignoring id {} of {} that is not a stream id", lastEventId, name);
+            return asFlux();
+        }
+        var instance = separator < 0 ? "" : lastEventId.substring(0, separator);
+        if (!instance.equals(instanceId)) {
+            return subscribe(() -> {
+                log.warn("Id {} of {} was not handed out by this instance, resuming from the oldest event", lastEventId, name);
+                recordResumeGap();
+                return 0;
+            });
+        }
+        return subscribe(() -> {
+            if (history.isEmpty()) {
+                return 0;
+            }
+            var oldest = history.peekFirst().sequence;
+            if (lastSequence < oldest - 1 || lastSequence >= nextSequence) {
+                log.warn("Sequence {} of {} is out of the history, resuming from {}", lastSequence, name, oldest);
+                recordResumeGap();
+                return 0;
+            }
+            return (int) (lastSequence + 1 - oldest);
+        });
+    }
+
+    /**
+     * Events emitted after the last history event matching {@code isLast}, then the live ones. When
+     * no history event matches, {@code otherwise} is subscribed instead. The lookup and the
+     * registration are atomic, so no event is lost between the two.
+     */
+    public Flux<T> asFluxAfter(Predicate<T> isLast, Supplier<Flux<T>> otherwise) {
+        return subscribe(() -> {
+            var index = history.size() - 1;
+            for (var iterator = history.descendingIterator(); iterator.hasNext(); index--) {
+                if (isLast.test(iterator.next().event)) {
+                    return index + 1;
+                }
+            }
+            return NOT_IN_HISTORY;
+        }).onErrorResume(NotInHistoryException.class, ex -> otherwise.get());
+    }
+
+    public boolean inHistory(Predicate<T> matcher) {
+        synchronized (lock) {
+            return history.stream().anyMatch(sequenced -> matcher.test(sequenced.event));
+        }
+    }
+
+    /**
+     * @param skipped how many of the oldest history events not to send, or {@link #NOT_IN_HISTORY};
+     *                called under the lock
+     */
+    private Flux<T> subscribe(IntSupplier skipped) {
+        return Flux.create(sink -> {
+            var subscriber = new BufferedSubscriber(sink);
+            int skip;
+            synchronized (lock) {
+                skip = skipped.getAsInt();
+                if (skip != NOT_IN_HISTORY) {
+                    history.stream()
+                            .skip(Math.max(skip, 0))
+                            .forEach(sequenced -> subscriber.enqueue(sequenced.event));
+                    subscribers.add(subscriber);
+                }
+            }
+            if (skip == NOT_IN_HISTORY) {
+                sink.error(new NotInHistoryException());
+                return;
+            }
+            sink.onRequest(requested -> subscriber.drain());
+            sink.onDispose(() -> remove(subscriber));
+        }, FluxSink.OverflowStrategy.IGNORE);
+    }
+
+    public int subscriberCount() {
+        return subscribers.size();
+    }
+
+    private int laggingSubscriberCount() {
+        return (int) subscribers.stream()
+                .filter(BufferedSubscriber::isLagging)
+                .count();
+    }
+
+    private void remove(BufferedSubscriber subscriber) {
+        subscribers.remove(subscriber);
+    }
+
+    private void recordResumeGap() {
+        if (resumeGaps != null) {
+            resumeGaps.increment();
+        }
+    }
+
+    private static class NotInHistoryException extends RuntimeException {
+
+        private NotInHistoryException() {
+            super("Not in the history", null, false, false);
+        }
+    }
+
+    private static class Sequenced<T> {
+
+        private final long sequence;
+        private final T event;
+
+        private Sequenced(long sequence, T event) {
+            this.sequence = sequence;
+            this.event = event;
+        }
+    }
+
+    private class BufferedSubscriber {
+
+        private final FluxSink<T> sink;
+        // guarded by this
+        private final ArrayDeque<T> buffer = new ArrayDeque<>();
+        private boolean overflowed;
+        private final AtomicInteger wip = new AtomicInteger();
+
+        private BufferedSubscriber(FluxSink<T> sink) {
+            this.sink = sink;
+        }
+
+        private synchronized void enqueue(T event) {
+            if (overflowed) {
+                return;
+            }
+            if (buffer.size() < bufferSize) {
+                buffer.add(event);
+                return;
+            }
+            switch (overflowPolicy) {
+                case DROP_OLDEST:
+                    buffer.poll();
+                    buffer.add(event);
+                    recordDropped();
+                    break;
+                case DROP_LATEST:
+                    recordDropped();
+                    break;
+                default:
+                    overflowed = true;
+                    buffer.clear();
+            }
+        }
+
+        /**
+         * Delivers as many buffered events as requested. The work-in-progress counter lets only one
+         * thread drain at a time, which keeps the order without holding a lock while calling the sink.
+         */
+        private void drain() {
+            if (wip.getAndIncrement() != 0) {
+                return;
+            }
+            var missed = 1;
+            do {
+                while (true) {
+                    T event;
+                    synchronized (this) {
+                        if (!overflowed && (sink.requestedFromDownstream() == 0 || buffer.isEmpty())) {
+                            break;
+                        }
+                        // events are never null, so null stands for an overflow
+                        event = overflowed ? null : buffer.poll();
+                    }
+                    if (event == null) {
+                        disconnect();
+                        return;
+                    }
+                    sink.next(event);
+                }
+                missed = wip.addAndGet(-missed);
+            } while (missed != 0);
+        }
+
+        private void disconnect() {
+            remove(this);
+            if (disconnectedSubscribers != null) {
+                disconnectedSubscribers.increment();
+            }
+            log.warn("Disconnecting a slow subscriber of {} after {} buffered events", name, bufferSize);
+            sink.error(Exceptions.failWithOverflow("Subscriber of " + name + " overflowed its buffer of " + bufferSize + " events"));
+        }
+
+        private synchronized boolean isLagging() {
+            return buffer.size() > bufferSize / 2;
+        }
+
+        private void recordDropped() {
+            if (droppedEvents != null) {
+                droppedEvents.increment();
+            }
+        }
+    }
+}
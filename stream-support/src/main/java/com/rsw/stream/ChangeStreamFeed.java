@@ -0,0 +1,166 @@
+package com.rsw.stream;
+
+import com.mongodb.MongoException;
+import com.mongodb.client.model.changestream.OperationType;
+import lombok.extern.slf4j.Slf4j;
+import org.bson.BsonDocument;
+import org.bson.BsonString;
+import org.bson.BsonValue;
+import org.springframework.boot.context.event.ApplicationReadyEvent;
+import org.springframework.context.event.EventListener;
+import org.springframework.dao.DataAccessException;
+import org.springframework.data.mongodb.core.ChangeStreamEvent;
+import org.springframework.data.mongodb.core.ChangeStreamOptions;
+import org.springframework.data.mongodb.core.ReactiveMongoTemplate;
+import org.springframework.data.mongodb.core.aggregation.Aggregation;
+import org.springframework.data.mongodb.core.query.Criteria;
+import reactor.core.Disposable;
+import reactor.core.publisher.Flux;
+import reactor.core.publisher.SynchronousSink;
+import reactor.util.retry.Retry;
+
+import javax.annotation.PreDestroy;
+import java.time.Duration;
+import java.time.Instant;
+import java.util.List;
+import java.util.concurrent.atomic.AtomicReference;
+import java.util.function.Function;
+import java.util.regex.Pattern;
+
+/**
+ * Feeds a broadcaster from a MongoDB change stream on the collection of {@code documentType}, so
+ * subscribers of any instance see the writes of all instances. Each instance tails one cursor and
+ * fans it out locally; the resume token of every event is its stream id, from which a reconnecting
+ * client can continue. Services declare a component subclass for each of their streams.
+ * <p>
+ * By default only inserts are followed. Given a {@code deletedDocument} factory, updates,
+ * replacements and deletes are followed as well, updates carrying the document as updated.
+ */
+@Slf4j
+public class ChangeStreamFeed<T> {
+
+    // the _data of a resume token is a hex string
+    private static final Pattern RESUME_TOKEN = Pattern.compile("([0-9A-Fa-f]{2})+");
+
+    private final ReactiveMongoTemplate reactiveMongoTemplate;
+    private final Broadcaster<StreamEvent<T>> broadcaster;
+    private final Class<T> documentType;
+    private final String name;
+    private final Function<String, T> deletedDocument;
+
+    private volatile String lastResumeToken;
+    private Disposable subscription;
+
+    /**
+     * @param name the document type as written in log messages
+     */
+    public ChangeStreamFeed(ReactiveMongoTemplate reactiveMongoTemplate, Broadcaster<StreamEvent<T>> broadcaster,
+                            Class<T> documentType, String name) {
+        this(reactiveMongoTemplate, broadcaster, documentType, name, null);
+    }
+
+    /**
+     * @param deletedDocument builds the data of a delete event from the id of the deleted document;
+     *                        null to follow inserts only
+     */
+    public ChangeStreamFeed(ReactiveMongoTemplate reactiveMongoTemplate, Broadcaster<StreamEvent<T>> broadcaster,
+                            Class<T> documentType, String name, Function<String, T> deletedDocument) {
+        this.reactiveMongoTemplate = reactiveMongoTemplate;
+        this.broadcaster = broadcaster;
+        this.documentType = documentType;
+        this.name = name;
+        this.deletedDocument = deletedDocument;
+    }
+
+    @EventListener(ApplicationReadyEvent.class)
+    public void start() {
+        // starts a little in the past so writes racing the cursor opening are not missed
+        var startedAt = Instant.now().minusSeconds(1);
+        subscription = Flux.defer(() -> lastResumeToken == null
+                        ? watch(ChangeStreamOptions.builder().resumeAt(startedAt))
+                        : watch(ChangeStreamOptions.builder().resumeAfter(toResumeToken(lastResumeToken))))
+                .doOnNext(event -> lastResumeToken = event.getId())
+                .retryWhen(Retry.backoff(Long.MAX_VALUE, Duration.ofMillis(100))
+                        .maxBackoff(Duration.ofSeconds(10))
+                        .doBeforeRetry(retrySignal -> log.warn("{} change stream failed, resuming : {}", name, retrySignal.failure().toString())))
+                .subscribe(event -> broadcaster.emit(event));
+    }
+
+    /**
+     * Events after {@code resumeToken}, then the live ones. A token still in the broadcaster history
+     * is resumed from it. An older one is caught up on a cursor of the caller's own, closed once it
+     * reaches an event of the history, where the shared feed takes over. A token that is malformed
+     * or rejected by the server resumes live.
+     */
+    public Flux<StreamEvent<T>> resume(String resumeToken) {
+        if (!RESUME_TOKEN.matcher(resumeToken).matches()) {
+            log.info("Ignoring Last-Event-ID {} that is not a resume token", resumeToken);
+            return broadcaster.asFlux();
+        }
+        return broadcaster.asFluxAfter(event -> resumeToken.equals(event.getId()), () -> catchUp(resumeToken));
+    }
+
+    private Flux<StreamEvent<T>> catchUp(String resumeToken) {
+        var lastToken = new AtomicReference<>(resumeToken);
+        return watch(ChangeStreamOptions.builder().resumeAfter(toResumeToken(resumeToken)))
+                .takeUntil(event -> broadcaster.inHistory(shared -> event.getId().equals(shared.getId())))
+                .doOnNext(event -> lastToken.set(event.getId()))
+                .onErrorResume(ex -> ex instanceof MongoException || ex instanceof DataAccessException, ex -> {
+                    log.warn("Cannot resume the {} change stream after {}, following live events : {}", name, lastToken.get(), ex.toString());
+                    lastToken.set(null);
+                    return Flux.empty();
+                })
+                .concatWith(Flux.defer(() -> lastToken.get() == null
+                        ? broadcaster.asFlux()
+                        : resume(lastToken.get())));
+    }
+
+    @PreDestroy
+    public void stop() {
+        if (subscription != null) {
+            subscription.dispose();
+        }
+    }
+
+    // the same events the LOCAL source publishes
+    private Flux<StreamEvent<T>> watch(ChangeStreamOptions.ChangeStreamOptionsBuilder options) {
+        if (deletedDocument == null) {
+            options.filter(Aggregation.newAggregation(Aggregation.match(Criteria.where("operationType").is("insert"))));
+        } else {
+            options.filter(Aggregation.newAggregation(Aggregation.match(Criteria.where("operationType").in(List.of("insert", "update", "replace", "delete")))))
+                    .returnFullDocumentOnUpdate();
+        }
+        return reactiveMongoTemplate.changeStream(reactiveMongoTemplate.getCollectionName(documentType), options.build(), documentType)
+                .handle(this::toStreamEvent);
+    }
+
+    // an update whose document was deleted before it could be looked up has no body and is skipped
+    private void toStreamEvent(ChangeStreamEvent<T> event, SynchronousSink<StreamEvent<T>> sink) {
+        var id = fromResumeToken(event);
+        if (event.getOperationType() == OperationType.DELETE) {
+            sink.next(new StreamEvent<>(id, StreamEventType.DELETE, deletedDocument.apply(documentId(event))));
+        } else if (event.getBody() != null) {
+            var type = event.getOperationType() == OperationType.INSERT ? StreamEventType.INSERT : StreamEventType.UPDATE;
+            sink.next(new StreamEvent<>(id, type, event.getBody()));
+        }
+    }
+
+    private static String documentId(ChangeStreamEvent<?> event) {
+        var id = event.getRaw().getDocumentKey().get("_id");
+        if (id.isObjectId()) {
+            return id.asObjectId().getValue().toHexString();
+        }
+        if (id.isNumber()) {
+            return String.valueOf(id.asNumber().longValue());
+        }
+        return id.asString().getValue();
+    }
+
+    private static String fromResumeToken(ChangeStreamEvent<?> event) {
+        return event.getResumeToken().asDocument().getString("_data").getValue();
+    }
+
+    private static BsonValue toResumeToken(String resumeToken) {
+        return new BsonDocument("_data", new BsonString(resumeToken));
+    }
+}
@@ -0,0 +1,13 @@
+package com.rsw.stream;
+
+/**
+ * What a {@link Broadcaster} does with a new event when a subscriber's buffer is full.
+ */
+public enum OverflowPolicy {
+    // evict the oldest buffered event to make room
+    DROP_OLDEST,
+    // discard the new event
+    DROP_LATEST,
+    // disconnect the slow subscriber with an overflow error
+    ERROR
+}
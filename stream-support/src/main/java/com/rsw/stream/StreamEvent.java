@@ -0,0 +1,20 @@
+package com.rsw.stream;
+
+import lombok.AllArgsConstructor;
+import lombok.Data;
+import lombok.NoArgsConstructor;
+
+@Data
+@NoArgsConstructor
+@AllArgsConstructor
+public class StreamEvent<T> {
+
+    // position of the event in its source, sent as the SSE id: a broadcaster sequence number or a change stream resume token
+    private String id;
+    private StreamEventType type;
+    private T data;
+
+    public StreamEvent(String id, T data) {
+        this(id, StreamEventType.INSERT, data);
+    }
+}
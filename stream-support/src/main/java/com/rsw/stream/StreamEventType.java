@@ -0,0 +1,12 @@
+package com.rsw.stream;
+
+/**
+ * What happened to the document of a {@link StreamEvent}, sent as the SSE event name in lower case.
+ */
+public enum StreamEventType {
+    INSERT,
+    // an update or a replacement, the event carries the document as updated
+    UPDATE,
+    // the event carries a document holding only its id
+    DELETE
+}
@@ -0,0 +1,11 @@
+package com.rsw.stream;
+
+/**
+ * Where the live stream gets its events from.
+ */
+public enum StreamSource {
+    // writes made through this instance
+    LOCAL,
+    // a MongoDB change stream, which sees the writes of every instance; needs a replica set
+    CHANGE_STREAM
+}
@@ -0,0 +1,204 @@
+package com.rsw.stream;
+
+import io.micrometer.core.instrument.simple.SimpleMeterRegistry;
+import org.junit.jupiter.api.Test;
+import reactor.core.publisher.Flux;
+import reactor.test.StepVerifier;
+
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.Executors;
+import java.util.concurrent.TimeUnit;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+
+class BroadcasterTest {
+
+    private final SimpleMeterRegistry meterRegistry = new SimpleMeterRegistry();
+
+    @Test
+    void asFlux_replaysLastEvents() {
+        var broadcaster = new Broadcaster<Integer>("test", 2, 10, OverflowPolicy.DROP_OLDEST, meterRegistry);
+        broadcaster.emit(1);
+        broadcaster.emit(2);
+        broadcaster.emit(3);
+
+        StepVerifier.create(broadcaster.asFlux())
+                .expectNext(2, 3)
+                .then(() -> broadcaster.emit(4))
+                .expectNext(4)
+                .thenCancel()
+                .verify();
+    }
+
+    @Test
+    void asFlux_resumesAfterLastSequence() {
+        var broadcaster = new Broadcaster<String>("test", 1, 10, 10, OverflowPolicy.DROP_OLDEST, meterRegistry);
+        var first = new long[1];
+        broadcaster.emit(sequence -> {
+            first[0] = sequence;
+            return "a";
+        });
+        broadcaster.emit("b");
+        broadcaster.emit("c");
+
+        StepVerifier.create(broadcaster.asFlux(broadcaster.eventId(first[0])))
+                .expectNext("b", "c")
+                .then(() -> broadcaster.emit("d"))
+                .expectNext("d")
+                .thenCancel()
+                .verify();
+    }
+
+    @Test
+    void asFlux_sendsWholeHistoryWhenLastSequenceIsGone() {
+        var broadcaster = new Broadcaster<String>("test", 1, 2, 10, OverflowPolicy.DROP_OLDEST, meterRegistry);
+        var first = new long[1];
+        broadcaster.emit(sequence -> {
+            first[0] = sequence;
+            return "a";
+        });
+        broadcaster.emit("b");
+        broadcaster.emit("c");
+        broadcaster.emit("d");
+
+        StepVerifier.create(broadcaster.asFlux(broadcaster.eventId(first[0])))
+                .expectNext("c", "d")
+                .thenCancel()
+                .verify();
+
+        assertEquals(1.0, meterRegistry.counter("stream.resume.gaps", "stream", "test").count());
+    }
+
+    @Test
+    void asFlux_countsIdOfAnotherInstanceAsGap() {
+        var other = new Broadcaster<String>("other", 1, 10, 10, OverflowPolicy.DROP_OLDEST, null);
+        var foreignId = other.eventId(1);
+        var broadcaster = new Broadcaster<String>("test", 1, 10, 10, OverflowPolicy.DROP_OLDEST, meterRegistry);
+        broadcaster.emit("a");
+        broadcaster.emit("b");
+
+        StepVerifier.create(broadcaster.asFlux(foreignId))
+                .expectNext("a", "b")
+                .thenCancel()
+                .verify();
+
+        assertEquals(1.0, meterRegistry.counter("stream.resume.gaps", "stream", "test").count());
+    }
+
+    @Test
+    void asFlux_malformedIdResumesLive() {
+        var broadcaster = new Broadcaster<String>("test", 1, 10, 10, OverflowPolicy.DROP_OLDEST, meterRegistry);
+        broadcaster.emit("a");
+        broadcaster.emit("b");
+
+        StepVerifier.create(broadcaster.asFlux("not-an-id"))
+                .expectNext("b")
+                .thenCancel()
+                .verify();
+
+        assertEquals(0.0, meterRegistry.counter("stream.resume.gaps", "stream", "test").count());
+    }
+
+    @Test
+    void asFluxAfter_resumesAfterMatchingEvent() {
+        var broadcaster = new Broadcaster<String>("test", 1, 10, 10, OverflowPolicy.DROP_OLDEST, meterRegistry);
+        broadcaster.emit("a");
+        broadcaster.emit("b");
+        broadcaster.emit("c");
+
+        StepVerifier.create(broadcaster.asFluxAfter("a"::equals, () -> Flux.just("other")))
+                .expectNext("b", "c")
+                .then(() -> broadcaster.emit("d"))
+                .expectNext("d")
+                .thenCancel()
+                .verify();
+    }
+
+    @Test
+    void asFluxAfter_subscribesOtherwiseWhenNoEventMatches() {
+        var broadcaster = new Broadcaster<String>("test", 1, 10, 10, OverflowPolicy.DROP_OLDEST, meterRegistry);
+        broadcaster.emit("a");
+
+        StepVerifier.create(broadcaster.asFluxAfter("z"::equals, () -> Flux.just("other")))
+                .expectNext("other")
+                .verifyComplete();
+
+        assertEquals(0, broadcaster.subscriberCount());
+    }
+
+    @Test
+    void emit_dropOldestWhenBufferIsFull() {
+        var broadcaster = new Broadcaster<Integer>("test", 0, 2, OverflowPolicy.DROP_OLDEST, meterRegistry);
+
+        StepVerifier.create(broadcaster.asFlux(), 0)
+                .then(() -> {
+                    broadcaster.emit(1);
+                    broadcaster.emit(2);
+                    broadcaster.emit(3);
+                })
+                .thenRequest(2)
+                .expectNext(2, 3)
+                .thenCancel()
+                .verify();
+
+        assertEquals(1.0, meterRegistry.counter("stream.events.dropped", "stream", "test", "policy", "DROP_OLDEST").count());
+    }
+
+    @Test
+    void emit_dropLatestWhenBufferIsFull() {
+        var broadcaster = new Broadcaster<Integer>("test", 0, 2, OverflowPolicy.DROP_LATEST, meterRegistry);
+
+        StepVerifier.create(broadcaster.asFlux(), 0)
+                .then(() -> {
+                    broadcaster.emit(1);
+                    broadcaster.emit(2);
+                    broadcaster.emit(3);
+                })
+                .thenRequest(2)
+                .expectNext(1, 2)
+                .thenCancel()
+                .verify();
+    }
+
+    @Test
+    void emit_disconnectsSlowSubscriber() {
+        var broadcaster = new Broadcaster<Integer>("test", 0, 2, OverflowPolicy.ERROR, meterRegistry);
+
+        StepVerifier.create(broadcaster.asFlux(), 0)
+                .then(() -> {
+                    broadcaster.emit(1);
+                    broadcaster.emit(2);
+                    broadcaster.emit(3);
+                })
+                .expectError(IllegalStateException.class)
+                .verify();
+
+        assertEquals(0, broadcaster.subscriberCount());
+        assertEquals(1.0, meterRegistry.counter("stream.subscribers.disconnected", "stream", "test").count());
+    }
+
+    @Test
+    void emit_concurrentWritersLoseNoEvents() throws InterruptedException {
+        var broadcaster = new Broadcaster<Integer>("test", 0, 10_000, OverflowPolicy.ERROR, meterRegistry);
+        var writers = Executors.newFixedThreadPool(4);
+        var done = new CountDownLatch(4);
+
+        var received = broadcaster.asFlux()
+                .take(4_000)
+                .count()
+                .toFuture();
+        for (int writer = 0; writer < 4; writer++) {
+            writers.submit(() -> {
+                for (int i = 0; i < 1_000; i++) {
+                    broadcaster.emit(i);
+                }
+                done.countDown();
+            });
+        }
+
+        assertTrue(done.await(5, TimeUnit.SECONDS));
+        assertEquals(4_000L, received.join());
+        writers.shutdown();
+    }
+}